@@ -1,15 +1,25 @@
 package org.reactome.server.analysis.service.config;
 
 import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.media.StringSchema;
+import io.swagger.v3.oas.models.parameters.QueryParameter;
 import io.swagger.v3.oas.models.info.Contact;
 import io.swagger.v3.oas.models.info.Info;
 import io.swagger.v3.oas.models.info.License;
 import io.swagger.v3.oas.models.servers.Server;
+import org.reactome.server.analysis.service.controller.IdentifierController;
+import org.reactome.server.analysis.service.controller.IdentifiersController;
+import org.reactome.server.analysis.service.controller.TokenController;
+import org.reactome.server.analysis.service.handler.FieldSelectionAdvice;
+import org.springdoc.core.customizers.OperationCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
 
 import javax.servlet.ServletContext;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * @author Antonio Fabregat <fabregat@ebi.ac.uk>
@@ -17,6 +27,9 @@ import javax.servlet.ServletContext;
 @Configuration
 public class AnalysisServiceSwaggerConfig {
 
+    private static final Set<Class<?>> FIELD_SELECTION_CONTROLLERS = new HashSet<>(Arrays.asList(
+            TokenController.class, IdentifiersController.class, IdentifierController.class));
+
     @Lazy
     @Bean
     public OpenAPI createRestApi(ServletContext context) {
@@ -36,4 +49,24 @@ public class AnalysisServiceSwaggerConfig {
                                 .url("https://reactome.org"))
                 );
     }
-}
\ No newline at end of file
+
+    /**
+     * The sparse field selection is applied by FieldSelectionAdvice, so it is not a parameter of the methods
+     */
+    @Bean
+    public OperationCustomizer fieldSelectionParameter() {
+        return (operation, handlerMethod) -> {
+            boolean selectable = FIELD_SELECTION_CONTROLLERS.contains(handlerMethod.getBeanType()) &&
+                    !void.class.equals(handlerMethod.getMethod().getReturnType());
+            boolean declared = operation.getParameters() != null &&
+                    operation.getParameters().stream().anyMatch(p -> FieldSelectionAdvice.PARAMETER.equals(p.getName()));
+            if (selectable && !declared) {
+                operation.addParametersItem(new QueryParameter()
+                        .name(FieldSelectionAdvice.PARAMETER)
+                        .description("comma separated list of the fields to include in the response (i.e. summary.token,pathways.stId,pathways.entities.pValue)")
+                        .schema(new StringSchema()));
+            }
+            return operation;
+        };
+    }
+}
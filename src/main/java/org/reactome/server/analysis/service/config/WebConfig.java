@@ -1,24 +1,31 @@
 package org.reactome.server.analysis.service.config;
 
-import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.reactome.server.analysis.core.data.AnalysisData;
 import org.reactome.server.analysis.core.result.utils.ExternalAnalysisResultCheck;
 import org.reactome.server.analysis.core.result.utils.TokenUtils;
-import org.reactome.server.analysis.service.handler.FileDeletorScheduler;
 import org.reactome.server.analysis.service.handler.HandlerExceptionResolverImpl;
+import org.reactome.server.analysis.service.handler.ResultCachingInterceptor;
 import org.reactome.server.analysis.service.helper.AnalysisHelper;
 import org.reactome.server.analysis.service.helper.FileCheckerController;
+import org.reactome.server.analysis.service.helper.JsonStreamHelper;
 import org.reactome.server.analysis.service.utils.ReactomeGraphConfig;
 import org.reactome.server.tools.analysis.report.AnalysisReport;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.DependsOn;
 import org.springframework.context.annotation.PropertySource;
+import org.springframework.http.MediaType;
 import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.multipart.commons.CommonsMultipartResolver;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -27,6 +34,7 @@ import java.util.List;
 // adding this property source to fix problems when application starts and it could not resolve placeholder 'spring.neo4j.uri' in value "${spring.neo4j.uri}"
 @PropertySource("classpath:application.properties")
 @Configuration
+@EnableScheduling
 public class WebConfig implements WebMvcConfigurer {
 
     @Value("${analysis.data.file}")
@@ -35,12 +43,45 @@ public class WebConfig implements WebMvcConfigurer {
     @Value("${analysis.data.tmp}")
     String analysisDataTmpPath;
 
+    @Value("${analysis.async.timeout:600000}")
+    Long asyncTimeout;
+
+    private JsonStreamHelper jsonStreamHelper;
+    private ResultCachingInterceptor resultCachingInterceptor;
+
+    @Autowired
+    public void setJsonStreamHelper(JsonStreamHelper jsonStreamHelper) {
+        this.jsonStreamHelper = jsonStreamHelper;
+    }
+
+    @Autowired
+    public void setResultCachingInterceptor(ResultCachingInterceptor resultCachingInterceptor) {
+        this.resultCachingInterceptor = resultCachingInterceptor;
+    }
+
     @Override
     public void configureMessageConverters(List<HttpMessageConverter<?>> converters) {
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        // The same ObjectMappers are used when streaming big responses
+        ObjectMapper objectMapper = jsonStreamHelper.getObjectMapper();
         MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter = new MappingJackson2HttpMessageConverter(objectMapper);
         converters.add(mappingJackson2HttpMessageConverter);
+        // Binary encodings of the same data model, only sent when requested in the Accept header (json comes first)
+        converters.add(new MappingJackson2CborHttpMessageConverter(jsonStreamHelper.getObjectMapper(MediaType.valueOf(JsonStreamHelper.CBOR))));
+        converters.add(new MappingJackson2SmileHttpMessageConverter(jsonStreamHelper.getObjectMapper(MediaType.valueOf(JsonStreamHelper.SMILE))));
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        // Requests retrieving the data from a url are completed asynchronously (see UrlFetcher)
+        configurer.setDefaultTimeout(asyncTimeout);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // The status of an analysis changes while it runs, so it is the only token method excluded
+        registry.addInterceptor(resultCachingInterceptor)
+                .addPathPatterns("/token/**", "/download/**")
+                .excludePathPatterns("/token/*/status");
     }
 
     @Override
@@ -100,11 +141,6 @@ public class WebConfig implements WebMvcConfigurer {
         return tokenUtils;
     }
 
-    @Bean
-    public FileDeletorScheduler fileDeletorScheduler() {
-        return new FileDeletorScheduler();
-    }
-
 
     @Bean
     public ReactomeGraphConfig graphCore(@Value("${spring.neo4j.uri}") String uri,
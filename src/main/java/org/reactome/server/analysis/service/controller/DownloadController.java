@@ -9,16 +9,19 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.reactome.server.analysis.core.result.AnalysisStoredResult;
 import org.reactome.server.analysis.core.result.external.ExternalAnalysisResult;
-import org.reactome.server.analysis.core.result.utils.TokenUtils;
+import org.reactome.server.analysis.service.helper.AnalysisResultCache;
 import org.reactome.server.analysis.service.helper.DownloadHelper;
+import org.reactome.server.analysis.service.helper.JsonStreamHelper;
 import org.reactome.server.graph.service.GeneralService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * @author Antonio Fabregat <fabregat@ebi.ac.uk>
@@ -28,8 +31,12 @@ import java.io.IOException;
 @RequestMapping(value = "/download")
 public class DownloadController {
 
-    private TokenUtils token;
+    // The csv files are written straight to the response as they are generated
+    private static final String CSV = "text/csv";
+
+    private AnalysisResultCache token;
     private GeneralService generalService;
+    private JsonStreamHelper jsonStreamHelper;
 
     @Operation(summary = "Downloads all hit pathways for a given analysis",
             description = "The results are filtered by the selected resource. The filename is the one to be suggested in the download window.")
@@ -37,30 +44,36 @@ public class DownloadController {
             @ApiResponse(responseCode = "404", description = "No result corresponding to the token was found"),
             @ApiResponse(responseCode = "410", description = "Result deleted due to a new data release")})
     @RequestMapping(value = "/{token}/pathways/{resource}/{filename}.csv", method = RequestMethod.GET, produces = "text/csv")
-    @ResponseBody
-    public FileSystemResource downloadResultCSV(@Parameter(name = "token", required = true, description = "The token associated with the data to download")
-                                                @PathVariable String token,
-                                                @Parameter(name = "resource", schema = @Schema(description = "the preferred resource", required = true, example = "TOTAL", allowableValues = {"TOTAL", "UNIPROT", "ENSEMBL", "CHEBI", "IUPHAR", "MIRBASE", "NCBI", "PROTEIN", "EMBL", "COMPOUND", "PUBCHEM_COMPOUND"}))
-                                                @PathVariable String resource,
-                                                @Parameter(name = "filename", description = "the file name for the downloaded information", required = true, example = "result")
-                                                @PathVariable String filename) throws IOException {
+    public void downloadResultCSV(@Parameter(name = "token", required = true, description = "The token associated with the data to download")
+                                  @PathVariable String token,
+                                  @Parameter(name = "resource", schema = @Schema(description = "the preferred resource", required = true, example = "TOTAL", allowableValues = {"TOTAL", "UNIPROT", "ENSEMBL", "CHEBI", "IUPHAR", "MIRBASE", "NCBI", "PROTEIN", "EMBL", "COMPOUND", "PUBCHEM_COMPOUND"}))
+                                  @PathVariable String resource,
+                                  @Parameter(name = "filename", description = "the file name for the downloaded information", required = true, example = "result")
+                                  @PathVariable String filename,
+                                  HttpServletResponse response) throws IOException {
         AnalysisStoredResult asr = this.token.getFromToken(token);
-        return DownloadHelper.getHitPathwaysCVS(filename, asr, resource);
+        response.setContentType(CSV);
+        DownloadHelper.writeHitPathwaysCSV(asr, resource, response.getOutputStream());
     }
 
     @Operation(summary = "Returns the complete result in json format",
-            description = "The results are not filtered by any means. The json file contains the whole stored result based on chosen analysis options and submitted data.")
+            description = "The results are not filtered by any means. The json file contains the whole stored result based on chosen analysis options and submitted data. " +
+                    "The same content is sent in CBOR or Smile (binary) encoding when requested in the Accept header.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "404", description = "No result corresponding to the token was found"),
             @ApiResponse(responseCode = "410", description = "Result deleted due to a new data release")})
-    @RequestMapping(value = "/{token}/result.json", method = RequestMethod.GET, produces = "application/json")
-    @ResponseBody
-    public ExternalAnalysisResult downloadResultJSON(@Parameter(name = "token", required = true, description = "The token associated with the data to query")
-                                                     @PathVariable String token,
-                                                     @Parameter(name = "importableOnly", description = "Only include resources which can be later imported", example = "false")
-                                                     @RequestParam(required = false, defaultValue = "false") Boolean importableOnly) {
+    @RequestMapping(value = "/{token}/result.json", method = RequestMethod.GET, produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE})
+    public void downloadResultJSON(@Parameter(name = "token", required = true, description = "The token associated with the data to query")
+                                   @PathVariable String token,
+                                   @Parameter(name = "importableOnly", description = "Only include resources which can be later imported", example = "false")
+                                   @RequestParam(required = false, defaultValue = "false") Boolean importableOnly,
+                                   @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                   HttpServletResponse response) throws IOException {
         AnalysisStoredResult result = this.token.getFromToken(token);
-        return new ExternalAnalysisResult(result, generalService.getDBInfo().getVersion(), importableOnly);
+        ExternalAnalysisResult er = new ExternalAnalysisResult(result, generalService.getDBInfo().getVersion(), importableOnly);
+        MediaType format = JsonStreamHelper.getPreferred(accept, "application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE);
+        response.setContentType(format.toString());
+        jsonStreamHelper.write(er, format, response.getOutputStream());
     }
 
     @Operation(summary = "Returns the complete result in json format (gzipped)",
@@ -69,15 +82,15 @@ public class DownloadController {
             @ApiResponse(responseCode = "404", description = "No result corresponding to the token was found"),
             @ApiResponse(responseCode = "410", description = "Result deleted due to a new data release")})
     @RequestMapping(value = "/{token}/result.json.gz", method = RequestMethod.GET, produces = {"application/x-gzip", "application/gzip"})
-    @ResponseBody
-    public FileSystemResource downloadResultGZIP(@Parameter(name = "token", required = true, description = "The token associated with the data to query")
-                                                 @PathVariable String token,
-                                                 HttpServletResponse response) throws IOException {
-        response.setContentType("application/x-gzip");
-        response.setHeader("Content-Disposition", "attachment; filename=\"" + "result.json.gz" + "\"");
+    public void downloadResultGZIP(@Parameter(name = "token", required = true, description = "The token associated with the data to query")
+                                   @PathVariable String token,
+                                   HttpServletResponse response) throws IOException {
         AnalysisStoredResult result = this.token.getFromToken(token);
         final ExternalAnalysisResult er = new ExternalAnalysisResult(result, generalService.getDBInfo().getVersion());
-        return DownloadHelper.getExternalResultsGZIP("result", er);
+        response.setContentType("application/x-gzip");
+        response.setHeader("Content-Disposition", "attachment; filename=\"" + "result.json.gz" + "\"");
+        //Compressed as it is serialised, so neither the json nor the gzipped content are held in memory or disk
+        jsonStreamHelper.write(er, new GZIPOutputStream(response.getOutputStream(), 8192));
     }
 
 
@@ -87,15 +100,16 @@ public class DownloadController {
             @ApiResponse(responseCode = "404", description = "No result corresponding to the token was found"),
             @ApiResponse(responseCode = "410", description = "Result deleted due to a new data release")})
     @RequestMapping(value = "/{token}/entities/found/{resource}/{filename}.csv", method = RequestMethod.GET, produces = "text/csv")
-    @ResponseBody
-    public FileSystemResource downloadMappingResult(@Parameter(name = "token", required = true, description = "The token associated with the data to download")
-                                                    @PathVariable String token,
-                                                    @Parameter(name = "resource", schema = @Schema(description = "the preferred resource", required = true, example = "TOTAL", allowableValues = {"TOTAL", "UNIPROT", "ENSEMBL", "CHEBI", "IUPHAR", "MIRBASE", "NCBI_PROTEIN", "EMBL", "COMPOUND", "PUBCHEM_COMPOUND"}))
-                                                    @PathVariable String resource,
-                                                    @Parameter(name = "filename", description = "the file name for the downloaded information", required = true, example = "result")
-                                                    @PathVariable String filename) throws IOException {
+    public void downloadMappingResult(@Parameter(name = "token", required = true, description = "The token associated with the data to download")
+                                      @PathVariable String token,
+                                      @Parameter(name = "resource", schema = @Schema(description = "the preferred resource", required = true, example = "TOTAL", allowableValues = {"TOTAL", "UNIPROT", "ENSEMBL", "CHEBI", "IUPHAR", "MIRBASE", "NCBI_PROTEIN", "EMBL", "COMPOUND", "PUBCHEM_COMPOUND"}))
+                                      @PathVariable String resource,
+                                      @Parameter(name = "filename", description = "the file name for the downloaded information", required = true, example = "result")
+                                      @PathVariable String filename,
+                                      HttpServletResponse response) throws IOException {
         AnalysisStoredResult asr = this.token.getFromToken(token);
-        return DownloadHelper.getIdentifiersFoundMappingCVS(filename, asr, resource);
+        response.setContentType(CSV);
+        DownloadHelper.writeIdentifiersFoundMappingCSV(asr, resource, response.getOutputStream());
     }
 
     @Operation(summary = "Downloads a list of the not found identifiers",
@@ -104,17 +118,18 @@ public class DownloadController {
             @ApiResponse(responseCode = "404", description = "No result corresponding to the token was found"),
             @ApiResponse(responseCode = "410", description = "Result deleted due to a new data release")})
     @RequestMapping(value = "/{token}/entities/notfound/{filename}.csv", method = RequestMethod.GET, produces = "text/csv")
-    @ResponseBody
-    public FileSystemResource downloadNotFound(@Parameter(name = "token", required = true, description = "The token associated with the data to download")
-                                               @PathVariable String token,
-                                               @Parameter(name = "filename", description = "the file name for the downloaded information", required = true, example = "result")
-                                               @PathVariable String filename) throws IOException {
+    public void downloadNotFound(@Parameter(name = "token", required = true, description = "The token associated with the data to download")
+                                 @PathVariable String token,
+                                 @Parameter(name = "filename", description = "the file name for the downloaded information", required = true, example = "result")
+                                 @PathVariable String filename,
+                                 HttpServletResponse response) throws IOException {
         AnalysisStoredResult asr = this.token.getFromToken(token);
-        return DownloadHelper.getNotFoundIdentifiers(filename, asr);
+        response.setContentType(CSV);
+        DownloadHelper.writeNotFoundIdentifiersCSV(asr, response.getOutputStream());
     }
 
     @Autowired
-    public void setToken(TokenUtils token) {
+    public void setToken(AnalysisResultCache token) {
         this.token = token;
     }
 
@@ -123,4 +138,9 @@ public class DownloadController {
         this.generalService = generalService;
     }
 
+    @Autowired
+    public void setJsonStreamHelper(JsonStreamHelper jsonStreamHelper) {
+        this.jsonStreamHelper = jsonStreamHelper;
+    }
+
 }
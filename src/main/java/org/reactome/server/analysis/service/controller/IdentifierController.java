@@ -3,11 +3,14 @@ package org.reactome.server.analysis.service.controller;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.reactome.server.analysis.core.model.UserData;
 import org.reactome.server.analysis.core.result.AnalysisStoredResult;
 import org.reactome.server.analysis.core.result.model.AnalysisResult;
 import org.reactome.server.analysis.service.helper.AnalysisHelper;
+import org.reactome.server.analysis.service.helper.JsonStreamHelper;
 import org.reactome.server.graph.domain.model.Species;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
@@ -31,7 +34,8 @@ public class IdentifierController {
                     "to reduce the amount of data retrieved. Use sortBy and order to sort the result by your preferred option. " +
                     "The resource field will filter the results to show only those corresponding to the preferred molecule type " +
                     "(TOTAL includes all the different molecules type)")
-    @RequestMapping(value = "/{id}/projection", method = RequestMethod.GET, produces = "application/json")
+    @ApiResponses({@ApiResponse(responseCode = "503", description = "The analysis queue is full or the analysis did not finish in time. Please try again later")})
+    @RequestMapping(value = "/{id}/projection", method = RequestMethod.GET, produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE})
     @ResponseBody
     public AnalysisResult getIdentifierToHuman(@Parameter(name = "id", required = true, description = "The identifier of the element to be retrieved")
                                                @PathVariable String id,
@@ -71,7 +75,8 @@ public class IdentifierController {
             description = "Use page and pageSize to reduce the amount of data retrieved. Use sortBy and order to sort the result by your " +
                     "preferred option. The resource field will filter the results to show only those corresponding to the preferred " +
                     "molecule type (TOTAL includes all the different molecules type)")
-    @RequestMapping(value = "/{id}", method = RequestMethod.GET, produces = "application/json")
+    @ApiResponses({@ApiResponse(responseCode = "503", description = "The analysis queue is full or the analysis did not finish in time. Please try again later")})
+    @RequestMapping(value = "/{id}", method = RequestMethod.GET, produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE})
     @ResponseBody
     public AnalysisResult getIdentifier(@Parameter(name = "id", required = true, description = "The identifier of the element to be retrieved")
                                         @PathVariable String id,
@@ -10,8 +10,13 @@ import org.reactome.server.analysis.core.model.UserData;
 import org.reactome.server.analysis.core.result.AnalysisStoredResult;
 import org.reactome.server.analysis.core.result.model.AnalysisResult;
 import org.reactome.server.analysis.service.helper.AnalysisHelper;
+import org.reactome.server.analysis.service.helper.JsonStreamHelper;
+import org.reactome.server.analysis.service.model.AnalysisJob;
+import org.reactome.server.analysis.service.model.AnalysisSample;
+import org.reactome.server.analysis.service.model.AnalysisSampleResult;
 import org.reactome.server.graph.domain.model.Species;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
@@ -19,6 +24,7 @@ import org.springframework.web.multipart.MultipartFile;
 
 import javax.servlet.http.HttpServletRequest;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author Antonio Fabregat <fabregat@ebi.ac.uk>
@@ -35,8 +41,10 @@ public class IdentifiersController {
                     "to reduce the amount of data retrieved. Use sortBy and order to sort the result by your preferred option. " +
                     "The resource field will filter the results to show only those corresponding to the preferred molecule type " +
                     "(TOTAL includes all the different molecules type)")
-    @ApiResponses({@ApiResponse(responseCode = "400", description = "Bad request")})
-    @RequestMapping(value = "/projection", method = RequestMethod.POST, consumes = "text/plain", produces = "application/json")
+    @ApiResponses({
+            @ApiResponse(responseCode = "400", description = "Bad request"),
+            @ApiResponse(responseCode = "503", description = "The analysis queue is full or the analysis did not finish in time. Please try again later")})
+    @RequestMapping(value = "/projection", method = RequestMethod.POST, consumes = "text/plain", produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE})
     @ResponseBody
     public AnalysisResult getPostTextToHuman(
             @io.swagger.v3.oas.annotations.parameters.RequestBody(
@@ -79,8 +87,10 @@ public class IdentifiersController {
                     "molecule type (TOTAL includes all the different molecules type). " +
                     "The token which includes analysis results are available for 7 days after your last execution, " +
                     "you have to re-generate it if you would like to keep using the token.")
-    @ApiResponses({@ApiResponse(responseCode = "400", description = "Bad request")})
-    @RequestMapping(value = "/", method = RequestMethod.POST, consumes = "text/plain", produces = "application/json")
+    @ApiResponses({
+            @ApiResponse(responseCode = "400", description = "Bad request"),
+            @ApiResponse(responseCode = "503", description = "The analysis queue is full or the analysis did not finish in time. Please try again later")})
+    @RequestMapping(value = "/", method = RequestMethod.POST, consumes = "text/plain", produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE})
     @ResponseBody
     public AnalysisResult getPostText(
             @io.swagger.v3.oas.annotations.parameters.RequestBody(
@@ -128,10 +138,11 @@ public class IdentifiersController {
     @ApiResponses({
             @ApiResponse(responseCode = "400", description = "Bad request"),
             @ApiResponse(responseCode = "413", description = "The file size is larger than the maximum configured size (50MB)"),
-            @ApiResponse(responseCode = "415", description = "Unsupported Media Type (only 'text/plain')")})
-    @PostMapping(value = "/form/projection", produces = "application/json", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+            @ApiResponse(responseCode = "415", description = "Unsupported Media Type (only plain text or the binary expression matrix, optionally gzip, zip or zstd compressed)"),
+            @ApiResponse(responseCode = "503", description = "The analysis queue is full or the analysis did not finish in time. Please try again later")})
+    @PostMapping(value = "/form/projection", produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE}, consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @ResponseBody
-    public AnalysisResult getPostFileToHuman(@Parameter(name = "file", required = true, description = "A file with the data to be analysed")
+    public AnalysisResult getPostFileToHuman(@Parameter(name = "file", required = true, description = "A file with the data to be analysed: plain text or a binary expression matrix (little-endian float32 columns with an identifiers dictionary), optionally compressed")
                                              @RequestPart MultipartFile file,
                                              @Parameter(name = "interactors", description = "Include interactors", example = "false")
                                              @RequestParam(required = false, defaultValue = "false") Boolean interactors,
@@ -169,10 +180,11 @@ public class IdentifiersController {
     @ApiResponses({
             @ApiResponse(responseCode = "400", description = "Bad request"),
             @ApiResponse(responseCode = "413", description = "The file size is larger than the maximum configured size (50MB)"),
-            @ApiResponse(responseCode = "415", description = "Unsupported Media Type (only 'text/plain')")})
-    @PostMapping(value = "/form", produces = "application/json", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+            @ApiResponse(responseCode = "415", description = "Unsupported Media Type (only plain text or the binary expression matrix, optionally gzip, zip or zstd compressed)"),
+            @ApiResponse(responseCode = "503", description = "The analysis queue is full or the analysis did not finish in time. Please try again later")})
+    @PostMapping(value = "/form", produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE}, consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @ResponseBody
-    public AnalysisResult getPostFile(@Parameter(name = "file", required = true, description = "A file with the data to be analysed")
+    public AnalysisResult getPostFile(@Parameter(name = "file", required = true, description = "A file with the data to be analysed: plain text or a binary expression matrix (little-endian float32 columns with an identifiers dictionary), optionally compressed")
                                       @RequestPart MultipartFile file,
                                       @Parameter(name = "interactors", description = "Include interactors", example = "false")
                                       @RequestParam(required = false, defaultValue = "false") Boolean interactors,
@@ -214,11 +226,12 @@ public class IdentifiersController {
     @ApiResponses({
             @ApiResponse(responseCode = "400", description = "Bad request"),
             @ApiResponse(responseCode = "413", description = "The file size is larger than the maximum configured size (50MB)"),
-            @ApiResponse(responseCode = "415", description = "Unsupported Media Type (only 'text/plain')"),
-            @ApiResponse(responseCode = "422", description = "The provided URL is not processable")})
-    @RequestMapping(value = "/url/projection", method = RequestMethod.POST, consumes = "text/plain", produces = "application/json")
+            @ApiResponse(responseCode = "415", description = "Unsupported Media Type (only plain text or the binary expression matrix, optionally gzip, zip or zstd compressed)"),
+            @ApiResponse(responseCode = "422", description = "The provided URL is not processable"),
+            @ApiResponse(responseCode = "503", description = "Too many requests in progress. Please try again later")})
+    @RequestMapping(value = "/url/projection", method = RequestMethod.POST, consumes = "text/plain", produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE})
     @ResponseBody
-    public AnalysisResult getPostURLToHuman(
+    public CompletableFuture<AnalysisResult> getPostURLToHuman(
             @io.swagger.v3.oas.annotations.parameters.RequestBody(
                     description = "<b>url</b> A URL pointing to the data to be analysed",
                     required = true
@@ -247,11 +260,9 @@ public class IdentifiersController {
             @Parameter(name = "importableOnly", description = "Filters resources to only includes importable ones")
             @RequestParam(required = false, defaultValue = "false") Boolean importableOnly,
             HttpServletRequest request) {
-        UserData ud = controller.getUserDataFromURL(url);
-        String fileName = controller.getFileNameFromURL(url);
-        return controller.analyse(ud, request, true, interactors, fileName, includeDisease)
-                .filterPathways(resource, pValue, includeDisease, min, max, importableOnly)
-                .getResultSummary(sortBy, order, resource, pageSize, page, importableOnly);
+        return controller.analyseURL(url, request, true, interactors, includeDisease)
+                .thenApply(asr -> asr.filterPathways(resource, pValue, includeDisease, min, max, importableOnly)
+                        .getResultSummary(sortBy, order, resource, pageSize, page, importableOnly));
     }
 
     @Operation(summary = "Analyse the identifiers contained in the provided url over the different species",
@@ -261,11 +272,12 @@ public class IdentifiersController {
     @ApiResponses({
             @ApiResponse(responseCode = "400", description = "Bad request"),
             @ApiResponse(responseCode = "413", description = "The file size is larger than the maximum configured size (50MB)"),
-            @ApiResponse(responseCode = "415", description = "Unsupported Media Type (only 'text/plain')"),
-            @ApiResponse(responseCode = "422", description = "The provided URL is not processable")})
-    @RequestMapping(value = "/url", method = RequestMethod.POST, consumes = "text/plain", produces = "application/json")
+            @ApiResponse(responseCode = "415", description = "Unsupported Media Type (only plain text or the binary expression matrix, optionally gzip, zip or zstd compressed)"),
+            @ApiResponse(responseCode = "422", description = "The provided URL is not processable"),
+            @ApiResponse(responseCode = "503", description = "Too many requests in progress. Please try again later")})
+    @RequestMapping(value = "/url", method = RequestMethod.POST, consumes = "text/plain", produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE})
     @ResponseBody
-    public AnalysisResult getPostURL(
+    public CompletableFuture<AnalysisResult> getPostURL(
             @io.swagger.v3.oas.annotations.parameters.RequestBody(
                     description = "<b>url</b> A URL pointing to the data to be analysed",
                     required = true
@@ -296,12 +308,184 @@ public class IdentifiersController {
             @Parameter(name = "importableOnly", description = "Filters resources to only includes importable ones")
             @RequestParam(required = false, defaultValue = "false") Boolean importableOnly,
             HttpServletRequest request) {
-        UserData ud = controller.getUserDataFromURL(url);
-        String fileName = controller.getFileNameFromURL(url);
         List<Species> speciesList = controller.getSpeciesList(species);
-        return controller.analyse(ud, request, false, interactors, fileName, includeDisease)
-                .filterPathways(speciesList, resource, pValue, includeDisease, min, max, importableOnly)
-                .getResultSummary(sortBy, order, resource, pageSize, page, importableOnly);
+        return controller.analyseURL(url, request, false, interactors, includeDisease)
+                .thenApply(asr -> asr.filterPathways(speciesList, resource, pValue, includeDisease, min, max, importableOnly)
+                        .getResultSummary(sortBy, order, resource, pageSize, page, importableOnly));
+    }
+
+    @Operation(summary = "Queues the analysis of the post identifiers over the different species projecting the result to Homo Sapiens",
+            description = "The analysis runs in the background and the token is returned straight away. Poll /token/{token}/status " +
+                    "until the status is DONE and then retrieve the result with /token/{token}")
+    @ApiResponses({
+            @ApiResponse(responseCode = "400", description = "Bad request"),
+            @ApiResponse(responseCode = "503", description = "The analysis queue is full. Please try again later")})
+    @RequestMapping(value = "/async/projection", method = RequestMethod.POST, consumes = "text/plain", produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE})
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    @ResponseBody
+    public AnalysisJob getPostTextToHumanAsync(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "<b>input</b> Identifiers to analyse followed by their expression (when applies)",
+                    required = true
+            )
+            @RequestBody String input,
+            @Parameter(name = "interactors", description = "Include interactors", example = "false")
+            @RequestParam(required = false, defaultValue = "false") Boolean interactors,
+            @Parameter(name = "includeDisease", description = "set to 'false' to exclude the disease pathways from the result (it does not alter the statistics)", example = "true")
+            @RequestParam(required = false, defaultValue = "true") Boolean includeDisease,
+            HttpServletRequest request) {
+        UserData ud = controller.getUserData(input);
+        return controller.analyseAsync(ud, request, true, interactors, null, includeDisease);
+    }
+
+    @Operation(summary = "Queues the analysis of the post identifiers over the different species",
+            description = "The analysis runs in the background and the token is returned straight away. Poll /token/{token}/status " +
+                    "until the status is DONE and then retrieve the result with /token/{token}")
+    @ApiResponses({
+            @ApiResponse(responseCode = "400", description = "Bad request"),
+            @ApiResponse(responseCode = "503", description = "The analysis queue is full. Please try again later")})
+    @RequestMapping(value = "/async", method = RequestMethod.POST, consumes = "text/plain", produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE})
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    @ResponseBody
+    public AnalysisJob getPostTextAsync(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "<b>input</b> Identifiers to analyse followed by their expression (when applies)",
+                    required = true
+            )
+            @RequestBody String input,
+            @Parameter(name = "interactors", description = "Include interactors", example = "false")
+            @RequestParam(required = false, defaultValue = "false") Boolean interactors,
+            @Parameter(name = "includeDisease", description = "set to 'false' to exclude the disease pathways from the result (it does not alter the statistics)", example = "true")
+            @RequestParam(required = false, defaultValue = "true") Boolean includeDisease,
+            HttpServletRequest request) {
+        UserData ud = controller.getUserData(input);
+        return controller.analyseAsync(ud, request, false, interactors, null, includeDisease);
+    }
+
+    @Operation(summary = "Queues the analysis of the identifiers in the file over the different species projecting the result to Homo Sapiens",
+            description = "The analysis runs in the background and the token is returned straight away. Poll /token/{token}/status " +
+                    "until the status is DONE and then retrieve the result with /token/{token}")
+    @ApiResponses({
+            @ApiResponse(responseCode = "400", description = "Bad request"),
+            @ApiResponse(responseCode = "413", description = "The file size is larger than the maximum configured size (50MB)"),
+            @ApiResponse(responseCode = "415", description = "Unsupported Media Type (only plain text or the binary expression matrix, optionally gzip, zip or zstd compressed)"),
+            @ApiResponse(responseCode = "503", description = "The analysis queue is full. Please try again later")})
+    @PostMapping(value = "/form/async/projection", produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE}, consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    @ResponseBody
+    public AnalysisJob getPostFileToHumanAsync(@Parameter(name = "file", required = true, description = "A file with the data to be analysed: plain text or a binary expression matrix (little-endian float32 columns with an identifiers dictionary), optionally compressed")
+                                               @RequestPart MultipartFile file,
+                                               @Parameter(name = "interactors", description = "Include interactors", example = "false")
+                                               @RequestParam(required = false, defaultValue = "false") Boolean interactors,
+                                               @Parameter(name = "includeDisease", description = "set to 'false' to exclude the disease pathways from the result (it does not alter the statistics)", example = "true")
+                                               @RequestParam(required = false, defaultValue = "true") Boolean includeDisease,
+                                               HttpServletRequest request) {
+        UserData ud = controller.getUserData(file);
+        return controller.analyseAsync(ud, request, true, interactors, file.getOriginalFilename(), includeDisease);
+    }
+
+    @Operation(summary = "Queues the analysis of the identifiers in the file over the different species",
+            description = "The analysis runs in the background and the token is returned straight away. Poll /token/{token}/status " +
+                    "until the status is DONE and then retrieve the result with /token/{token}")
+    @ApiResponses({
+            @ApiResponse(responseCode = "400", description = "Bad request"),
+            @ApiResponse(responseCode = "413", description = "The file size is larger than the maximum configured size (50MB)"),
+            @ApiResponse(responseCode = "415", description = "Unsupported Media Type (only plain text or the binary expression matrix, optionally gzip, zip or zstd compressed)"),
+            @ApiResponse(responseCode = "503", description = "The analysis queue is full. Please try again later")})
+    @PostMapping(value = "/form/async", produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE}, consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    @ResponseBody
+    public AnalysisJob getPostFileAsync(@Parameter(name = "file", required = true, description = "A file with the data to be analysed: plain text or a binary expression matrix (little-endian float32 columns with an identifiers dictionary), optionally compressed")
+                                        @RequestPart MultipartFile file,
+                                        @Parameter(name = "interactors", description = "Include interactors", example = "false")
+                                        @RequestParam(required = false, defaultValue = "false") Boolean interactors,
+                                        @Parameter(name = "includeDisease", description = "set to 'false' to exclude the disease pathways from the result (it does not alter the statistics)", example = "true")
+                                        @RequestParam(required = false, defaultValue = "true") Boolean includeDisease,
+                                        HttpServletRequest request) {
+        UserData ud = controller.getUserData(file);
+        return controller.analyseAsync(ud, request, false, interactors, file.getOriginalFilename(), includeDisease);
+    }
+
+    @Operation(summary = "Analyses several samples over the different species projecting the results to Homo Sapiens",
+            description = "The samples are sent as a JSON array of objects containing the name and the data of each sample. " +
+                    "The samples are analysed in parallel and, for each of them, the summary (including the token) or the " +
+                    "error is returned")
+    @ApiResponses({
+            @ApiResponse(responseCode = "400", description = "Bad request")})
+    @RequestMapping(value = "/batch/projection", method = RequestMethod.POST, consumes = "application/json", produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE})
+    @ResponseBody
+    public List<AnalysisSampleResult> getPostBatchToHuman(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "<b>samples</b> List of samples, each one with its <b>name</b> and <b>data</b> (identifiers to analyse followed by their expression when applies)",
+                    required = true
+            )
+            @RequestBody List<AnalysisSample> samples,
+            @Parameter(name = "interactors", description = "Include interactors", example = "false")
+            @RequestParam(required = false, defaultValue = "false") Boolean interactors,
+            @Parameter(name = "includeDisease", description = "set to 'false' to exclude the disease pathways from the result (it does not alter the statistics)", example = "true")
+            @RequestParam(required = false, defaultValue = "true") Boolean includeDisease,
+            HttpServletRequest request) {
+        return controller.analyse(samples, request, true, interactors, includeDisease);
+    }
+
+    @Operation(summary = "Analyses several samples over the different species",
+            description = "The samples are sent as a JSON array of objects containing the name and the data of each sample. " +
+                    "The samples are analysed in parallel and, for each of them, the summary (including the token) or the " +
+                    "error is returned")
+    @ApiResponses({
+            @ApiResponse(responseCode = "400", description = "Bad request")})
+    @RequestMapping(value = "/batch", method = RequestMethod.POST, consumes = "application/json", produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE})
+    @ResponseBody
+    public List<AnalysisSampleResult> getPostBatch(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "<b>samples</b> List of samples, each one with its <b>name</b> and <b>data</b> (identifiers to analyse followed by their expression when applies)",
+                    required = true
+            )
+            @RequestBody List<AnalysisSample> samples,
+            @Parameter(name = "interactors", description = "Include interactors", example = "false")
+            @RequestParam(required = false, defaultValue = "false") Boolean interactors,
+            @Parameter(name = "includeDisease", description = "set to 'false' to exclude the disease pathways from the result (it does not alter the statistics)", example = "true")
+            @RequestParam(required = false, defaultValue = "true") Boolean includeDisease,
+            HttpServletRequest request) {
+        return controller.analyse(samples, request, false, interactors, includeDisease);
+    }
+
+    @Operation(summary = "Analyses the samples in the files over the different species projecting the results to Homo Sapiens",
+            description = "Each file is a sample (named after the file). The samples are analysed in parallel and, for each " +
+                    "of them, the summary (including the token) or the error is returned")
+    @ApiResponses({
+            @ApiResponse(responseCode = "400", description = "Bad request"),
+            @ApiResponse(responseCode = "413", description = "The file size is larger than the maximum configured size (50MB)"),
+            @ApiResponse(responseCode = "415", description = "Unsupported Media Type (only plain text, optionally gzip, zip or zstd compressed)")})
+    @PostMapping(value = "/form/batch/projection", produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE}, consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @ResponseBody
+    public List<AnalysisSampleResult> getPostFilesToHuman(@Parameter(name = "file", required = true, description = "The files with the samples to be analysed")
+                                                          @RequestPart("file") MultipartFile[] files,
+                                                          @Parameter(name = "interactors", description = "Include interactors", example = "false")
+                                                          @RequestParam(required = false, defaultValue = "false") Boolean interactors,
+                                                          @Parameter(name = "includeDisease", description = "set to 'false' to exclude the disease pathways from the result (it does not alter the statistics)", example = "true")
+                                                          @RequestParam(required = false, defaultValue = "true") Boolean includeDisease,
+                                                          HttpServletRequest request) {
+        return controller.analyse(controller.getSamples(files), request, true, interactors, includeDisease);
+    }
+
+    @Operation(summary = "Analyses the samples in the files over the different species",
+            description = "Each file is a sample (named after the file). The samples are analysed in parallel and, for each " +
+                    "of them, the summary (including the token) or the error is returned")
+    @ApiResponses({
+            @ApiResponse(responseCode = "400", description = "Bad request"),
+            @ApiResponse(responseCode = "413", description = "The file size is larger than the maximum configured size (50MB)"),
+            @ApiResponse(responseCode = "415", description = "Unsupported Media Type (only plain text, optionally gzip, zip or zstd compressed)")})
+    @PostMapping(value = "/form/batch", produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE}, consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @ResponseBody
+    public List<AnalysisSampleResult> getPostFiles(@Parameter(name = "file", required = true, description = "The files with the samples to be analysed")
+                                                   @RequestPart("file") MultipartFile[] files,
+                                                   @Parameter(name = "interactors", description = "Include interactors", example = "false")
+                                                   @RequestParam(required = false, defaultValue = "false") Boolean interactors,
+                                                   @Parameter(name = "includeDisease", description = "set to 'false' to exclude the disease pathways from the result (it does not alter the statistics)", example = "true")
+                                                   @RequestParam(required = false, defaultValue = "true") Boolean includeDisease,
+                                                   HttpServletRequest request) {
+        return controller.analyse(controller.getSamples(files), request, false, interactors, includeDisease);
     }
 
     @Autowired
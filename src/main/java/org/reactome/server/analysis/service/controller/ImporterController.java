@@ -15,6 +15,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.servlet.http.HttpServletRequest;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author Antonio Fabregat <fabregat@ebi.ac.uk>
@@ -31,7 +32,7 @@ public class ImporterController {
             description = "The accepted format is the same as provided by the method <a href='#/download/downloadResultJSONUsingGET'>/#/download/{token}/result.json</a>.")
     @ApiResponses({
             @ApiResponse(responseCode = "400", description = "Bad request. See more details in the response body"),
-            @ApiResponse(responseCode = "415", description = "Unsupported Media Type (only 'text/plain' or 'application/json')")})
+            @ApiResponse(responseCode = "415", description = "Unsupported Media Type (only json, optionally gzip or zip compressed)")})
     @RequestMapping(value = "/", method = RequestMethod.POST,
             consumes = {MediaType.TEXT_PLAIN_VALUE, MediaType.APPLICATION_JSON_VALUE, "application/gzip", "application/zip"},
             produces = MediaType.APPLICATION_JSON_VALUE)
@@ -54,7 +55,7 @@ public class ImporterController {
     @ApiResponses({
             @ApiResponse(responseCode = "400", description = "Bad request. See more details in the response body"),
             @ApiResponse(responseCode = "413", description = "The file size is larger than the maximum configured size (50MB)"),
-            @ApiResponse(responseCode = "415", description = "Unsupported Media Type (only 'text/plain' or 'application/json')")})
+            @ApiResponse(responseCode = "415", description = "Unsupported Media Type (only json, optionally gzip or zip compressed)")})
     @PostMapping(value = "/form", produces = "application/json", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @ResponseBody
     public AnalysisSummary getPostFile(@Parameter(name = "file", required = true, description = "A file with the data to be analysed")
@@ -70,19 +71,19 @@ public class ImporterController {
     @ApiResponses({
             @ApiResponse(responseCode = "400", description = "Bad request. See more details in the response body"),
             @ApiResponse(responseCode = "413", description = "The file size is larger than the maximum configured size (50MB)"),
-            @ApiResponse(responseCode = "415", description = "Unsupported Media Type (only 'text/plain')"),
-            @ApiResponse(responseCode = "422", description = "The provided URL is not processable")})
+            @ApiResponse(responseCode = "415", description = "Unsupported Media Type (only json, optionally gzip or zip compressed)"),
+            @ApiResponse(responseCode = "422", description = "The provided URL is not processable"),
+            @ApiResponse(responseCode = "503", description = "Too many requests in progress. Please try again later")})
     @RequestMapping(value = "/url", method = RequestMethod.POST, consumes = "text/plain", produces = "application/json")
     @ResponseBody
-    public AnalysisSummary getPostURL(
+    public CompletableFuture<AnalysisSummary> getPostURL(
             @io.swagger.v3.oas.annotations.parameters.RequestBody(
                     description = "<b>url</b> A URL pointing to the data to be analysed",
                     required = true
             )
             @RequestBody String url,
             HttpServletRequest request) {
-        AnalysisStoredResult asr = controller.getAnalysisResultFromURL(url, request);
-        return asr.getSummary();
+        return controller.getAnalysisResultFromURL(url, request).thenApply(AnalysisStoredResult::getSummary);
     }
 
     @Autowired
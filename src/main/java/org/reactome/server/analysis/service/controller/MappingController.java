@@ -15,6 +15,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author Antonio Fabregat <fabregat@ebi.ac.uk>
@@ -69,7 +70,7 @@ public class MappingController {
     @ApiResponses({
             @ApiResponse(responseCode = "400", description = "Bad request"),
             @ApiResponse(responseCode = "413", description = "The file size is larger than the maximum configured size (50MB)"),
-            @ApiResponse(responseCode = "415", description = "Unsupported Media Type (only 'text/plain')")})
+            @ApiResponse(responseCode = "415", description = "Unsupported Media Type (only plain text or the binary expression matrix, optionally gzip, zip or zstd compressed)")})
     @PostMapping(value = "/form/projection", produces = "application/json", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @ResponseBody
     public List<MappedEntity> getMappingPostFileToHuman(@Parameter(name = "file", required = true, description = "A file with the data to be mapped")
@@ -86,7 +87,7 @@ public class MappingController {
     @ApiResponses({
             @ApiResponse(responseCode = "400", description = "Bad request"),
             @ApiResponse(responseCode = "413", description = "The file size is larger than the maximum configured size (50MB)"),
-            @ApiResponse(responseCode = "415", description = "Unsupported Media Type (only 'text/plain')")})
+            @ApiResponse(responseCode = "415", description = "Unsupported Media Type (only plain text or the binary expression matrix, optionally gzip, zip or zstd compressed)")})
     @PostMapping(value = "/form", produces = "application/json", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @ResponseBody
     public List<MappedEntity> getMappingPostFile(@Parameter(name = "file", required = true, description = "A file with the data to be mapped")
@@ -104,11 +105,12 @@ public class MappingController {
     @ApiResponses({
             @ApiResponse(responseCode = "400", description = "Bad request"),
             @ApiResponse(responseCode = "413", description = "The file size is larger than the maximum configured size (50MB)"),
-            @ApiResponse(responseCode = "415", description = "Unsupported Media Type (only 'text/plain')"),
-            @ApiResponse(responseCode = "422", description = "The provided URL is not processable")})
+            @ApiResponse(responseCode = "415", description = "Unsupported Media Type (only plain text or the binary expression matrix, optionally gzip, zip or zstd compressed)"),
+            @ApiResponse(responseCode = "422", description = "The provided URL is not processable"),
+            @ApiResponse(responseCode = "503", description = "Too many requests in progress. Please try again later")})
     @RequestMapping(value = "/url/projection", method = RequestMethod.POST, consumes = "text/plain", produces = "application/json")
     @ResponseBody
-    public List<MappedEntity> getMappingPostURLToHuman(
+    public CompletableFuture<List<MappedEntity>> getMappingPostURLToHuman(
             @io.swagger.v3.oas.annotations.parameters.RequestBody(
                     description = "<b>url</b> A URL pointing to the data to be analysed",
                     required = true
@@ -118,19 +120,20 @@ public class MappingController {
             @RequestParam(required = false, defaultValue = "false") Boolean interactors,
             @Parameter(name = "importableOnly", description = "Only include resources which can be later imported", example = "false")
             @RequestParam(required = false, defaultValue = "false") Boolean importableOnly) {
-        UserData ud = controller.getUserDataFromURL(url);
-        return controller.getMapping(ud, true, interactors, importableOnly);
+        return controller.getUserDataFromURL(url)
+                .thenApply(ud -> controller.getMapping(ud, true, interactors, importableOnly));
     }
 
     @Operation(summary = "Maps the identifiers contained in the provided url over the different species")
     @ApiResponses({
             @ApiResponse(responseCode = "400", description = "Bad request"),
             @ApiResponse(responseCode = "413", description = "The file size is larger than the maximum configured size (50MB)"),
-            @ApiResponse(responseCode = "415", description = "Unsupported Media Type (only 'text/plain')"),
-            @ApiResponse(responseCode = "422", description = "The provided URL is not processable")})
+            @ApiResponse(responseCode = "415", description = "Unsupported Media Type (only plain text or the binary expression matrix, optionally gzip, zip or zstd compressed)"),
+            @ApiResponse(responseCode = "422", description = "The provided URL is not processable"),
+            @ApiResponse(responseCode = "503", description = "Too many requests in progress. Please try again later")})
     @RequestMapping(value = "/url", method = RequestMethod.POST, consumes = "text/plain", produces = "application/json")
     @ResponseBody
-    public List<MappedEntity> getMappingPostURL(@Parameter(name = "url", required = true, description = "A URL pointing to the data to be mapped")
+    public CompletableFuture<List<MappedEntity>> getMappingPostURL(@Parameter(name = "url", required = true, description = "A URL pointing to the data to be mapped")
                                                 @io.swagger.v3.oas.annotations.parameters.RequestBody(
                                                         description = "<b>url</b> A URL pointing to the data to be mapped",
                                                         required = true
@@ -140,8 +143,8 @@ public class MappingController {
                                                 @RequestParam(required = false, defaultValue = "false") Boolean interactors,
                                                 @Parameter(name = "importableOnly", description = "Only include resources which can be later imported", example = "false")
                                                 @RequestParam(required = false, defaultValue = "false") Boolean importableOnly) {
-        UserData ud = controller.getUserDataFromURL(url);
-        return controller.getMapping(ud, false, interactors, importableOnly);
+        return controller.getUserDataFromURL(url)
+                .thenApply(ud -> controller.getMapping(ud, false, interactors, importableOnly));
     }
 
     @Autowired
@@ -0,0 +1,72 @@
+package org.reactome.server.analysis.service.controller;
+
+import io.swagger.v3.oas.annotations.Hidden;
+import org.reactome.server.analysis.service.helper.AnalysisJobManager;
+import org.reactome.server.analysis.service.helper.AnalysisResultCache;
+import org.reactome.server.analysis.service.helper.AnalysisViewCache;
+import org.reactome.server.analysis.service.helper.IdentifierMappingCache;
+import org.reactome.server.analysis.service.model.AnalysisJobStatistics;
+import org.reactome.server.analysis.service.model.CacheStatistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+/**
+ * Internal figures to keep an eye on the service load
+ */
+@Hidden
+@Controller
+@RequestMapping(value = "/monitor")
+public class MonitorController {
+
+    private AnalysisJobManager analysisJobManager;
+    private AnalysisResultCache analysisResultCache;
+    private AnalysisViewCache analysisViewCache;
+    private IdentifierMappingCache identifierMappingCache;
+
+    @RequestMapping(value = "/jobs", method = RequestMethod.GET, produces = "application/json")
+    @ResponseBody
+    public AnalysisJobStatistics getJobStatistics() {
+        return analysisJobManager.getStatistics();
+    }
+
+    @RequestMapping(value = "/cache", method = RequestMethod.GET, produces = "application/json")
+    @ResponseBody
+    public CacheStatistics getCacheStatistics() {
+        return analysisResultCache.getStatistics();
+    }
+
+    @RequestMapping(value = "/views", method = RequestMethod.GET, produces = "application/json")
+    @ResponseBody
+    public CacheStatistics getViewCacheStatistics() {
+        return analysisViewCache.getStatistics();
+    }
+
+    @RequestMapping(value = "/mappings", method = RequestMethod.GET, produces = "application/json")
+    @ResponseBody
+    public CacheStatistics getMappingCacheStatistics() {
+        return identifierMappingCache.getStatistics();
+    }
+
+    @Autowired
+    public void setAnalysisJobManager(AnalysisJobManager analysisJobManager) {
+        this.analysisJobManager = analysisJobManager;
+    }
+
+    @Autowired
+    public void setAnalysisResultCache(AnalysisResultCache analysisResultCache) {
+        this.analysisResultCache = analysisResultCache;
+    }
+
+    @Autowired
+    public void setAnalysisViewCache(AnalysisViewCache analysisViewCache) {
+        this.analysisViewCache = analysisViewCache;
+    }
+
+    @Autowired
+    public void setIdentifierMappingCache(IdentifierMappingCache identifierMappingCache) {
+        this.identifierMappingCache = identifierMappingCache;
+    }
+}
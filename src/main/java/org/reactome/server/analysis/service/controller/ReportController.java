@@ -21,8 +21,8 @@ import org.apache.http.impl.client.HttpClients;
 import org.apache.http.message.BasicNameValuePair;
 import org.reactome.server.analysis.core.result.AnalysisStoredResult;
 import org.reactome.server.analysis.core.result.exception.ResourceNotFoundException;
-import org.reactome.server.analysis.core.result.utils.TokenUtils;
 import org.reactome.server.analysis.core.util.FormatUtils;
+import org.reactome.server.analysis.service.helper.AnalysisResultCache;
 import org.reactome.server.graph.domain.model.Species;
 import org.reactome.server.graph.service.SpeciesService;
 import org.reactome.server.graph.utils.ReactomeGraphCore;
@@ -65,7 +65,7 @@ public class ReportController {
     private static final Logger logger = LoggerFactory.getLogger("analysisReport");
 
     private AnalysisReport analysisReport;
-    private TokenUtils token;
+    private AnalysisResultCache token;
 
     @Operation(summary = "Downloads a report for a given pathway analysis result",
             description = "This method provides a report for a given pathway analysis result in a PDF document. " +
@@ -146,7 +146,7 @@ public class ReportController {
     }
 
     @Autowired
-    public void setToken(TokenUtils token) {
+    public void setToken(AnalysisResultCache token) {
         this.token = token;
     }
 
@@ -9,6 +9,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import org.reactome.server.analysis.core.model.SpeciesNodeFactory;
 import org.reactome.server.analysis.core.result.model.AnalysisResult;
 import org.reactome.server.analysis.service.helper.AnalysisHelper;
+import org.reactome.server.analysis.service.helper.JsonStreamHelper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
@@ -28,7 +29,7 @@ public class SpeciesController {
                     "preferred option. The resource field will filter the results to show only those corresponding to the preferred " +
                     "molecule type (TOTAL includes all the different molecules type)")
     @ApiResponses({@ApiResponse(responseCode = "404", description = "Species identifier does not match with any of the species in the current data")})
-    @RequestMapping(value = "/homoSapiens/{species}", method = RequestMethod.GET, produces = "application/json")
+    @RequestMapping(value = "/homoSapiens/{species}", method = RequestMethod.GET, produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE})
     @ResponseBody
     public AnalysisResult compareHomoSapiensTo(@Parameter(name = "species", required = true, description = "The dbId of the species to compare to")
                                                @PathVariable Long species,
@@ -3,6 +3,8 @@ package org.reactome.server.analysis.service.controller;
 import io.swagger.v3.oas.annotations.Hidden;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -10,13 +12,31 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import org.reactome.server.analysis.core.result.AnalysisStoredResult;
 import org.reactome.server.analysis.core.result.exception.ResourceNotFoundException;
 import org.reactome.server.analysis.core.result.model.*;
-import org.reactome.server.analysis.core.result.utils.TokenUtils;
+import org.reactome.server.analysis.service.helper.AnalysisFilter;
 import org.reactome.server.analysis.service.helper.AnalysisHelper;
+import org.reactome.server.analysis.service.helper.AnalysisResultCache;
+import org.reactome.server.analysis.service.helper.AnalysisView;
+import org.reactome.server.analysis.service.helper.AnalysisViewCache;
+import org.reactome.server.analysis.service.helper.FieldSelection;
+import org.reactome.server.analysis.service.helper.JsonStreamHelper;
+import org.reactome.server.analysis.service.helper.PathwayBatchHelper;
+import org.reactome.server.analysis.service.helper.PathwayCursor;
+import org.reactome.server.analysis.service.helper.SizeHistogramStore;
+import org.reactome.server.analysis.service.helper.TokenComparisonHelper;
+import org.reactome.server.analysis.service.model.AnalysisJob;
+import org.reactome.server.analysis.service.model.PathwayPage;
+import org.reactome.server.analysis.service.model.TokenComparison;
 import org.reactome.server.graph.domain.model.Species;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -28,8 +48,13 @@ import java.util.Set;
 @RequestMapping(value = "/token")
 public class TokenController {
 
-    private TokenUtils token;
+    private AnalysisResultCache token;
     private AnalysisHelper analysis;
+    private AnalysisViewCache views;
+    private JsonStreamHelper jsonStreamHelper;
+    private PathwayBatchHelper pathwayBatchHelper;
+    private SizeHistogramStore sizeHistogramStore;
+    private TokenComparisonHelper tokenComparisonHelper;
 
     @Operation(summary = "Returns the result associated with the token",
             description = "Use page and pageSize to reduce the amount of data retrieved. Use sortBy and order to sort the result by your " +
@@ -38,7 +63,7 @@ public class TokenController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "404", description = "No result corresponding to the token was found"),
             @ApiResponse(responseCode = "410", description = "Result deleted due to a new data release")})
-    @RequestMapping(value = "/{token}", method = RequestMethod.GET, produces = "application/json")
+    @RequestMapping(value = "/{token}", method = RequestMethod.GET, produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE})
     @ResponseBody
     public AnalysisResult getToken(@Parameter(name = "token", required = true, description = "The token associated with the data to query")
                                    @PathVariable String token,
@@ -64,14 +89,102 @@ public class TokenController {
                                    @RequestParam(required = false) Integer max,
                                    @Parameter(name = "importableOnly", description = "Filters resources to only includes importable ones")
                                    @RequestParam(required = false, defaultValue = "false") Boolean importableOnly) {
-        List<Species> speciesList = analysis.getSpeciesList(species);
+        AnalysisFilter filter = new AnalysisFilter(analysis.getSpeciesList(species), resource, pValue, includeDisease, min, max, importableOnly);
         AnalysisStoredResult asr = this.token.getFromToken(token);
 
-        if (includeDisease != null) asr.getSummary().setIncludeDisease(includeDisease);
-        else includeDisease = asr.getSummary().isIncludeDisease();
+        return views.getView(asr, filter, sortBy, order)
+                .getResultSummary(resource, pageSize, page, importableOnly);
+    }
+
+    @Operation(summary = "Returns the hit pathways of the result associated with the token in chunks, using a cursor",
+            description = "Send an empty cursor to get the first chunk and then the cursor provided with every chunk to get the " +
+                    "following one, until no cursor is provided. The cursor locates the following chunk straight away, so it is the " +
+                    "preferred way of going through big results. The filters must be the same for all the requests and the cursor " +
+                    "only works with the sortBy, order and resource it was created with")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "400", description = "The cursor is not valid for the given parameters"),
+            @ApiResponse(responseCode = "404", description = "No result corresponding to the token was found"),
+            @ApiResponse(responseCode = "410", description = "Result deleted due to a new data release")})
+    @RequestMapping(value = "/{token}", method = RequestMethod.GET, params = "cursor", produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE})
+    @ResponseBody
+    public PathwayPage getTokenCursor(@Parameter(name = "token", required = true, description = "The token associated with the data to query")
+                                      @PathVariable String token,
+                                      @Parameter(name = "cursor", required = true, description = "empty for the first chunk or the cursor provided with the previous one")
+                                      @RequestParam String cursor,
+                                      @Parameter(name = "species", description = "list of species to filter the result (accepts taxonomy ids, species names and dbId)")
+                                      @RequestParam(required = false) String species,
+                                      @Parameter(name = "pageSize", description = "pathways per chunk", example = "20")
+                                      @RequestParam(required = false, defaultValue = "20") Integer pageSize,
+                                      @Parameter(name = "sortBy", schema = @Schema(description = "how to sort the result", example = "ENTITIES_PVALUE", allowableValues = {"NAME", "TOTAL_ENTITIES", "TOTAL_INTERACTORS", "TOTAL_REACTIONS", "FOUND_ENTITIES", "FOUND_INTERACTORS", "FOUND_REACTIONS", "ENTITIES_RATIO", "ENTITIES_PVALUE", "ENTITIES_FDR", "REACTIONS_RATIO"}))
+                                      @RequestParam(required = false) String sortBy,
+                                      @Parameter(name = "order", schema = @Schema(description = "specifies the order", example = "ASC", allowableValues = {"ASC", "DESC"}))
+                                      @RequestParam(required = false) String order,
+                                      @Parameter(name = "resource", schema = @Schema(description = "the resource to sort", example = "TOTAL", allowableValues = {"TOTAL", "UNIPROT", "ENSEMBL", "CHEBI", "IUPHAR", "MIRBASE", "NCBI_PROTEIN", "EMBL", "COMPOUND", "PUBCHEM_COMPOUND"}))
+                                      @RequestParam(required = false, defaultValue = "TOTAL") String resource,
+                                      @Parameter(name = "pValue", description = "defines the pValue threshold. Only hit pathway with pValue equals or below the threshold will be returned", example = "1")
+                                      @RequestParam(required = false, defaultValue = "1") Double pValue,
+                                      @Parameter(name = "includeDisease", description = "set to 'false' to exclude the disease pathways from the result (it does not alter the statistics)")
+                                      @RequestParam(required = false) Boolean includeDisease,
+                                      @Parameter(name = "min", description = "minimum number of contained entities per pathway (takes into account the resource)")
+                                      @RequestParam(required = false) Integer min,
+                                      @Parameter(name = "max", description = "maximum number of contained entities per pathway (takes into account the resource)")
+                                      @RequestParam(required = false) Integer max,
+                                      @Parameter(name = "importableOnly", description = "Filters resources to only includes importable ones")
+                                      @RequestParam(required = false, defaultValue = "false") Boolean importableOnly) {
+        PathwayCursor current = PathwayCursor.parse(cursor, sortBy, order, resource);
+        AnalysisFilter filter = new AnalysisFilter(analysis.getSpeciesList(species), resource, pValue, includeDisease, min, max, importableOnly);
+        AnalysisStoredResult asr = this.token.getFromToken(token);
+
+        AnalysisView view = views.getView(asr, filter, sortBy, order);
+        List<PathwaySummary> pathways = view.getPathwaysAfter(current.getPathway(), pageSize, resource, importableOnly);
+        String next = null;
+        if (!pathways.isEmpty()) {
+            String last = pathways.get(pathways.size() - 1).getStId();
+            if (view.hasPathwaysAfter(last)) next = current.next(last).toString();
+        }
+        return new PathwayPage(view.size(), pathways, next);
+    }
+
+    /**
+     * When no pageSize is specified the whole result is returned. In that case the pathways are retrieved and
+     * written to the response in chunks, so big results are not held in memory at once.
+     * <p>
+     * When newline delimited json is requested, only the pathways are written (one per line) as they are retrieved
+     * from the view, following its order without paging. The field selection uses the same paths in both cases
+     * (i.e. "pathways.stId"), so it is applied to every line relative to "pathways".
+     */
+    @Hidden
+    @RequestMapping(value = "/{token}", method = RequestMethod.GET, params = {"!pageSize", "!cursor"}, produces = {"application/json", JsonStreamHelper.NDJSON, JsonStreamHelper.CBOR, JsonStreamHelper.SMILE})
+    public void getTokenStream(@PathVariable String token,
+                               @RequestParam(required = false) String species,
+                               @RequestParam(required = false) String sortBy,
+                               @RequestParam(required = false) String order,
+                               @RequestParam(required = false, defaultValue = "TOTAL") String resource,
+                               @RequestParam(required = false, defaultValue = "1") Double pValue,
+                               @RequestParam(required = false) Boolean includeDisease,
+                               @RequestParam(required = false) Integer min,
+                               @RequestParam(required = false) Integer max,
+                               @RequestParam(required = false, defaultValue = "false") Boolean importableOnly,
+                               @RequestParam(required = false) String fields,
+                               @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                               HttpServletResponse response) throws IOException {
+        AnalysisFilter filter = new AnalysisFilter(analysis.getSpeciesList(species), resource, pValue, includeDisease, min, max, importableOnly);
+        AnalysisStoredResult asr = this.token.getFromToken(token);
 
-        return asr.filterPathways(speciesList, resource, pValue, includeDisease, min, max, importableOnly)
-                .getResultSummary(sortBy, order, resource, pageSize, page, importableOnly);
+        FieldSelection selection = FieldSelection.parse(fields);
+        AnalysisView view = views.getView(asr, filter, sortBy, order);
+        MediaType format = JsonStreamHelper.getPreferred(accept, "application/json", JsonStreamHelper.NDJSON, JsonStreamHelper.CBOR, JsonStreamHelper.SMILE);
+        response.setContentType(format.toString());
+        if (format.isCompatibleWith(MediaType.valueOf(JsonStreamHelper.NDJSON))) {
+            String[] last = {null};
+            jsonStreamHelper.writeLines(() -> {
+                List<PathwaySummary> chunk = view.getPathwaysAfter(last[0], JsonStreamHelper.CHUNK_SIZE, resource, importableOnly);
+                if (!chunk.isEmpty()) last[0] = chunk.get(chunk.size() - 1).getStId();
+                return chunk;
+            }, selection != null ? selection.relativeTo("pathways") : null, response.getOutputStream());
+        } else {
+            jsonStreamHelper.writeAnalysisResult(page -> view.getResultSummary(resource, JsonStreamHelper.CHUNK_SIZE, page, importableOnly), selection, includeDisease, format, response.getOutputStream());
+        }
     }
 
     @Operation(summary = "Returns the result for the pathway ids sent by post (when they are present in the original result)",
@@ -80,8 +193,14 @@ public class TokenController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "404", description = "No result corresponding to the token was found"),
             @ApiResponse(responseCode = "410", description = "Result deleted due to a new data release")})
-    @RequestMapping(value = "/{token}/filter/pathways", method = RequestMethod.POST, consumes = "text/plain", produces = "application/json")
+    @RequestMapping(value = "/{token}/filter/pathways", method = RequestMethod.POST, consumes = {"text/plain", "application/json"}, produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE})
     @ResponseBody
+    @io.swagger.v3.oas.annotations.parameters.RequestBody(
+            description = "<b>input</b> The identifiers of the pathways of interest, either as a comma separated list (plain text) or as a json array",
+            required = true,
+            content = {@Content(mediaType = "text/plain", schema = @Schema(type = "string", example = "R-HSA-1640170, R-HSA-109581")),
+                    @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(type = "string", example = "R-HSA-1640170")))}
+    )
     public List<PathwaySummary> getTokenFilterPathways(@Parameter(name = "token", required = true, description = "The token associated with the data to query")
                                                        @PathVariable String token,
                                                        @Parameter(name = "resource", schema = @Schema(description = "the resource to sort", example = "TOTAL", allowableValues = {"TOTAL", "UNIPROT", "ENSEMBL", "CHEBI", "IUPHAR", "MIRBASE", "NCBI_PROTEIN", "EMBL", "COMPOUND", "PUBCHEM_COMPOUND"}))
@@ -98,19 +217,12 @@ public class TokenController {
                                                        @RequestParam(required = false) Integer max,
                                                        @Parameter(name = "importableOnly", description = "Filters resources to only includes importable ones")
                                                        @RequestParam(required = false, defaultValue = "false") Boolean importableOnly,
-                                                       @io.swagger.v3.oas.annotations.parameters.RequestBody(
-                                                               description = "<b>input</b> A comma separated list with the identifiers of the pathways of interest (NOTE: is plain text, not json)",
-                                                               required = true
-                                                       )
-                                                       @RequestBody String input) {
-        List<Species> speciesList = analysis.getSpeciesList(species);
+                                                       Reader input) {
+        AnalysisFilter filter = new AnalysisFilter(analysis.getSpeciesList(species), resource, pValue, includeDisease, min, max, importableOnly);
         List<String> inputIdentifiers = analysis.getInputIdentifiers(input);
         AnalysisStoredResult asr = this.token.getFromToken(token);
 
-        if (includeDisease != null) asr.getSummary().setIncludeDisease(includeDisease);
-        else includeDisease = asr.getSummary().isIncludeDisease();
-
-        return asr.filterPathways(speciesList, resource, pValue, includeDisease, min, max, importableOnly)
+        return filter.apply(asr)
                 .filterByPathways(inputIdentifiers, resource, importableOnly);
     }
 
@@ -118,7 +230,7 @@ public class TokenController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "404", description = "No result corresponding to the token was found"),
             @ApiResponse(responseCode = "410", description = "Result deleted due to a new data release")})
-    @RequestMapping(value = "/{token}/filter/species/{species}", method = RequestMethod.GET, produces = "application/json")
+    @RequestMapping(value = "/{token}/filter/species/{species}", method = RequestMethod.GET, produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE})
     @ResponseBody
     public SpeciesFilteredResult filterBySpecies(@Parameter(name = "token", required = true, description = "The token associated with the data to query")
                                                  @PathVariable String token,
@@ -133,7 +245,9 @@ public class TokenController {
                                                  @Parameter(name = "importableOnly", description = "Filters resources to only includes importable ones")
                                                  @RequestParam(required = false, defaultValue = "false") Boolean importableOnly) {
         Species s = analysis.getSpecies(species);
-        return this.token.getFromToken(token).filterBySpecies(s.getDbId(), resource, sortBy, order, importableOnly);
+        //The pathways are sorted while filtering, so it runs on a copy of the shared result
+        return AnalysisFilter.NONE.apply(this.token.getFromToken(token))
+                .filterBySpecies(s.getDbId(), resource, sortBy, order, importableOnly);
     }
 
     @Operation(summary = "Returns the page where the corresponding pathway is taking into account the passed parameters",
@@ -143,7 +257,7 @@ public class TokenController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "404", description = "No result corresponding to the token was found"),
             @ApiResponse(responseCode = "410", description = "Result deleted due to a new data release")})
-    @RequestMapping(value = "/{token}/page/{pathway}", method = RequestMethod.GET, produces = "application/json")
+    @RequestMapping(value = "/{token}/page/{pathway}", method = RequestMethod.GET, produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE})
     @ResponseBody
     public int getPageOfPathway(@Parameter(name = "token", required = true, description = "The token associated with the data to query")
                                 @PathVariable String token,
@@ -168,13 +282,9 @@ public class TokenController {
                                 @Parameter(name = "importableOnly", description = "Filters resources to only includes importable ones")
                                 @RequestParam(required = false, defaultValue = "false") Boolean importableOnly) {
 
-        AnalysisStoredResult asr = this.token.getFromToken(token);
-
-        if (includeDisease != null) asr.getSummary().setIncludeDisease(includeDisease);
-        else includeDisease = asr.getSummary().isIncludeDisease();
-
-        return asr.filterPathways(resource, pValue, includeDisease, min, max, importableOnly)
-                .getPage(pathway, sortBy, order, resource, pageSize);
+        AnalysisFilter filter = new AnalysisFilter(null, resource, pValue, includeDisease, min, max, importableOnly);
+        return views.getView(this.token.getFromToken(token), filter, sortBy, order)
+                .getPage(pathway, pageSize);
     }
 
     @Operation(summary = "Returns a summary of the contained identifiers and interactors for a given pathway and token",
@@ -183,7 +293,7 @@ public class TokenController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "404", description = "No result corresponding to the token was found"),
             @ApiResponse(responseCode = "410", description = "Result deleted due to a new data release")})
-    @RequestMapping(value = "/{token}/found/all/{pathway}", method = RequestMethod.GET, produces = "application/json")
+    @RequestMapping(value = "/{token}/found/all/{pathway}", method = RequestMethod.GET, produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE})
     @ResponseBody
     public FoundElements getTokenHitEntitiesPathway(@Parameter(name = "token", required = true, description = "The token associated with the data to query")
                                                     @PathVariable String token,
@@ -202,15 +312,17 @@ public class TokenController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "404", description = "No result corresponding to the token was found"),
             @ApiResponse(responseCode = "410", description = "Result deleted due to a new data release")})
-    @RequestMapping(value = "/{token}/found/all", method = RequestMethod.POST, consumes = "text/plain", produces = "application/json")
+    @RequestMapping(value = "/{token}/found/all", method = RequestMethod.POST, consumes = {"text/plain", "application/json"}, produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE})
     @ResponseBody
+    @io.swagger.v3.oas.annotations.parameters.RequestBody(
+            description = "<b>input</b> The identifiers of the pathways of interest, either as a comma separated list (plain text) or as a json array",
+            required = true,
+            content = {@Content(mediaType = "text/plain", schema = @Schema(type = "string", example = "R-HSA-1640170, R-HSA-109581")),
+                    @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(type = "string", example = "R-HSA-1640170")))}
+    )
     public List<FoundElements> getTokenHitEntitiesPathways(@Parameter(name = "token", required = true, description = "The token associated with the data to query")
                                                            @PathVariable String token,
-                                                           @io.swagger.v3.oas.annotations.parameters.RequestBody(
-                                                                   description = "<b>input</b> A comma separated list with the identifiers of the pathways of interest (NOTE: is plain text, not json)",
-                                                                   required = true
-                                                           )
-                                                           @RequestBody String input,
+                                                           Reader input,
                                                            @Parameter(name = "resource", schema = @Schema(description = "the resource to sort", example = "TOTAL", allowableValues = {"TOTAL", "UNIPROT", "ENSEMBL", "CHEBI", "IUPHAR", "MIRBASE", "NCBI_PROTEIN", "EMBL", "COMPOUND", "PUBCHEM_COMPOUND"}))
                                                            @RequestParam(required = false, defaultValue = "TOTAL") String resource) {
         List<String> pathways = analysis.getInputIdentifiers(input);
@@ -225,7 +337,7 @@ public class TokenController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "404", description = "No result corresponding to the token was found"),
             @ApiResponse(responseCode = "410", description = "Result deleted due to a new data release")})
-    @RequestMapping(value = "/{token}/found/entities/{pathway}", method = RequestMethod.GET, produces = "application/json")
+    @RequestMapping(value = "/{token}/found/entities/{pathway}", method = RequestMethod.GET, produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE})
     @ResponseBody
     public FoundEntities getTokenIdentifiersPathway(@Parameter(name = "token", required = true, description = "The token associated with the data to query")
                                                     @PathVariable String token,
@@ -247,7 +359,7 @@ public class TokenController {
      */
     @Hidden
     @Deprecated
-    @RequestMapping(value = "/{token}/summary/{pathway}", method = RequestMethod.GET, produces = "application/json")
+    @RequestMapping(value = "/{token}/summary/{pathway}", method = RequestMethod.GET, produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE})
     @ResponseBody
     public FoundEntities getTokenSummaryPathway(@PathVariable String token, @PathVariable String pathway,
                                                 @RequestParam(required = false) Integer page, @RequestParam(required = false) Integer pageSize, @RequestParam(required = false, defaultValue = "TOTAL") String resource) {
@@ -260,7 +372,7 @@ public class TokenController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "404", description = "No result corresponding to the token was found"),
             @ApiResponse(responseCode = "410", description = "Result deleted due to a new data release")})
-    @RequestMapping(value = "/{token}/found/interactors/{pathway}", method = RequestMethod.GET, produces = "application/json")
+    @RequestMapping(value = "/{token}/found/interactors/{pathway}", method = RequestMethod.GET, produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE})
     @ResponseBody
     public FoundInteractors getTokenInteractorsPathway(@Parameter(name = "token", required = true, description = "The token associated with the data to query")
                                                        @PathVariable String token,
@@ -280,12 +392,82 @@ public class TokenController {
     }
 
 
+    @Operation(summary = "Returns a summary of the found curated identifiers for each requested pathway and a given token",
+            description = "The same as /found/entities/{pathway} for several pathways at once, in a json object keyed by the " +
+                    "requested pathway identifiers. Pathways not present in the result are left out. Pathways whose details cannot be retrieved get an error (code, reason and messages) instead.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "400", description = "No pathways or too many of them were provided"),
+            @ApiResponse(responseCode = "404", description = "No result corresponding to the token was found"),
+            @ApiResponse(responseCode = "410", description = "Result deleted due to a new data release")})
+    @RequestMapping(value = "/{token}/found/entities", method = RequestMethod.POST, consumes = {"text/plain", "application/json"}, produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE})
+    @io.swagger.v3.oas.annotations.parameters.RequestBody(
+            description = "<b>input</b> The identifiers of the pathways of interest, either as a comma separated list (plain text) or as a json array",
+            required = true,
+            content = {@Content(mediaType = "text/plain", schema = @Schema(type = "string", example = "R-HSA-1640170, R-HSA-109581")),
+                    @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(type = "string", example = "R-HSA-1640170")))}
+    )
+    public void getTokenIdentifiersPathways(@Parameter(name = "token", required = true, description = "The token associated with the data to query")
+                                            @PathVariable String token,
+                                            Reader input,
+                                            @Parameter(name = "page", description = "page number", example = "1")
+                                            @RequestParam(required = false) Integer page,
+                                            @Parameter(name = "pageSize", description = "identifiers per page", example = "20")
+                                            @RequestParam(required = false) Integer pageSize,
+                                            @Parameter(name = "resource", schema = @Schema(description = "the resource to sort", example = "TOTAL", allowableValues = {"TOTAL", "UNIPROT", "ENSEMBL", "CHEBI", "IUPHAR", "MIRBASE", "NCBI_PROTEIN", "EMBL", "COMPOUND", "PUBCHEM_COMPOUND"}))
+                                            @RequestParam(required = false, defaultValue = "TOTAL") String resource,
+                                            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                            HttpServletResponse response) throws IOException {
+        List<String> pathways = analysis.getInputIdentifiers(input);
+        AnalysisStoredResult asr = this.token.getFromToken(token);
+        MediaType format = JsonStreamHelper.getPreferred(accept, "application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE);
+        response.setContentType(format.toString());
+        pathwayBatchHelper.write(pathways, pathway -> {
+            FoundEntities fe = asr.getFoundEntities(pathway, resource);
+            return fe == null ? null : fe.filter(resource, pageSize, page);
+        }, format, response.getOutputStream());
+    }
+
+    @Operation(summary = "Returns a summary of the found interactors for each requested pathway and a given token",
+            description = "The same as /found/interactors/{pathway} for several pathways at once, in a json object keyed by the " +
+                    "requested pathway identifiers. Pathways without found interactors are left out. Pathways whose details cannot be retrieved get an error (code, reason and messages) instead.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "400", description = "No pathways or too many of them were provided"),
+            @ApiResponse(responseCode = "404", description = "No result corresponding to the token was found"),
+            @ApiResponse(responseCode = "410", description = "Result deleted due to a new data release")})
+    @RequestMapping(value = "/{token}/found/interactors", method = RequestMethod.POST, consumes = {"text/plain", "application/json"}, produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE})
+    @io.swagger.v3.oas.annotations.parameters.RequestBody(
+            description = "<b>input</b> The identifiers of the pathways of interest, either as a comma separated list (plain text) or as a json array",
+            required = true,
+            content = {@Content(mediaType = "text/plain", schema = @Schema(type = "string", example = "R-HSA-1640170, R-HSA-109581")),
+                    @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(type = "string", example = "R-HSA-1640170")))}
+    )
+    public void getTokenInteractorsPathways(@Parameter(name = "token", required = true, description = "The token associated with the data to query")
+                                            @PathVariable String token,
+                                            Reader input,
+                                            @Parameter(name = "page", description = "page number", example = "1")
+                                            @RequestParam(required = false) Integer page,
+                                            @Parameter(name = "pageSize", description = "identifiers per page", example = "20")
+                                            @RequestParam(required = false) Integer pageSize,
+                                            @Parameter(name = "resource", schema = @Schema(description = "the resource to sort", example = "TOTAL", allowableValues = {"TOTAL", "UNIPROT", "ENSEMBL", "CHEBI", "IUPHAR", "MIRBASE", "NCBI_PROTEIN", "EMBL", "COMPOUND", "PUBCHEM_COMPOUND"}))
+                                            @RequestParam(required = false, defaultValue = "TOTAL") String resource,
+                                            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                            HttpServletResponse response) throws IOException {
+        List<String> pathways = analysis.getInputIdentifiers(input);
+        AnalysisStoredResult asr = this.token.getFromToken(token);
+        MediaType format = JsonStreamHelper.getPreferred(accept, "application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE);
+        response.setContentType(format.toString());
+        pathwayBatchHelper.write(pathways, pathway -> {
+            FoundInteractors fi = asr.getFoundInteractors(pathway);
+            return fi == null || fi.getFound() == 0 ? null : fi.filter(resource, pageSize, page);
+        }, format, response.getOutputStream());
+    }
+
     @Operation(summary = "Returns a list of the identifiers not found for a given token",
             description = "Those identifiers that have not been found in the Reactome database")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "404", description = "No result corresponding to the token was found"),
             @ApiResponse(responseCode = "410", description = "Result deleted due to a new data release")})
-    @RequestMapping(value = "/{token}/notFound", method = RequestMethod.GET, produces = "application/json")
+    @RequestMapping(value = "/{token}/notFound", method = RequestMethod.GET, produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE})
     @ResponseBody
     public List<IdentifierSummary> getNotFoundIdentifiers(@Parameter(name = "token", required = true, description = "The token associated with the data to query")
                                                           @PathVariable String token,
@@ -303,7 +485,7 @@ public class TokenController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "404", description = "No result corresponding to the token was found"),
             @ApiResponse(responseCode = "410", description = "Result deleted due to a new data release")})
-    @RequestMapping(value = "/{token}/reactions/{pathway}", method = RequestMethod.GET, produces = "application/json")
+    @RequestMapping(value = "/{token}/reactions/{pathway}", method = RequestMethod.GET, produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE})
     @ResponseBody
     public Set<Long> getTokenFilterPathwayReactions(@Parameter(name = "token", required = true, description = "The token associated with the data to query")
                                                     @PathVariable String token,
@@ -322,12 +504,8 @@ public class TokenController {
                                                     @Parameter(name = "importableOnly", description = "Filters resources to only includes importable ones")
                                                     @RequestParam(required = false, defaultValue = "false") Boolean importableOnly) {
 
-        AnalysisStoredResult asr = this.token.getFromToken(token);
-
-        if (includeDisease != null) asr.getSummary().setIncludeDisease(includeDisease);
-        else includeDisease = asr.getSummary().isIncludeDisease();
-
-        return asr.filterPathways(resource, pValue, includeDisease, min, max, importableOnly)
+        AnalysisFilter filter = new AnalysisFilter(null, resource, pValue, includeDisease, min, max, importableOnly);
+        return filter.apply(this.token.getFromToken(token))
                 .getFoundReactions(pathway, resource, importableOnly);
     }
 
@@ -337,15 +515,17 @@ public class TokenController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "404", description = "No result corresponding to the token was found"),
             @ApiResponse(responseCode = "410", description = "Result deleted due to a new data release")})
-    @RequestMapping(value = "/{token}/reactions/pathways", method = RequestMethod.POST, consumes = "text/plain", produces = "application/json")
+    @RequestMapping(value = "/{token}/reactions/pathways", method = RequestMethod.POST, consumes = {"text/plain", "application/json"}, produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE})
     @ResponseBody
+    @io.swagger.v3.oas.annotations.parameters.RequestBody(
+            description = "<b>input</b> The identifiers of the pathways of interest, either as a comma separated list (plain text) or as a json array",
+            required = true,
+            content = {@Content(mediaType = "text/plain", schema = @Schema(type = "string", example = "R-HSA-1640170, R-HSA-109581")),
+                    @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(type = "string", example = "R-HSA-1640170")))}
+    )
     public Set<Long> getTokenFilterPathwaysReactions(@Parameter(name = "token", required = true, description = "The token associated with the data to query")
                                                      @PathVariable String token,
-                                                     @io.swagger.v3.oas.annotations.parameters.RequestBody(
-                                                             description = "<b>input</b> A comma separated list with the identifiers of the pathways of interest (NOTE: is plain text, not json)",
-                                                             required = true
-                                                     )
-                                                     @RequestBody String input,
+                                                     Reader input,
                                                      @Parameter(name = "resource", schema = @Schema(description = "the resource to sort", example = "TOTAL", allowableValues = {"TOTAL", "UNIPROT", "ENSEMBL", "CHEBI", "IUPHAR", "MIRBASE", "NCBI_PROTEIN", "EMBL", "COMPOUND", "PUBCHEM_COMPOUND"}))
                                                      @RequestParam(required = false, defaultValue = "TOTAL") String resource,
                                                      @Parameter(name = "pValue", description = "defines the pValue threshold. Only hit pathway with pValue equals or below the threshold will be returned", example = "1")
@@ -359,12 +539,8 @@ public class TokenController {
                                                      @Parameter(name = "importableOnly", description = "Filters resources to only includes importable ones")
                                                      @RequestParam(required = false, defaultValue = "false") Boolean importableOnly) {
         List<String> pathwayIds = analysis.getInputIdentifiers(input);
-        AnalysisStoredResult asr = this.token.getFromToken(token);
-
-        if (includeDisease != null) asr.getSummary().setIncludeDisease(includeDisease);
-        else includeDisease = asr.getSummary().isIncludeDisease();
-
-        return asr.filterPathways(resource, pValue, includeDisease, min, max, importableOnly)
+        AnalysisFilter filter = new AnalysisFilter(null, resource, pValue, includeDisease, min, max, importableOnly);
+        return filter.apply(this.token.getFromToken(token))
                 .getFoundReactions(pathwayIds, resource, importableOnly);
     }
 
@@ -373,7 +549,7 @@ public class TokenController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "404", description = "No result corresponding to the token was found"),
             @ApiResponse(responseCode = "410", description = "Result deleted due to a new data release")})
-    @RequestMapping(value = "/{token}/resources", method = RequestMethod.GET, produces = "application/json")
+    @RequestMapping(value = "/{token}/resources", method = RequestMethod.GET, produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE})
     @ResponseBody
     public List<ResourceSummary> getResources(@Parameter(name = "token", required = true, description = "The token associated with the data to query")
                                               @PathVariable String token) {
@@ -385,7 +561,7 @@ public class TokenController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "404", description = "No result corresponding to the token was found"),
             @ApiResponse(responseCode = "410", description = "Result deleted due to a new data release")})
-    @RequestMapping(value = "/{token}/pathways/binned", method = RequestMethod.GET, produces = "application/json")
+    @RequestMapping(value = "/{token}/pathways/binned", method = RequestMethod.GET, produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE})
     @ResponseBody
     public List<Bin> getPathwaysBinnedBySize(@Parameter(name = "token", required = true, description = "The token associated with the data to query")
                                              @PathVariable String token,
@@ -399,18 +575,77 @@ public class TokenController {
                                              @RequestParam(required = false, defaultValue = "1") Double pValue,
                                              @Parameter(name = "includeDisease", description = "set to 'false' to exclude the disease pathways from the result (it does not alter the statistics)")
                                              @RequestParam(required = false) Boolean includeDisease) {
-        List<Species> speciesList = analysis.getSpeciesList(species);
+        AnalysisFilter filter = new AnalysisFilter(analysis.getSpeciesList(species), resource, pValue, includeDisease, null, null, false);
         binSize = Math.max(binSize, 100);
+
+        //The histogram stored with the result covers all the hit pathways, so it is not suitable for lower thresholds
+        if (pValue == null || pValue >= 1) {
+            Set<Long> speciesIds = new HashSet<>();
+            if (filter.getSpecies() != null) filter.getSpecies().forEach(s -> speciesIds.add(s.getDbId()));
+            List<Bin> bins = sizeHistogramStore.getBinnedPathwaySize(token, binSize, resource, speciesIds, includeDisease);
+            if (bins != null) return bins;
+        }
+
         AnalysisStoredResult asr = this.token.getFromToken(token);
+        return asr.getBinnedPathwaySize(binSize, resource, filter.getSpecies(), pValue, filter.isIncludeDisease(asr));
+    }
 
-        if (includeDisease != null) asr.getSummary().setIncludeDisease(includeDisease);
-        else includeDisease = asr.getSummary().isIncludeDisease();
+    @Operation(summary = "Compares the results associated with two tokens",
+            description = "Both results are filtered with the same options and their hit pathways are joined by identifier. For every " +
+                    "pathway hit in either of them, it returns the found entities, pValue and FDR in each result and the difference " +
+                    "(second minus first) when the pathway is hit in both. Use page and pageSize to reduce the amount of data retrieved " +
+                    "and sortBy and order to sort the pathways (using their values in the first result when present)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "404", description = "No result corresponding to any of the tokens was found"),
+            @ApiResponse(responseCode = "410", description = "Result deleted due to a new data release")})
+    @RequestMapping(value = "/{token}/compare/{other}", method = RequestMethod.GET, produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE})
+    @ResponseBody
+    public TokenComparison compareTokens(@Parameter(name = "token", required = true, description = "The token associated with the first result")
+                                         @PathVariable String token,
+                                         @Parameter(name = "other", required = true, description = "The token associated with the second result")
+                                         @PathVariable String other,
+                                         @Parameter(name = "species", description = "list of species to filter the results (accepts taxonomy ids, species names and dbId)")
+                                         @RequestParam(required = false) String species,
+                                         @Parameter(name = "pageSize", description = "pathways per page", example = "20")
+                                         @RequestParam(required = false) Integer pageSize,
+                                         @Parameter(name = "page", description = "page number", example = "1")
+                                         @RequestParam(required = false) Integer page,
+                                         @Parameter(name = "sortBy", schema = @Schema(description = "how to sort the result", example = "ENTITIES_PVALUE", allowableValues = {"NAME", "TOTAL_ENTITIES", "TOTAL_INTERACTORS", "TOTAL_REACTIONS", "FOUND_ENTITIES", "FOUND_INTERACTORS", "FOUND_REACTIONS", "ENTITIES_RATIO", "ENTITIES_PVALUE", "ENTITIES_FDR", "REACTIONS_RATIO"}))
+                                         @RequestParam(required = false) String sortBy,
+                                         @Parameter(name = "order", schema = @Schema(description = "specifies the order", example = "ASC", allowableValues = {"ASC", "DESC"}))
+                                         @RequestParam(required = false) String order,
+                                         @Parameter(name = "resource", schema = @Schema(description = "the resource to sort", example = "TOTAL", allowableValues = {"TOTAL", "UNIPROT", "ENSEMBL", "CHEBI", "IUPHAR", "MIRBASE", "NCBI_PROTEIN", "EMBL", "COMPOUND", "PUBCHEM_COMPOUND"}))
+                                         @RequestParam(required = false, defaultValue = "TOTAL") String resource,
+                                         @Parameter(name = "pValue", description = "defines the pValue threshold. Only hit pathway with pValue equals or below the threshold in any of the results will be returned", example = "1")
+                                         @RequestParam(required = false, defaultValue = "1") Double pValue,
+                                         @Parameter(name = "includeDisease", description = "set to 'false' to exclude the disease pathways from the results (it does not alter the statistics)")
+                                         @RequestParam(required = false) Boolean includeDisease,
+                                         @Parameter(name = "min", description = "minimum number of contained entities per pathway (takes into account the resource)")
+                                         @RequestParam(required = false) Integer min,
+                                         @Parameter(name = "max", description = "maximum number of contained entities per pathway (takes into account the resource)")
+                                         @RequestParam(required = false) Integer max,
+                                         @Parameter(name = "importableOnly", description = "Filters resources to only includes importable ones")
+                                         @RequestParam(required = false, defaultValue = "false") Boolean importableOnly) {
+        AnalysisFilter filter = new AnalysisFilter(analysis.getSpeciesList(species), resource, pValue, includeDisease, min, max, importableOnly);
+        AnalysisStoredResult first = this.token.getFromToken(token);
+        AnalysisStoredResult second = this.token.getFromToken(other);
+        return tokenComparisonHelper.compare(first, second, filter, sortBy, order, pageSize, page);
+    }
 
-        return asr.getBinnedPathwaySize(binSize, resource, speciesList, pValue, includeDisease);
+    @Operation(summary = "Returns the status of the analysis associated with the token",
+            description = "Analysis submitted via the asynchronous endpoints are QUEUED, RUNNING, DONE or FAILED. " +
+                    "Once the status is DONE the result can be retrieved using the token")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "404", description = "No analysis corresponding to the token was found")})
+    @RequestMapping(value = "/{token}/status", method = RequestMethod.GET, produces = {"application/json", JsonStreamHelper.CBOR, JsonStreamHelper.SMILE})
+    @ResponseBody
+    public AnalysisJob getStatus(@Parameter(name = "token", required = true, description = "The token associated with the data to query")
+                                 @PathVariable String token) {
+        return analysis.getJob(token);
     }
 
     @Autowired
-    public void setToken(TokenUtils token) {
+    public void setToken(AnalysisResultCache token) {
         this.token = token;
     }
 
@@ -418,4 +653,29 @@ public class TokenController {
     public void setAnalysis(AnalysisHelper analysis) {
         this.analysis = analysis;
     }
+
+    @Autowired
+    public void setViews(AnalysisViewCache views) {
+        this.views = views;
+    }
+
+    @Autowired
+    public void setJsonStreamHelper(JsonStreamHelper jsonStreamHelper) {
+        this.jsonStreamHelper = jsonStreamHelper;
+    }
+
+    @Autowired
+    public void setPathwayBatchHelper(PathwayBatchHelper pathwayBatchHelper) {
+        this.pathwayBatchHelper = pathwayBatchHelper;
+    }
+
+    @Autowired
+    public void setTokenComparisonHelper(TokenComparisonHelper tokenComparisonHelper) {
+        this.tokenComparisonHelper = tokenComparisonHelper;
+    }
+
+    @Autowired
+    public void setSizeHistogramStore(SizeHistogramStore sizeHistogramStore) {
+        this.sizeHistogramStore = sizeHistogramStore;
+    }
 }
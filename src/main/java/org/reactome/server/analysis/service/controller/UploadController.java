@@ -0,0 +1,188 @@
+package org.reactome.server.analysis.service.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.reactome.server.analysis.core.model.UserData;
+import org.reactome.server.analysis.core.result.model.AnalysisResult;
+import org.reactome.server.analysis.service.helper.AnalysisHelper;
+import org.reactome.server.analysis.service.helper.UploadManager;
+import org.reactome.server.analysis.service.model.UploadSession;
+import org.reactome.server.graph.domain.model.Species;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Chunked and resumable alternative to the /identifiers/form methods for large files: an upload is created, its
+ * content is sent in chunks (each one at its offset) and, once complete, it is committed to be analysed.
+ */
+@Controller
+@Tag(name = "upload", description = "Chunked upload of large files to be analysed")
+@RequestMapping(value = "/upload")
+public class UploadController {
+
+    private AnalysisHelper controller;
+    private UploadManager uploadManager;
+
+    @Operation(summary = "Creates an upload where the file to be analysed can be sent in chunks",
+            description = "Send the chunks with PUT /upload/{id} and commit the upload once they have all been received. " +
+                    "Uploads not receiving data for a while are discarded.")
+    @PostMapping(value = "", produces = "application/json")
+    @ResponseStatus(HttpStatus.CREATED)
+    @ResponseBody
+    public UploadSession create(@Parameter(name = "fileName", description = "The name of the file (kept in the analysis summary)")
+                                @RequestParam(required = false) String fileName) {
+        return uploadManager.create(fileName);
+    }
+
+    @Operation(summary = "Returns the status of the upload",
+            description = "The size is the number of bytes received so far, so a broken upload can be resumed from there")
+    @ApiResponses({@ApiResponse(responseCode = "404", description = "There is no such upload or it expired")})
+    @GetMapping(value = "/{id}", produces = "application/json")
+    @ResponseBody
+    public UploadSession getSession(@Parameter(name = "id", required = true, description = "The upload identifier")
+                                    @PathVariable String id) {
+        return uploadManager.getSession(id);
+    }
+
+    @Operation(summary = "Sends a chunk of the file",
+            description = "The request body is written at the given offset, which cannot be greater than the number of bytes " +
+                    "received so far (sending data again is harmless). Whatever arrives before a connection drops is kept, " +
+                    "so check the upload size and carry on from there.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "404", description = "There is no such upload or it expired"),
+            @ApiResponse(responseCode = "409", description = "The offset is greater than the number of bytes received so far"),
+            @ApiResponse(responseCode = "413", description = "The file size is larger than the maximum configured size")})
+    @PutMapping(value = "/{id}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE, produces = "application/json")
+    public ResponseEntity<UploadSession> putChunk(@Parameter(name = "id", required = true, description = "The upload identifier")
+                                                  @PathVariable String id,
+                                                  @Parameter(name = "offset", required = true, description = "Position of the chunk in the file", example = "0")
+                                                  @RequestParam Long offset,
+                                                  HttpServletRequest request) throws IOException {
+        boolean written = uploadManager.write(id, offset, request.getInputStream());
+        return ResponseEntity.status(written ? HttpStatus.OK : HttpStatus.CONFLICT).body(uploadManager.getSession(id));
+    }
+
+    @Operation(summary = "Discards the upload")
+    @ApiResponses({@ApiResponse(responseCode = "404", description = "There is no such upload or it expired")})
+    @DeleteMapping(value = "/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void cancel(@Parameter(name = "id", required = true, description = "The upload identifier")
+                       @PathVariable String id) {
+        uploadManager.cancel(id);
+    }
+
+    @Operation(summary = "Analyses the uploaded file over the different species and projects the result to Homo Sapiens",
+            description = "The upload is discarded once its content has been read. The projection is calculated by the orthologous " +
+                    "slot in the Reactome database. Use page and pageSize to reduce the amount of data retrieved. Use sortBy and " +
+                    "order to sort the result by your preferred option. The resource field will filter the results to show only " +
+                    "those corresponding to the preferred molecule type (TOTAL includes all the different molecules type)")
+    @ApiResponses({
+            @ApiResponse(responseCode = "400", description = "Bad request"),
+            @ApiResponse(responseCode = "404", description = "There is no such upload or it expired"),
+            @ApiResponse(responseCode = "413", description = "The file size is larger than the maximum configured size"),
+            @ApiResponse(responseCode = "415", description = "Unsupported Media Type (only plain text or the binary expression matrix, optionally gzip, zip or zstd compressed)"),
+            @ApiResponse(responseCode = "503", description = "The analysis queue is full or the analysis did not finish in time. Please try again later")})
+    @PostMapping(value = "/{id}/commit/projection", produces = "application/json")
+    @ResponseBody
+    public AnalysisResult commitToHuman(@Parameter(name = "id", required = true, description = "The upload identifier")
+                                        @PathVariable String id,
+                                        @Parameter(name = "interactors", description = "Include interactors", example = "false")
+                                        @RequestParam(required = false, defaultValue = "false") Boolean interactors,
+                                        @Parameter(name = "pageSize", description = "pathways per page", example = "20")
+                                        @RequestParam(required = false) Integer pageSize,
+                                        @Parameter(name = "page", description = "page number", example = "1")
+                                        @RequestParam(required = false) Integer page,
+                                        @Parameter(name = "sortBy", schema = @Schema(description = "how to sort the result", example = "ENTITIES_PVALUE", allowableValues = {"NAME", "TOTAL_ENTITIES", "TOTAL_INTERACTORS", "TOTAL_REACTIONS", "FOUND_ENTITIES", "FOUND_INTERACTORS", "FOUND_REACTIONS", "ENTITIES_RATIO", "ENTITIES_PVALUE", "ENTITIES_FDR", "REACTIONS_RATIO"}))
+                                        @RequestParam(required = false) String sortBy,
+                                        @Parameter(name = "order", schema = @Schema(description = "specifies the order", example = "ASC", allowableValues = {"ASC", "DESC"}))
+                                        @RequestParam(required = false) String order,
+                                        @Parameter(name = "resource", schema = @Schema(description = "the resource to sort", example = "TOTAL", allowableValues = {"TOTAL", "UNIPROT", "ENSEMBL", "CHEBI", "IUPHAR", "MIRBASE", "NCBI_PROTEIN", "EMBL", "COMPOUND", "PUBCHEM_COMPOUND"}))
+                                        @RequestParam(required = false, defaultValue = "TOTAL") String resource,
+                                        @Parameter(name = "pValue", description = "defines the pValue threshold. Only hit pathway with pValue equals or below the threshold will be returned", example = "1")
+                                        @RequestParam(required = false, defaultValue = "1") Double pValue,
+                                        @Parameter(name = "includeDisease", description = "set to 'false' to exclude the disease pathways from the result (it does not alter the statistics)", example = "true")
+                                        @RequestParam(required = false, defaultValue = "true") Boolean includeDisease,
+                                        @Parameter(name = "min", description = "minimum number of contained entities per pathway (takes into account the resource)")
+                                        @RequestParam(required = false) Integer min,
+                                        @Parameter(name = "max", description = "maximum number of contained entities per pathway (takes into account the resource)")
+                                        @RequestParam(required = false) Integer max,
+                                        @Parameter(name = "importableOnly", description = "Filters resources to only includes importable ones")
+                                        @RequestParam(required = false, defaultValue = "false") Boolean importableOnly,
+                                        HttpServletRequest request) {
+        String fileName = uploadManager.getSession(id).getFileName();
+        UserData ud = uploadManager.commit(id, controller::getUserData);
+        return controller.analyse(ud, request, true, interactors, fileName, includeDisease)
+                .filterPathways(resource, pValue, includeDisease, min, max, importableOnly)
+                .getResultSummary(sortBy, order, resource, pageSize, page, importableOnly);
+    }
+
+    @Operation(summary = "Analyses the uploaded file over the different species",
+            description = "The upload is discarded once its content has been read. Use page and pageSize to reduce the amount of " +
+                    "data retrieved. Use sortBy and order to sort the result by your preferred option. The resource field will " +
+                    "filter the results to show only those corresponding to the preferred molecule type (TOTAL includes all the " +
+                    "different molecules type)")
+    @ApiResponses({
+            @ApiResponse(responseCode = "400", description = "Bad request"),
+            @ApiResponse(responseCode = "404", description = "There is no such upload or it expired"),
+            @ApiResponse(responseCode = "413", description = "The file size is larger than the maximum configured size"),
+            @ApiResponse(responseCode = "415", description = "Unsupported Media Type (only plain text or the binary expression matrix, optionally gzip, zip or zstd compressed)"),
+            @ApiResponse(responseCode = "503", description = "The analysis queue is full or the analysis did not finish in time. Please try again later")})
+    @PostMapping(value = "/{id}/commit", produces = "application/json")
+    @ResponseBody
+    public AnalysisResult commit(@Parameter(name = "id", required = true, description = "The upload identifier")
+                                 @PathVariable String id,
+                                 @Parameter(name = "interactors", description = "Include interactors", example = "false")
+                                 @RequestParam(required = false, defaultValue = "false") Boolean interactors,
+                                 @Parameter(name = "species", description = "list of species to filter the result (accepts taxonomy ids, species names and dbId)")
+                                 @RequestParam(required = false) String species,
+                                 @Parameter(name = "pageSize", description = "pathways per page", example = "20")
+                                 @RequestParam(required = false) Integer pageSize,
+                                 @Parameter(name = "page", description = "page number", example = "1")
+                                 @RequestParam(required = false) Integer page,
+                                 @Parameter(name = "sortBy", schema = @Schema(description = "how to sort the result", example = "ENTITIES_PVALUE", allowableValues = {"NAME", "TOTAL_ENTITIES", "TOTAL_INTERACTORS", "TOTAL_REACTIONS", "FOUND_ENTITIES", "FOUND_INTERACTORS", "FOUND_REACTIONS", "ENTITIES_RATIO", "ENTITIES_PVALUE", "ENTITIES_FDR", "REACTIONS_RATIO"}))
+                                 @RequestParam(required = false) String sortBy,
+                                 @Parameter(name = "order", schema = @Schema(description = "specifies the order", example = "ASC", allowableValues = {"ASC", "DESC"}))
+                                 @RequestParam(required = false) String order,
+                                 @Parameter(name = "resource", schema = @Schema(description = "the resource to sort", example = "TOTAL", allowableValues = {"TOTAL", "UNIPROT", "ENSEMBL", "CHEBI", "IUPHAR", "MIRBASE", "NCBI_PROTEIN", "EMBL", "COMPOUND", "PUBCHEM_COMPOUND"}))
+                                 @RequestParam(required = false, defaultValue = "TOTAL") String resource,
+                                 @Parameter(name = "pValue", description = "defines the pValue threshold. Only hit pathway with pValue equals or below the threshold will be returned", example = "1")
+                                 @RequestParam(required = false, defaultValue = "1") Double pValue,
+                                 @Parameter(name = "includeDisease", description = "set to 'false' to exclude the disease pathways from the result (it does not alter the statistics)", example = "true")
+                                 @RequestParam(required = false, defaultValue = "true") Boolean includeDisease,
+                                 @Parameter(name = "min", description = "minimum number of contained entities per pathway (takes into account the resource)")
+                                 @RequestParam(required = false) Integer min,
+                                 @Parameter(name = "max", description = "maximum number of contained entities per pathway (takes into account the resource)")
+                                 @RequestParam(required = false) Integer max,
+                                 @Parameter(name = "importableOnly", description = "Filters resources to only includes importable ones")
+                                 @RequestParam(required = false, defaultValue = "false") Boolean importableOnly,
+                                 HttpServletRequest request) {
+        String fileName = uploadManager.getSession(id).getFileName();
+        UserData ud = uploadManager.commit(id, controller::getUserData);
+        List<Species> speciesList = controller.getSpeciesList(species);
+        return controller.analyse(ud, request, false, interactors, fileName, includeDisease)
+                .filterPathways(speciesList, resource, pValue, includeDisease, min, max, importableOnly)
+                .getResultSummary(sortBy, order, resource, pageSize, page, importableOnly);
+    }
+
+    @Autowired
+    public void setController(AnalysisHelper controller) {
+        this.controller = controller;
+    }
+
+    @Autowired
+    public void setUploadManager(UploadManager uploadManager) {
+        this.uploadManager = uploadManager;
+    }
+}
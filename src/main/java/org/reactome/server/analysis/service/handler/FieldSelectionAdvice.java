@@ -0,0 +1,44 @@
+package org.reactome.server.analysis.service.handler;
+
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import org.reactome.server.analysis.service.controller.IdentifierController;
+import org.reactome.server.analysis.service.controller.IdentifiersController;
+import org.reactome.server.analysis.service.controller.TokenController;
+import org.reactome.server.analysis.service.helper.FieldSelection;
+import org.reactome.server.analysis.service.helper.ResultPropertyFilter;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJacksonResponseBodyAdvice;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Applies the sparse field selection ("fields" parameter) to the results sent by the analysis and token methods.
+ * See {@link FieldSelection} for the syntax.
+ * <p>
+ * It also reports in the summary the includeDisease of the request, since it is not set on the (shared) stored
+ * result. See {@link ResultPropertyFilter}.
+ */
+@ControllerAdvice(assignableTypes = {TokenController.class, IdentifiersController.class, IdentifierController.class})
+public class FieldSelectionAdvice extends AbstractMappingJacksonResponseBodyAdvice {
+
+    public static final String PARAMETER = "fields";
+
+    @Override
+    protected void beforeBodyWriteInternal(MappingJacksonValue bodyContainer, MediaType contentType, MethodParameter returnType,
+                                           ServerHttpRequest request, ServerHttpResponse response) {
+        if (!(request instanceof ServletServerHttpRequest)) return;
+        HttpServletRequest servletRequest = ((ServletServerHttpRequest) request).getServletRequest();
+        FieldSelection selection = FieldSelection.parse(servletRequest.getParameter(PARAMETER));
+        String includeDisease = servletRequest.getParameter(ResultPropertyFilter.INCLUDE_DISEASE);
+        FilterProvider filters = ResultPropertyFilter.getFilterProvider(selection,
+                includeDisease != null ? DefaultConversionService.getSharedInstance().convert(includeDisease, Boolean.class) : null);
+        if (filters != null) bodyContainer.setFilters(filters);
+    }
+}
@@ -4,6 +4,7 @@ import org.reactome.server.analysis.core.result.exception.AnalysisServiceExcepti
 import org.reactome.server.analysis.core.result.model.AnalysisError;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MaxUploadSizeExceededException;
@@ -14,6 +15,7 @@ import org.springframework.web.servlet.ModelAndView;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * By implementing the HandlerExceptionResolver we can check for different exceptions happened
@@ -32,6 +34,8 @@ public class HandlerExceptionResolverImpl implements HandlerExceptionResolver {
                                          Object handler, Exception ex) {
 
         response.setContentType("application/json");
+        // Errors must not be cached as if they were the (immutable) result (see ResultCachingInterceptor)
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
 
         if (ex instanceof MaxUploadSizeExceededException) {
             response.setStatus(HttpStatus.PAYLOAD_TOO_LARGE.value());
@@ -62,6 +66,19 @@ public class HandlerExceptionResolverImpl implements HandlerExceptionResolver {
             return new ModelAndView();
         }
 
+        // Raised when the analysis queue is full or there are too many downloads in progress (the message tells which)
+        if (ex instanceof RejectedExecutionException) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader("Retry-After", "30");
+            AnalysisError error = new AnalysisError(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage());
+            try {
+                response.getWriter().println(error);
+            } catch (IOException e) {
+                logger.error("Error writing to output stream", e);
+            }
+            return new ModelAndView();
+        }
+
         if (ex instanceof AnalysisServiceException) {
             AnalysisServiceException ase = (AnalysisServiceException) ex;
 
@@ -0,0 +1,86 @@
+package org.reactome.server.analysis.service.handler;
+
+import org.reactome.server.analysis.core.data.AnalysisData;
+import org.reactome.server.analysis.core.result.utils.TokenUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Adds HTTP validators and caching headers to the methods reading a stored result, since a result does not change
+ * until it is deleted or there is a new data release.
+ * <p>
+ * The ETag is derived from the token, the data release, the path, the Accept header and the query parameters. Conditional requests
+ * (If-None-Match / If-Modified-Since) are answered with 304 before the result is loaded. Nothing is added when
+ * the result has not been stored (yet), so errors and results of analyses in progress are not cached.
+ */
+@Component
+public class ResultCachingInterceptor implements HandlerInterceptor {
+
+    private TokenUtils tokenUtils;
+    private AnalysisData analysisData;
+
+    private Long maxAge;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod())) return true;
+
+        @SuppressWarnings("unchecked")
+        Map<String, String> variables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String token = variables != null ? variables.get("token") : null;
+        if (token == null) return true;
+
+        File file;
+        try {
+            file = new File(tokenUtils.getFileName(token));
+        } catch (FileNotFoundException e) {
+            return true;
+        }
+        if (!file.isFile()) return true;
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=" + maxAge + ", immutable");
+        //The same url provides different representations of the result (i.e. json and newline delimited json)
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        return !new ServletWebRequest(request, response).checkNotModified(getETag(token, request), file.lastModified());
+    }
+
+    private String getETag(String token, HttpServletRequest request) {
+        StringBuilder sb = new StringBuilder(token)
+                .append('|').append(analysisData.getDatabaseInfo().getVersion())
+                .append('|').append(request.getRequestURI())
+                .append('|').append(request.getHeader(HttpHeaders.ACCEPT));
+        //Parameters are sorted so the same query gets the same ETag no matter the order they are sent
+        new TreeMap<>(request.getParameterMap()).forEach((name, values) -> sb.append('|').append(name).append('=').append(Arrays.toString(values)));
+        return "\"" + DigestUtils.md5DigestAsHex(sb.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    @Autowired
+    public void setTokenUtils(TokenUtils tokenUtils) {
+        this.tokenUtils = tokenUtils;
+    }
+
+    @Autowired
+    public void setAnalysisData(AnalysisData analysisData) {
+        this.analysisData = analysisData;
+    }
+
+    @Value("${analysis.http.cache.max.age:2592000}")
+    public void setMaxAge(Long maxAge) {
+        this.maxAge = maxAge;
+    }
+}
@@ -0,0 +1,48 @@
+package org.reactome.server.analysis.service.helper;
+
+import org.reactome.server.analysis.core.data.AnalysisData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+
+/**
+ * AnalysisData does not notify when it is reloaded, so this checks the release of the loaded data every minute and
+ * publishes an {@link AnalysisDataReloadedEvent} when it changes. That way whatever was worked out from the previous
+ * release is dropped straight away instead of waiting to be evicted.
+ */
+@Component
+public class AnalysisDataReloadChecker {
+
+    private static final Logger logger = LoggerFactory.getLogger("analysisLogger");
+
+    private AnalysisData analysisData;
+    private ApplicationEventPublisher publisher;
+
+    private Integer release;
+
+    @Scheduled(fixedDelay = 60_000L)
+    public void check() {
+        Integer current = analysisData.getDatabaseInfo().getVersion();
+        Integer previous = release;
+        release = current;
+        if (previous != null && !Objects.equals(previous, current)) {
+            logger.info("Analysis data reloaded (release " + previous + " -> " + current + ")");
+            publisher.publishEvent(new AnalysisDataReloadedEvent(this, previous, current));
+        }
+    }
+
+    @Autowired
+    public void setAnalysisData(AnalysisData analysisData) {
+        this.analysisData = analysisData;
+    }
+
+    @Autowired
+    public void setPublisher(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+}
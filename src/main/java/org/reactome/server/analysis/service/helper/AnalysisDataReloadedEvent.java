@@ -0,0 +1,26 @@
+package org.reactome.server.analysis.service.helper;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published by the {@link AnalysisDataReloadChecker} when the analysis data has been reloaded with a new release
+ */
+public class AnalysisDataReloadedEvent extends ApplicationEvent {
+
+    private final Integer previous;
+    private final Integer release;
+
+    public AnalysisDataReloadedEvent(Object source, Integer previous, Integer release) {
+        super(source);
+        this.previous = previous;
+        this.release = release;
+    }
+
+    public Integer getPrevious() {
+        return previous;
+    }
+
+    public Integer getRelease() {
+        return release;
+    }
+}
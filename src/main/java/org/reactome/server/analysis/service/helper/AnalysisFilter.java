@@ -0,0 +1,93 @@
+package org.reactome.server.analysis.service.helper;
+
+import org.reactome.server.analysis.core.result.AnalysisStoredResult;
+import org.reactome.server.graph.domain.model.Species;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * The filtering options of a request reading a stored result (species, resource, pValue, includeDisease, min, max
+ * and importableOnly). They are kept here and never set on the stored result, which is shared by all the requests
+ * reading the same token, so a result can be read concurrently without copies or locks.
+ */
+public final class AnalysisFilter {
+
+    /**
+     * Keeps all the hit pathways, so applying it gives a copy of the result that can be sorted or modified
+     */
+    public static final AnalysisFilter NONE = new AnalysisFilter(null, "TOTAL", 1d, true, null, null, false);
+
+    private final List<Species> species;
+    private final String resource;
+    private final Double pValue;
+    private final Boolean includeDisease;
+    private final Integer min;
+    private final Integer max;
+    private final boolean importableOnly;
+
+    /**
+     * @param species        the species to keep or null for all of them
+     * @param includeDisease whether to keep the disease pathways or null to use the default of the result
+     */
+    public AnalysisFilter(List<Species> species, String resource, Double pValue, Boolean includeDisease,
+                          Integer min, Integer max, boolean importableOnly) {
+        this.species = species;
+        this.resource = resource;
+        this.pValue = pValue;
+        this.includeDisease = includeDisease;
+        this.min = min;
+        this.max = max;
+        this.importableOnly = importableOnly;
+    }
+
+    public List<Species> getSpecies() {
+        return species;
+    }
+
+    public String getResource() {
+        return resource;
+    }
+
+    public Double getPValue() {
+        return pValue;
+    }
+
+    /**
+     * @return the same filter with a different pValue threshold
+     */
+    public AnalysisFilter withPValue(Double pValue) {
+        return new AnalysisFilter(species, resource, pValue, includeDisease, min, max, importableOnly);
+    }
+
+    /**
+     * @return the includeDisease of the request or, when it is not specified, the default of the result
+     */
+    public boolean isIncludeDisease(AnalysisStoredResult asr) {
+        return includeDisease != null ? includeDisease : asr.getSummary().isIncludeDisease();
+    }
+
+    /**
+     * @return a new result with the pathways passing the filter (the given one is not modified)
+     */
+    public AnalysisStoredResult apply(AnalysisStoredResult asr) {
+        boolean disease = isIncludeDisease(asr);
+        return species == null
+                ? asr.filterPathways(resource, pValue, disease, min, max, importableOnly)
+                : asr.filterPathways(species, resource, pValue, disease, min, max, importableOnly);
+    }
+
+    /**
+     * @return the key identifying the pathways kept by the filter for the given result
+     */
+    String getKey(AnalysisStoredResult asr) {
+        String speciesIds = species == null ? "-" : species.stream()
+                .map(s -> Objects.toString(s.getDbId()))
+                .sorted()
+                .collect(Collectors.joining(","));
+        return String.join("|", asr.getSummary().getToken(), speciesIds, Objects.toString(resource).toUpperCase(),
+                Objects.toString(pValue), Boolean.toString(isIncludeDisease(asr)), Objects.toString(min),
+                Objects.toString(max), Boolean.toString(importableOnly));
+    }
+}
@@ -2,11 +2,6 @@ package org.reactome.server.analysis.service.helper;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
-import org.apache.tika.detect.DefaultDetector;
-import org.apache.tika.detect.Detector;
-import org.apache.tika.io.TikaInputStream;
-import org.apache.tika.metadata.Metadata;
-import org.apache.tika.mime.MimeTypes;
 import org.reactome.server.analysis.core.exception.SpeciesNotFoundException;
 import org.reactome.server.analysis.core.methods.EnrichmentAnalysis;
 import org.reactome.server.analysis.core.methods.IdentifiersMapping;
@@ -16,6 +11,7 @@ import org.reactome.server.analysis.core.parser.exception.ParserException;
 import org.reactome.server.analysis.core.result.AnalysisStoredResult;
 import org.reactome.server.analysis.core.result.exception.*;
 import org.reactome.server.analysis.core.result.external.ExternalAnalysisResult;
+import org.reactome.server.analysis.core.result.model.AnalysisError;
 import org.reactome.server.analysis.core.result.model.AnalysisSummary;
 import org.reactome.server.analysis.core.result.model.MappedEntity;
 import org.reactome.server.analysis.core.result.report.AnalysisReport;
@@ -25,33 +21,34 @@ import org.reactome.server.analysis.core.result.utils.ResultDataUtils;
 import org.reactome.server.analysis.core.result.utils.TokenUtils;
 import org.reactome.server.analysis.core.result.utils.Tokenizer;
 import org.reactome.server.analysis.core.util.InputUtils;
+import org.reactome.server.analysis.service.model.AnalysisJob;
+import org.reactome.server.analysis.service.model.AnalysisSample;
+import org.reactome.server.analysis.service.model.AnalysisSampleResult;
 import org.reactome.server.graph.domain.model.Species;
 import org.reactome.server.graph.service.SpeciesService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.util.DigestUtils;
 import org.springframework.web.multipart.MultipartFile;
-import org.springframework.web.multipart.commons.CommonsMultipartResolver;
 
-import javax.net.ssl.*;
 import javax.servlet.http.HttpServletRequest;
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.HttpURLConnection;
+import java.io.Reader;
+import java.io.StringReader;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.net.URLConnection;
 import java.nio.charset.Charset;
-import java.security.KeyManagementException;
-import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
-import java.security.Security;
-import java.security.cert.X509Certificate;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipInputStream;
 
@@ -63,24 +60,32 @@ public class AnalysisHelper {
 
     private static final Logger logger = LoggerFactory.getLogger("analysisLogger");
 
+    // Kinds of digest remembered for the contents retrieved from urls (see UrlContentCache)
+    private static final String USER_DATA_DIGEST = "userdata";
+    private static final String IMPORT_DIGEST = "import";
+
     private TokenUtils tokenUtils;
-    private CommonsMultipartResolver multipartResolver;
     private EnrichmentAnalysis enrichmentAnalysis;
     private IdentifiersMapping identifiersMapping;
     private SpeciesComparison speciesComparison;
     private SpeciesService speciesService;
     private ExternalAnalysisResultCheck externalAnalysisResultCheck;
+    private AnalysisJobManager analysisJobManager;
+    private AnalysisResultCache analysisResultCache;
+    private MimeTypeDetector mimeTypeDetector;
+    private InputDecompressor inputDecompressor;
+    private UrlFetcher urlFetcher;
+    private IdentifierMappingCache identifierMappingCache;
+    private SortIndexStore sortIndexStore;
+    private SizeHistogramStore sizeHistogramStore;
+
+    private Integer maxBatchSamples;
 
     @Autowired
     public void setTokenUtils(TokenUtils tokenUtils) {
         this.tokenUtils = tokenUtils;
     }
 
-    @Autowired
-    public void setMultipartResolver(CommonsMultipartResolver multipartResolver) {
-        this.multipartResolver = multipartResolver;
-    }
-
     @Autowired
     public void setEnrichmentAnalysis(EnrichmentAnalysis enrichmentAnalysis) {
         this.enrichmentAnalysis = enrichmentAnalysis;
@@ -106,6 +111,51 @@ public class AnalysisHelper {
         this.externalAnalysisResultCheck = externalAnalysisResultCheck;
     }
 
+    @Autowired
+    public void setAnalysisJobManager(AnalysisJobManager analysisJobManager) {
+        this.analysisJobManager = analysisJobManager;
+    }
+
+    @Autowired
+    public void setAnalysisResultCache(AnalysisResultCache analysisResultCache) {
+        this.analysisResultCache = analysisResultCache;
+    }
+
+    @Autowired
+    public void setMimeTypeDetector(MimeTypeDetector mimeTypeDetector) {
+        this.mimeTypeDetector = mimeTypeDetector;
+    }
+
+    @Autowired
+    public void setInputDecompressor(InputDecompressor inputDecompressor) {
+        this.inputDecompressor = inputDecompressor;
+    }
+
+    @Autowired
+    public void setUrlFetcher(UrlFetcher urlFetcher) {
+        this.urlFetcher = urlFetcher;
+    }
+
+    @Autowired
+    public void setIdentifierMappingCache(IdentifierMappingCache identifierMappingCache) {
+        this.identifierMappingCache = identifierMappingCache;
+    }
+
+    @Autowired
+    public void setSortIndexStore(SortIndexStore sortIndexStore) {
+        this.sortIndexStore = sortIndexStore;
+    }
+
+    @Autowired
+    public void setSizeHistogramStore(SizeHistogramStore sizeHistogramStore) {
+        this.sizeHistogramStore = sizeHistogramStore;
+    }
+
+    @Value("${analysis.batch.max.samples:50}")
+    public void setMaxBatchSamples(Integer maxBatchSamples) {
+        this.maxBatchSamples = maxBatchSamples;
+    }
+
     public AnalysisStoredResult analyse(UserData userData, HttpServletRequest request, boolean toHuman, boolean includeInteractors, boolean includeDisease){
         return analyse(userData, request, toHuman, includeInteractors, null, includeDisease);
     }
@@ -113,23 +163,128 @@ public class AnalysisHelper {
     public AnalysisStoredResult analyse(UserData userData, HttpServletRequest request, Boolean toHuman, Boolean includeInteractors, String userFileName, boolean includeDisease){
         AnalysisType type =  userData.getExpressionColumnNames().isEmpty() ? AnalysisType.OVERREPRESENTATION : AnalysisType.EXPRESSION;
         ReportParameters reportParams = new ReportParameters(type, toHuman, includeInteractors);
-        SpeciesNode speciesNode = toHuman ? SpeciesNodeFactory.getHumanNode() : null;
         if(Tokenizer.hasToken(userData.getInputMD5(), toHuman, includeInteractors)){
             String token = Tokenizer.getOrCreateToken(userData.getInputMD5(), toHuman, includeInteractors);
-            AnalysisSummary summary = tokenUtils.getAnalysisSummary(token, toHuman, includeInteractors, userData.getSampleName(), type, userFileName, getServerName(request), includeDisease);
             try {
                 String fileName = tokenUtils.getFileName(token);
                 return ResultDataUtils.getAnalysisResult(fileName, reportParams);
             } catch (FileNotFoundException e) {
                 logger.trace("No TOKEN found. Analysing...");
-                return analyse(summary, userData, speciesNode, includeInteractors, reportParams);
             } catch (Exception e){
                 logger.warn("Cannot retrieve the result from the MD5 token. Analysing again...");
             }
         }
+        AnalysisJob job = submit(userData, type, reportParams, getServerName(request), toHuman, includeInteractors, userFileName, includeDisease);
+        return analysisJobManager.await(job);
+    }
+
+    /**
+     * Queues the analysis and returns straight away. The returned job contains the token where the result
+     * will be available once the job status is DONE. In case the result for the same input was already
+     * stored, the returned job is DONE.
+     */
+    public AnalysisJob analyseAsync(UserData userData, HttpServletRequest request, Boolean toHuman, Boolean includeInteractors, String userFileName, boolean includeDisease){
+        return analyseAsync(userData, getServerName(request), toHuman, includeInteractors, userFileName, includeDisease);
+    }
+
+    /**
+     * Analyses several samples in parallel. Every sample is queued before waiting for any of them, so the
+     * samples run concurrently in the analysis workers. Failures are reported per sample.
+     */
+    public List<AnalysisSampleResult> analyse(List<AnalysisSample> samples, HttpServletRequest request, boolean toHuman, boolean includeInteractors, boolean includeDisease){
+        if (samples == null || samples.isEmpty()) throw new DataFormatException("No samples provided");
+        if (samples.size() > maxBatchSamples) {
+            throw new DataFormatException("A maximum of " + maxBatchSamples + " samples can be analysed at once");
+        }
+        String serverName = getServerName(request);
+        List<AnalysisSampleResult> rtn = new ArrayList<>();
+        Map<AnalysisSampleResult, AnalysisJob> jobs = new LinkedHashMap<>();
+        Map<AnalysisSampleResult, AnalysisSummary> summaries = new HashMap<>();
+        for (AnalysisSample sample : samples) {
+            AnalysisSampleResult result = new AnalysisSampleResult(sample.getName());
+            rtn.add(result);
+            try {
+                UserData ud = getUserData(sample.getData());
+                AnalysisJob job = analyseAsync(ud, serverName, toHuman, includeInteractors, sample.getName(), includeDisease);
+                jobs.put(result, job);
+                //Samples with the same data share the job (and the stored result), but each one keeps its own summary
+                summaries.put(result, tokenUtils.getAnalysisSummary(job.getToken(), toHuman, includeInteractors,
+                        ud.getSampleName(), getAnalysisType(ud), sample.getName(), serverName, includeDisease));
+            } catch (AnalysisServiceException e) {
+                result.setError(new AnalysisError(e));
+            } catch (RejectedExecutionException e) {
+                result.setError(new AnalysisError(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage()));
+            }
+        }
+        jobs.forEach((result, job) -> {
+            try {
+                AnalysisStoredResult asr = job.getFuture() == null ? analysisResultCache.getFromToken(job.getToken()) : analysisJobManager.await(job);
+                result.setResult(summaries.get(result), asr);
+            } catch (AnalysisServiceException e) {
+                result.setError(new AnalysisError(e));
+            } catch (RejectedExecutionException e) {
+                result.setError(new AnalysisError(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage()));
+            } catch (RuntimeException e) {
+                logger.error("Error analysing sample '" + result.getName() + "'", e);
+                result.setError(new AnalysisError(HttpStatus.INTERNAL_SERVER_ERROR, "The sample could not be analysed"));
+            }
+        });
+        return rtn;
+    }
+
+    private AnalysisJob analyseAsync(UserData userData, String serverName, Boolean toHuman, Boolean includeInteractors, String userFileName, boolean includeDisease){
+        AnalysisType type = getAnalysisType(userData);
+        String token = getExistingToken(userData.getInputMD5(), toHuman, includeInteractors);
+        if (token != null) return AnalysisJob.done(token);
+        ReportParameters reportParams = new ReportParameters(type, toHuman, includeInteractors);
+        return submit(userData, type, reportParams, serverName, toHuman, includeInteractors, userFileName, includeDisease);
+    }
+
+    private static AnalysisType getAnalysisType(UserData userData){
+        return userData.getExpressionColumnNames().isEmpty() ? AnalysisType.OVERREPRESENTATION : AnalysisType.EXPRESSION;
+    }
+
+    /**
+     * @return the token of a stored result for the given input MD5 or null if there is none
+     */
+    private String getExistingToken(String md5, boolean toHuman, boolean includeInteractors){
+        if (md5 != null && Tokenizer.hasToken(md5, toHuman, includeInteractors)) {
+            String token = Tokenizer.getOrCreateToken(md5, toHuman, includeInteractors);
+            try {
+                tokenUtils.getFileName(token);
+                return token;
+            } catch (FileNotFoundException e) {
+                logger.trace("No TOKEN found. Queueing the analysis...");
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the status of the job associated to the token. If the job is no longer tracked but there is
+     * a result stored for the token, the job is reported as DONE
+     * @throws ResourceNotFoundException if there is no job or result for the token
+     */
+    public AnalysisJob getJob(String token){
+        AnalysisJob job = analysisJobManager.getJob(token);
+        if (job != null) return job;
+        try {
+            tokenUtils.getFileName(token);
+            return AnalysisJob.done(token);
+        } catch (FileNotFoundException e) {
+            throw new ResourceNotFoundException();
+        }
+    }
+
+    private AnalysisJob submit(UserData userData, AnalysisType type, ReportParameters reportParams, String serverName, Boolean toHuman, Boolean includeInteractors, String userFileName, boolean includeDisease){
+        SpeciesNode speciesNode = toHuman ? SpeciesNodeFactory.getHumanNode() : null;
         String token = Tokenizer.getOrCreateToken(userData.getInputMD5(), toHuman, includeInteractors);
-        AnalysisSummary summary = tokenUtils.getAnalysisSummary(token, toHuman, includeInteractors, userData.getSampleName(), type, userFileName, getServerName(request), includeDisease);
-        return analyse(summary, userData, speciesNode, includeInteractors, reportParams);
+        //The server name is worked out in the request thread since the request is recycled once the response is sent
+        AnalysisSummary summary = tokenUtils.getAnalysisSummary(token, toHuman, includeInteractors, userData.getSampleName(), type, userFileName, serverName, includeDisease);
+        //The summary (file name and includeDisease) is part of the stored result, so only identical ones are coalesced
+        String key = String.join("#", userData.getInputMD5(), toHuman.toString(), includeInteractors.toString(), type.name(),
+                Boolean.toString(includeDisease), Objects.toString(userFileName, ""));
+        return analysisJobManager.submit(key, token, () -> analyse(summary, userData, speciesNode, includeInteractors, reportParams));
     }
 
     public AnalysisStoredResult compareSpecies(Long from, Long to, HttpServletRequest request){
@@ -166,7 +321,8 @@ public class AnalysisHelper {
             identifiers.add(identifier.getId());
         }
         SpeciesNode speciesNode = toHuman ? SpeciesNodeFactory.getHumanNode() : null;
-        return identifiersMapping.run(identifiers, speciesNode, includeInteractors, importableOnly);
+        return identifierMappingCache.getMapping(identifiers, toHuman, includeInteractors, importableOnly,
+                missing -> identifiersMapping.run(missing, speciesNode, includeInteractors, importableOnly));
     }
 
     public <T> List<T> filter(List<T> list, Integer pageSize, Integer page){
@@ -187,26 +343,14 @@ public class AnalysisHelper {
     }
 
     public List<String> getInputIdentifiers(String input){
-        List<String> rtn = new LinkedList<>();
-        if(input.contains("=")) input = input.split("=")[1];
-        for (String line : input.split("\n")) {
-            if(line.isEmpty()) continue;
-            for (String value : line.split(",")) {
-                String id = value.trim();
-                if (id.startsWith("R-")) {
-                    rtn.add(id);
-                } else {
-                    try {
-                        //Next one is to ensure that if it doesn't start with R- at least is a valid db_id (is Long)
-                        rtn.add(Long.valueOf(id).toString());
-                    } catch (NumberFormatException e) {
-                        //Nothing here because
-                        //throw new ResourceNotFoundException(); is not longer needed
-                    }
-                }
-            }
-        }
-        return rtn;
+        return getInputIdentifiers(new StringReader(input));
+    }
+
+    /**
+     * @param input the identifiers of the pathways of interest (see InputIdentifiersParser for the accepted formats)
+     */
+    public List<String> getInputIdentifiers(Reader input){
+        return InputIdentifiersParser.parse(input);
     }
 
     public UserData getUserData(String input){
@@ -222,45 +366,112 @@ public class AnalysisHelper {
     public UserData getUserData(MultipartFile file){
         if(!file.isEmpty()){
             try {
-                String mimeType = detectMimeType(TikaInputStream.get(file.getInputStream()));
-                if(!isAcceptedContentType(mimeType, "text/plain")){
-                    throw new UnsupportedMediaTypeException();
-                }
-
-                return InputUtils.getUserData(file.getInputStream());
+                return getUserData(new BufferedInputStream(file.getInputStream(), MimeTypeDetector.SNIFF_BLOCK_SIZE));
             } catch (IOException e) {
                 throw new UnsupportedMediaTypeException();
-            } catch (ParserException e) {
-                throw new DataFormatException(e.getErrorMessages());
             }
         }
         throw new UnsupportedMediaTypeException();
     }
 
-    public UserData getUserDataFromURL(String url){
-        if(url!=null && !url.isEmpty()) {
+    /**
+     * @param input a (possibly compressed) stream supporting mark/reset with the data to be analysed
+     */
+    public UserData getUserData(InputStream input){
+        //The input is read once: the first block is sniffed and the same (decompressed) stream is then parsed as it is read
+        try (InputStream is = inputDecompressor.decompress(input)) {
+            String mimeType = mimeTypeDetector.detect(is);
+            if(MimeTypeDetector.EXPRESSION_MATRIX.equals(mimeType)){
+                return ExpressionMatrixReader.read(is);
+            }
+            if(!isAcceptedContentType(mimeType, "text/plain")){
+                throw new UnsupportedMediaTypeException();
+            }
+
+            return UserDataReader.read(is);
+        } catch (IOException e) {
+            throw new UnsupportedMediaTypeException();
+        }
+    }
+
+    /**
+     * @return one sample per file, named after the file
+     */
+    public List<AnalysisSample> getSamples(MultipartFile[] files){
+        List<AnalysisSample> rtn = new ArrayList<>();
+        for (MultipartFile file : files) {
+            if (file.isEmpty()) continue;
             try {
-                //return InputUtils.getUserData(getUrlInputStream(url, "text/plain"));
-                return InputUtils.getUserData(getUrlInputStream(url));
+                byte[] content;
+                try (InputStream is = inputDecompressor.decompress(new BufferedInputStream(file.getInputStream(), MimeTypeDetector.SNIFF_BLOCK_SIZE))) {
+                    content = is.readAllBytes();
+                }
+                String mimeType = mimeTypeDetector.detect(content);
+                if(!isAcceptedContentType(mimeType, "text/plain")){
+                    throw new UnsupportedMediaTypeException();
+                }
+                rtn.add(new AnalysisSample(file.getOriginalFilename(), new String(content, Charset.defaultCharset())));
             } catch (IOException e) {
                 throw new UnsupportedMediaTypeException();
-            } catch (ParserException e) {
-                throw new DataFormatException(e.getErrorMessages());
             }
         }
-        throw new UnsupportedMediaTypeException();
+        return rtn;
+    }
+
+    /**
+     * The url content is retrieved (and parsed) by the UrlFetcher, off the request thread
+     */
+    public CompletableFuture<UserData> getUserDataFromURL(String url){
+        return urlFetcher.fetch(url, this::getUserData);
+    }
+
+    /**
+     * Retrieves the url content and queues its analysis. Neither the request thread nor the fetcher one wait for
+     * the analysis to finish: the returned future completes once it is done
+     */
+    public CompletableFuture<AnalysisStoredResult> analyseURL(String url, HttpServletRequest request, boolean toHuman, boolean includeInteractors, boolean includeDisease){
+        String serverName = getServerName(request);
+        String fileName = getFileNameFromURL(url);
+        return urlFetcher.fetch(url, content -> {
+            //Unchanged content analysed before goes straight to its token, without parsing it again
+            String token = content.isNotModified() ? getExistingToken(content.getDigest(USER_DATA_DIGEST), toHuman, includeInteractors) : null;
+            if (token != null) return AnalysisJob.done(token);
+            return analyseAsync(getUserData(content), serverName, toHuman, includeInteractors, fileName, includeDisease);
+        }).thenCompose(job -> {
+            if (job.getFuture() != null) return job.getFuture();
+            return CompletableFuture.completedFuture(analysisResultCache.getFromToken(job.getToken()));
+        });
+    }
+
+    private UserData getUserData(UrlFetcher.UrlContent content) {
+        try (InputStream is = inputDecompressor.decompress(new BufferedInputStream(content.getInputStream(), MimeTypeDetector.SNIFF_BLOCK_SIZE))) {
+            boolean matrix = MimeTypeDetector.EXPRESSION_MATRIX.equals(mimeTypeDetector.detect(is));
+            UserData ud = matrix ? ExpressionMatrixReader.read(is) : InputUtils.getUserData(is);
+            content.setDigest(USER_DATA_DIGEST, ud.getInputMD5());
+            return ud;
+        } catch (IOException e) {
+            throw new UnsupportedMediaTypeException();
+        } catch (ParserException e) {
+            throw new DataFormatException(e.getErrorMessages());
+        }
     }
 
     public AnalysisStoredResult getAnalysisStoredResult(String json, HttpServletRequest request) {
+        return getAnalysisStoredResult(json, getServerName(request));
+    }
+
+    private AnalysisStoredResult getAnalysisStoredResult(String json, String serverName) {
         try {
             ExternalAnalysisResult result = InputUtils.getExternalAnalysisResult(json);
             List<String> messages = externalAnalysisResultCheck.isValid(result);
             if (messages.isEmpty()) {
                 String md5 = DigestUtils.md5DigestAsHex(json.getBytes());
                 String newToken = Tokenizer.getOrCreateToken(md5, false, false);
-                result.getSummary().setServer(getServerName(request));
+                result.getSummary().setServer(serverName);
                 final AnalysisStoredResult analysisStoredResult = new AnalysisStoredResult(newToken, result);
                 tokenUtils.saveResult(analysisStoredResult);
+                sortIndexStore.save(analysisStoredResult);
+                sizeHistogramStore.save(analysisStoredResult);
                 return analysisStoredResult;
             }
             throw new DataFormatException(messages);
@@ -272,7 +483,7 @@ public class AnalysisHelper {
     public AnalysisStoredResult getAnalysisStoredResult(MultipartFile file, HttpServletRequest request){
         if (!file.isEmpty()) {
             try {
-                return getAnalysisStoredResult(file.getInputStream(), request);
+                return getAnalysisStoredResult(file.getInputStream(), getServerName(request));
             } catch (IOException e) {
                 throw new UnsupportedMediaTypeException();
             }
@@ -280,72 +491,55 @@ public class AnalysisHelper {
         throw new UnsupportedMediaTypeException();
     }
 
-    public AnalysisStoredResult getAnalysisResultFromURL(String url, HttpServletRequest request){
-        return getAnalysisStoredResult(getUrlInputStream(url), request);
+    public CompletableFuture<AnalysisStoredResult> getAnalysisResultFromURL(String url, HttpServletRequest request){
+        String serverName = getServerName(request);
+        return urlFetcher.fetch(url, content -> {
+            //Unchanged content imported before goes straight to its token
+            String token = content.isNotModified() ? getExistingToken(content.getDigest(IMPORT_DIGEST), false, false) : null;
+            if (token != null) return analysisResultCache.getFromToken(token);
+            String json = readExternalResult(content.getInputStream());
+            content.setDigest(IMPORT_DIGEST, DigestUtils.md5DigestAsHex(json.getBytes()));
+            return getAnalysisStoredResult(json, serverName);
+        });
     }
 
 
-    private AnalysisStoredResult getAnalysisStoredResult(InputStream input, HttpServletRequest request) {
+    private AnalysisStoredResult getAnalysisStoredResult(InputStream input, String serverName) {
+        return getAnalysisStoredResult(readExternalResult(input), serverName);
+    }
+
+    /**
+     * @return the json of an external result (it can be gzipped or zipped)
+     */
+    private String readExternalResult(InputStream input) {
         try {
             String json = null;
-            //When reading from URL, TikaInputStream closes the stream. This is a trick to have fun fun fun
             final byte[] bytes = IOUtils.toByteArray(input);
-            String mimeType = detectMimeType(TikaInputStream.get(bytes));
+            String mimeType = mimeTypeDetector.detect(bytes);
             input = new ByteArrayInputStream(bytes);
             if (isAcceptedContentType(mimeType, "application/zip")) {
                 final ZipInputStream zis = new ZipInputStream(input);
                 if (zis.getNextEntry() != null) {
                     json = IOUtils.toString(zis, Charset.defaultCharset());
-                    final InputStream dataInputStream = new ByteArrayInputStream(json.getBytes());
-                    mimeType = detectMimeType(TikaInputStream.get(dataInputStream));
+                    mimeType = mimeTypeDetector.detect(json.getBytes());
                 }
                 zis.close();
             } else if (isAcceptedContentType(mimeType, "application/gzip", "application/octet-stream")) {
                 final GZIPInputStream inputStream = new GZIPInputStream(input);
                 json = IOUtils.toString(inputStream, Charset.defaultCharset());
-                final InputStream dataInputStream = new ByteArrayInputStream(json.getBytes());
-                mimeType = detectMimeType(TikaInputStream.get(dataInputStream));
+                mimeType = mimeTypeDetector.detect(json.getBytes());
             } else {
                 json = IOUtils.toString(input, Charset.defaultCharset());
             }
             if (json == null || !isAcceptedContentType(mimeType, "text/plain", "application/json")) {
                 throw new UnsupportedMediaTypeException();
             }
-            return getAnalysisStoredResult(json, request);
+            return json;
         } catch (IOException e) {
             throw new UnsupportedMediaTypeException();
         }
     }
 
-    private InputStream getUrlInputStream(String url){ //, String... accepts){
-        if(url!=null && !url.isEmpty()) {
-            InputStream is;
-            try {
-                HttpURLConnection conn;
-                URL aux = new URL(url);
-                if(aux.getProtocol().contains("https")){
-                    doTrustToCertificates(); //accepting the certificate by default
-                    HttpsURLConnection tmpConn = (HttpsURLConnection) aux.openConnection();
-                    is = tmpConn.getInputStream();
-                    conn = tmpConn;
-                }else{
-                    URLConnection tmpConn = aux.openConnection();
-                    is = tmpConn.getInputStream();
-                    conn = (HttpURLConnection) tmpConn;
-                }
-
-                if(conn.getContentLength() > multipartResolver.getFileUpload().getSizeMax()){
-                    throw new RequestEntityTooLargeException();
-                }
-            } catch (IOException | NoSuchAlgorithmException | KeyManagementException e) {
-
-                throw new UnprocessableEntityException();
-            }
-            return is;
-        }
-        throw new UnsupportedMediaTypeException();
-    }
-
     public String getFileNameFromURL(String url){
         String name = "";
         if(url!=null && !url.isEmpty()) {
@@ -381,6 +575,9 @@ public class AnalysisHelper {
         result.setSummary(summary);
         result.setHitPathways(resAux.getUniqueHitPathways(speciesNode));
         tokenUtils.saveResult(result);
+        sortIndexStore.save(result);
+        sizeHistogramStore.save(result);
+        analysisResultCache.put(result);
 
         //Report
         reportParams.setAnalysisStoredResult(result);
@@ -390,52 +587,6 @@ public class AnalysisHelper {
         return result;
     }
 
-    // trusting all certificate
-    @SuppressWarnings("Duplicates")
-    private void doTrustToCertificates() throws NoSuchAlgorithmException, KeyManagementException {
-        Security.addProvider(Security.getProvider("SunJSSE"));
-        TrustManager[] trustAllCerts = new TrustManager[]{
-                new X509TrustManager() {
-                    public X509Certificate[] getAcceptedIssuers() {
-                        return null;
-                    }
-
-                    public void checkServerTrusted(X509Certificate[] certs, String authType) {}
-
-                    public void checkClientTrusted(X509Certificate[] certs, String authType) {}
-                }
-        };
-
-        SSLContext sc = SSLContext.getInstance("SSL");
-        sc.init(null, trustAllCerts, new SecureRandom());
-        HttpsURLConnection.setDefaultSSLSocketFactory(sc.getSocketFactory());
-        HostnameVerifier hv = (urlHostName, session) -> {
-            if (!urlHostName.equalsIgnoreCase(session.getPeerHost())) {
-                logger.warn("Warning: URL host '" + urlHostName + "' is different to SSLSession host '" + session.getPeerHost() + "'.");
-            }
-            return true;
-        };
-        HttpsURLConnection.setDefaultHostnameVerifier(hv);
-    }
-
-    /**
-     * Detect MimeType using apache tika.
-     * jMimeMagic has failed when analysing the PSIMITAB .txt file export from IntAct page
-     *
-     * @throws IOException if the document input stream could not be read
-     */
-    private String detectMimeType(TikaInputStream tikaInputStream) throws IOException {
-        final Detector DETECTOR = new DefaultDetector(MimeTypes.getDefaultMimeTypes());
-
-        try {
-            return DETECTOR.detect(tikaInputStream, new Metadata()).toString();
-        } finally {
-            if (tikaInputStream != null) {
-                tikaInputStream.close();
-            }
-        }
-    }
-
     private boolean isAcceptedContentType(String contentType, String... accepts){
         return contentType == null || Arrays.stream(accepts).anyMatch(contentType::contains);
     }
@@ -0,0 +1,161 @@
+package org.reactome.server.analysis.service.helper;
+
+import org.reactome.server.analysis.core.result.AnalysisStoredResult;
+import org.reactome.server.analysis.service.model.AnalysisJob;
+import org.reactome.server.analysis.service.model.AnalysisJobStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs the analysis on a dedicated bounded pool of workers so the servlet threads are not pinned
+ * by big submissions. When the queue is full new submissions are rejected (RejectedExecutionException)
+ * and the client receives a 503 (see HandlerExceptionResolverImpl).
+ * <p>
+ * Both the synchronous and the asynchronous endpoints go through here; the former just wait for the job
+ * (or chain to its future, as the url based ones do).
+ */
+@Component
+public class AnalysisJobManager {
+
+    private static final Logger logger = LoggerFactory.getLogger("threadLogger");
+
+    // Finished jobs are kept for a while so /token/{token}/status can report timings and errors
+    private static final long FINISHED_JOB_TTL = 1000 * 60 * 60; // 1 hour
+
+    private final ThreadPoolExecutor executor;
+
+    // Maximum time (seconds) the synchronous requests wait for their analysis
+    private final long timeout;
+
+    private final Map<String, AnalysisJob> jobs = new ConcurrentHashMap<>();
+
+    // Jobs queued or running, by analysis key, used to coalesce identical concurrent submissions
+    private final Map<String, AnalysisJob> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public AnalysisJobManager(@Value("${analysis.jobs.threads:0}") Integer threads,
+                              @Value("${analysis.jobs.queue.size:100}") Integer queueSize,
+                              @Value("${analysis.jobs.timeout:300}") Long timeout) {
+        this.timeout = timeout;
+        int workers = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                r -> new Thread(r, "AS-AnalysisWorker-" + count.incrementAndGet()));
+        logger.info(String.format("Analysis-Service job manager started with %d workers and a queue of %d", workers, queueSize));
+    }
+
+    /**
+     * Queues the analysis for the given token. Concurrent submissions of the same analysis (same key) are
+     * coalesced: rather than running it again, the job already in progress is returned so all the callers
+     * share its result.
+     *
+     * @param key      identifies the analysis (input MD5, projection, interactors, analysis type and summary)
+     * @param token    the token the result will be stored under
+     * @param analysis the actual analysis (it is expected to store the result)
+     * @return the job tracking the analysis
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public AnalysisJob submit(String key, String token, Callable<AnalysisStoredResult> analysis) {
+        purge();
+        boolean[] created = {false};
+        AnalysisJob job = inFlight.computeIfAbsent(key, k -> {
+            created[0] = true;
+            return start(k, token, analysis);
+        });
+        if (created[0]) {
+            submitted.increment();
+        } else {
+            coalesced.increment();
+            logger.debug("Analysis for " + token + " already in progress. Waiting for it...");
+        }
+        return job;
+    }
+
+    private AnalysisJob start(String key, String token, Callable<AnalysisStoredResult> analysis) {
+        AnalysisJob job = new AnalysisJob(token);
+        CompletableFuture<AnalysisStoredResult> future = new CompletableFuture<>();
+        job.setFuture(future);
+        try {
+            executor.execute(() -> {
+                job.setRunning();
+                try {
+                    AnalysisStoredResult result = analysis.call();
+                    job.setDone();
+                    future.complete(result);
+                } catch (Exception | Error e) {
+                    job.setFailed(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+                    future.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(key, job);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            logger.warn("Analysis queue is full. Rejecting the analysis for " + token);
+            throw new RejectedExecutionException("The analysis queue is full. Please try again later");
+        }
+        jobs.put(token, job);
+        return job;
+    }
+
+    /**
+     * Blocks until the job finishes or the timeout is reached. In the latter the job keeps running, so its result
+     * will be available under its token once it is done
+     *
+     * @return the result of the analysis
+     * @throws RejectedExecutionException if the analysis does not finish in time
+     */
+    public AnalysisStoredResult await(AnalysisJob job) {
+        try {
+            return job.getFuture().get(timeout, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            logger.warn("The analysis for " + job.getToken() + " did not finish in " + timeout + " seconds");
+            throw new RejectedExecutionException("The analysis is taking longer than " + timeout + " seconds. Its result " +
+                    "will be available for the token " + job.getToken() + " once it finishes (see /token/" + job.getToken() + "/status)");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the analysis of " + job.getToken());
+        }
+    }
+
+    /**
+     * @return the job for the given token or null if there is no track of it (it might have been
+     * run before the last restart or purged already)
+     */
+    public AnalysisJob getJob(String token) {
+        return jobs.get(token);
+    }
+
+    public AnalysisJobStatistics getStatistics() {
+        return new AnalysisJobStatistics(executor.getMaximumPoolSize(), executor.getActiveCount(), executor.getQueue().size(),
+                executor.getQueue().remainingCapacity(), submitted.sum(), coalesced.sum(), rejected.sum());
+    }
+
+    private void purge() {
+        long limit = System.currentTimeMillis() - FINISHED_JOB_TTL;
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinished() != null && job.getFinished() < limit);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        logger.info("Analysis-Service job manager stopped");
+    }
+}
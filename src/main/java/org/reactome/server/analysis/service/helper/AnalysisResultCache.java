@@ -0,0 +1,113 @@
+package org.reactome.server.analysis.service.helper;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.reactome.server.analysis.core.result.AnalysisStoredResult;
+import org.reactome.server.analysis.core.result.utils.TokenUtils;
+import org.reactome.server.analysis.service.model.CacheStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+
+/**
+ * Keeps the most used analysis results in memory so the PathwayBrowser bursts of requests for the same
+ * token do not deserialise the stored result every time. Caffeine's W-TinyLFU policy takes into account
+ * both frequency and recency, so a one-off download does not push out the results being browsed.
+ * <p>
+ * The cache is bounded in bytes. As the actual footprint of a deserialised result cannot be measured
+ * cheaply, it is estimated from the size of the stored file multiplied by a factor.
+ * <p>
+ * The same instance is handed to every request for a token, so it must be treated as read-only: the request
+ * options are never set on it (see {@link ResultPropertyFilter}) and anything sorting its pathways works on a copy.
+ */
+@Component
+public class AnalysisResultCache {
+
+    private static final Logger logger = LoggerFactory.getLogger("analysisLogger");
+
+    private TokenUtils tokenUtils;
+
+    private final Cache<String, CachedResult> cache;
+    private final long maxBytes;
+    private final double weightFactor;
+
+    public AnalysisResultCache(@Value("${analysis.cache.max.bytes:1073741824}") Long maxBytes,
+                               @Value("${analysis.cache.weight.factor:4}") Double weightFactor) {
+        this.maxBytes = maxBytes;
+        this.weightFactor = weightFactor;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String token, CachedResult result) -> result.weight)
+                .recordStats()
+                .build();
+    }
+
+    @Autowired
+    public void setTokenUtils(TokenUtils tokenUtils) {
+        this.tokenUtils = tokenUtils;
+    }
+
+    /**
+     * Same contract as TokenUtils.getFromToken (ResourceNotFoundException and ResourceGoneException are
+     * thrown when the result is not available) but served from memory when possible
+     */
+    public AnalysisStoredResult getFromToken(String token) {
+        return cache.get(token, t -> new CachedResult(tokenUtils.getFromToken(t), getFile(t))).result;
+    }
+
+    /**
+     * Adds a result that has just been stored, since it is very likely to be requested straight away
+     */
+    public void put(AnalysisStoredResult result) {
+        String token = result.getSummary().getToken();
+        File file = getFile(token);
+        if (file != null) cache.put(token, new CachedResult(result, file));
+    }
+
+    /**
+     * Removes the cached result associated to the stored file (called when the file is deleted)
+     */
+    public void invalidateFile(String fileName) {
+        String name = new File(fileName).getName();
+        cache.asMap().values().removeIf(cached -> cached.fileName != null && cached.fileName.equals(name));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public CacheStatistics getStatistics() {
+        CacheStats stats = cache.stats();
+        long weightedSize = cache.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L);
+        return new CacheStatistics(cache.estimatedSize(), weightedSize, maxBytes, stats.hitCount(), stats.missCount(),
+                stats.hitRate(), stats.evictionCount(), stats.evictionWeight());
+    }
+
+    private File getFile(String token) {
+        try {
+            return new File(tokenUtils.getFileName(token));
+        } catch (FileNotFoundException e) {
+            logger.warn("No file found for token " + token);
+            return null;
+        }
+    }
+
+    private class CachedResult {
+        private final AnalysisStoredResult result;
+        private final String fileName;
+        private final int weight;
+
+        CachedResult(AnalysisStoredResult result, File file) {
+            this.result = result;
+            this.fileName = file != null ? file.getName() : null;
+            long estimated = file != null ? (long) (file.length() * weightFactor) : 0L;
+            this.weight = (int) Math.min(Integer.MAX_VALUE, Math.max(1L, estimated));
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.reactome.server.analysis.service.helper;
+
+import org.reactome.server.analysis.core.result.AnalysisStoredResult;
+import org.reactome.server.analysis.core.result.PathwayNodeSummary;
+import org.reactome.server.analysis.core.result.exception.DataFormatException;
+import org.reactome.server.analysis.core.result.model.AnalysisResult;
+import org.reactome.server.analysis.core.result.model.PathwaySummary;
+
+import java.lang.ref.WeakReference;
+import java.util.*;
+
+/**
+ * A filtered result whose pathways are already sorted for one sorting criteria. The pathways are sorted only
+ * once when the view is created (or arranged following the index stored with the result) and the pages are
+ * sliced from that list, so retrieving a page takes as long as building its rows and the page where a pathway
+ * is located is resolved from the index straight away.
+ * <p>
+ * Nothing is modified once the view is created, so it is shared by the concurrent requests without locks.
+ */
+public class AnalysisView {
+
+    // Only used to tell whether the view is still valid, so it does not keep an evicted result in memory
+    private final WeakReference<AnalysisStoredResult> source;
+    private final AnalysisStoredResult filtered;
+
+    // The pathways for the resource in the order of the view and the position of each of them (by stId and dbId)
+    private final List<PathwayNodeSummary> sorted;
+    private final Map<String, Integer> positions;
+    private final boolean interactors;
+
+    /**
+     * @param indexed the filtered pathways already sorted (i.e. by the SortIndexStore) or null to sort them here
+     */
+    AnalysisView(AnalysisStoredResult source, AnalysisStoredResult filtered, List<PathwayNodeSummary> indexed, String sortBy, String order, String resource) {
+        this.source = new WeakReference<>(source);
+        this.filtered = filtered;
+        this.interactors = filtered.getSummary().isInteractors();
+
+        //The pathways of the filtered result are not modified, so the view is sorted in a list of its own
+        List<PathwayNodeSummary> pathways = indexed;
+        if (pathways == null) {
+            pathways = new ArrayList<>(filtered.getPathways());
+            pathways.sort(DownloadHelper.getComparator(sortBy, order, resource));
+        }
+
+        this.sorted = new ArrayList<>(DownloadHelper.filterPathwaysByResource(pathways, resource));
+        this.positions = new HashMap<>(sorted.size() * 4);
+        int i = 0;
+        for (PathwayNodeSummary pathway : sorted) {
+            positions.putIfAbsent(pathway.getStId(), i);
+            positions.putIfAbsent(pathway.getPathwayId().toString(), i);
+            i++;
+        }
+    }
+
+    /**
+     * @return true if the view was created from the given result
+     */
+    boolean isViewOf(AnalysisStoredResult asr) {
+        return source.get() == asr;
+    }
+
+    /**
+     * @return the given page or, when no pageSize is specified, all the pathways of the view
+     */
+    public AnalysisResult getResultSummary(String resource, Integer pageSize, Integer page, boolean importableOnly) {
+        int from = 0, to = sorted.size();
+        if (pageSize != null) {
+            from = Math.min(to, (Math.max(page != null ? page : 1, 1) - 1) * Math.max(pageSize, 0));
+            to = Math.min(to, from + Math.max(pageSize, 0));
+        }
+        return new AnalysisResult(filtered, getPathwaySummaries(from, to, resource, importableOnly));
+    }
+
+    /**
+     * @return the page where the pathway is located or -1 if it is not part of the view
+     */
+    public int getPage(String pathway, Integer pageSize) {
+        Integer position = positions.get(pathway);
+        if (position == null) return -1;
+        return pageSize != null && pageSize > 0 ? position / pageSize + 1 : 1;
+    }
+
+    public int size() {
+        return sorted.size();
+    }
+
+    public boolean hasPathwaysAfter(String pathway) {
+        Integer position = positions.get(pathway);
+        return position != null && position + 1 < sorted.size();
+    }
+
+    /**
+     * @param pathway the last pathway (stId or dbId) already retrieved or null to start from the first one
+     * @return up to count pathways following the given one (in the order of the view)
+     * @throws DataFormatException if the pathway is not part of the view
+     */
+    public List<PathwaySummary> getPathwaysAfter(String pathway, int count, String resource, boolean importableOnly) {
+        int from = 0;
+        if (pathway != null) {
+            Integer position = positions.get(pathway);
+            if (position == null) throw new DataFormatException("The cursor does not belong to this result or filter");
+            from = position + 1;
+        }
+        int to = Math.min(sorted.size(), from + Math.max(count, 0));
+        if (from >= to) return new ArrayList<>();
+        return getPathwaySummaries(from, to, resource, importableOnly);
+    }
+
+    private List<PathwaySummary> getPathwaySummaries(int from, int to, String resource, boolean importableOnly) {
+        String r = resource.toUpperCase();
+        List<PathwaySummary> rtn = new ArrayList<>(Math.max(to - from, 0));
+        for (PathwayNodeSummary pathway : sorted.subList(from, to)) {
+            rtn.add(new PathwaySummary(pathway, r, interactors, importableOnly));
+        }
+        return rtn;
+    }
+}
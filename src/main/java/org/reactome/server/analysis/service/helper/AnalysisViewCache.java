@@ -0,0 +1,113 @@
+package org.reactome.server.analysis.service.helper;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.reactome.server.analysis.core.result.AnalysisStoredResult;
+import org.reactome.server.analysis.core.result.PathwayNodeSummary;
+import org.reactome.server.analysis.core.result.utils.TokenUtils;
+import org.reactome.server.analysis.service.model.CacheStatistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Memoizes the filtered and sorted views of the results, so paging through a result (or looking for the page
+ * where a pathway is) does not filter and sort the whole list of pathways for every request.
+ * <p>
+ * The cache is bounded in bytes. A view keeps its filtered pathways alive even once the result has left the
+ * AnalysisResultCache, so its footprint is estimated from the number of pathways it contains.
+ */
+@Component
+public class AnalysisViewCache {
+
+    // Rough footprint of a pathway in a view: the pathway itself, its place in the sorted list and in the index
+    private static final long PATHWAY_BYTES = 1024;
+
+    private SortIndexStore sortIndexStore;
+    private TokenUtils tokenUtils;
+
+    private final Cache<String, CachedView> cache;
+    private final long maxBytes;
+
+    public AnalysisViewCache(@Value("${analysis.view.cache.max.bytes:268435456}") Long maxBytes,
+                             @Value("${analysis.view.cache.minutes:30}") Long minutes) {
+        this.maxBytes = maxBytes;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, CachedView cached) -> cached.weight)
+                .expireAfterAccess(minutes, TimeUnit.MINUTES)
+                .recordStats()
+                .build();
+    }
+
+    @Autowired
+    public void setSortIndexStore(SortIndexStore sortIndexStore) {
+        this.sortIndexStore = sortIndexStore;
+    }
+
+    @Autowired
+    public void setTokenUtils(TokenUtils tokenUtils) {
+        this.tokenUtils = tokenUtils;
+    }
+
+    public AnalysisView getView(AnalysisStoredResult asr, AnalysisFilter filter, String sortBy, String order) {
+        String key = String.join("|", filter.getKey(asr), Objects.toString(sortBy).toUpperCase(), Objects.toString(order).toUpperCase());
+        CachedView cached = cache.get(key, k -> createView(asr, filter, sortBy, order));
+        if (!cached.view.isViewOf(asr)) {
+            //The result has been reloaded (or created again) since the view was cached
+            cached = createView(asr, filter, sortBy, order);
+            cache.put(key, cached);
+        }
+        return cached.view;
+    }
+
+    /**
+     * Removes the views of the result stored in the file (called when the file is deleted)
+     */
+    public void invalidateFile(String fileName) {
+        String name = new File(fileName).getName();
+        cache.asMap().values().removeIf(cached -> cached.fileName != null && cached.fileName.equals(name));
+    }
+
+    public CacheStatistics getStatistics() {
+        CacheStats stats = cache.stats();
+        long weightedSize = cache.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L);
+        return new CacheStatistics(cache.estimatedSize(), weightedSize, maxBytes, stats.hitCount(), stats.missCount(),
+                stats.hitRate(), stats.evictionCount(), stats.evictionWeight());
+    }
+
+    private CachedView createView(AnalysisStoredResult asr, AnalysisFilter filter, String sortBy, String order) {
+        String token = asr.getSummary().getToken();
+        AnalysisStoredResult filtered = filter.apply(asr);
+        String resource = filter.getResource();
+        List<PathwayNodeSummary> indexed = sortIndexStore.sort(token, filtered.getPathways(), sortBy, order, resource);
+        return new CachedView(new AnalysisView(asr, filtered, indexed, sortBy, order, resource), getFileName(token), filtered.getPathways().size());
+    }
+
+    private String getFileName(String token) {
+        try {
+            return new File(tokenUtils.getFileName(token)).getName();
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static class CachedView {
+        private final AnalysisView view;
+        private final String fileName;
+        private final int weight;
+
+        CachedView(AnalysisView view, String fileName, int pathways) {
+            this.view = view;
+            this.fileName = fileName;
+            this.weight = (int) Math.min(Integer.MAX_VALUE, Math.max(1L, pathways * PATHWAY_BYTES));
+        }
+    }
+}
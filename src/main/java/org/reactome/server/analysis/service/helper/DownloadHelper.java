@@ -1,6 +1,5 @@
 package org.reactome.server.analysis.service.helper;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.reactome.server.analysis.core.model.AnalysisIdentifier;
 import org.reactome.server.analysis.core.model.AnalysisReaction;
 import org.reactome.server.analysis.core.model.PathwayNodeData;
@@ -14,18 +13,15 @@ import org.reactome.server.analysis.core.result.AnalysisSortType;
 import org.reactome.server.analysis.core.result.AnalysisStoredResult;
 import org.reactome.server.analysis.core.result.ComparatorFactory;
 import org.reactome.server.analysis.core.result.PathwayNodeSummary;
-import org.reactome.server.analysis.core.result.external.ExternalAnalysisResult;
 import org.reactome.server.analysis.core.result.model.AnalysisSummary;
 import org.reactome.server.analysis.core.result.report.AnalysisReport;
 import org.reactome.server.analysis.core.result.report.ReportParameters;
 import org.reactome.server.analysis.core.util.MapSet;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.FileSystemResource;
 import org.springframework.stereotype.Component;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.zip.GZIPOutputStream;
 
 /**
  * @author Antonio Fabregat <fabregat@ebi.ac.uk>
@@ -35,58 +31,46 @@ public class DownloadHelper {
 
     private static final String DELIMITER = ",";
 
-    private static final ObjectMapper mapper = new ObjectMapper();
+    // The rows are written to the response through a buffer of this size, so memory does not grow with the result
+    private static final int BUFFER_SIZE = 8192;
 
-    private static String downloadFileTempDir;
-
-    @Value("${analysis.export.temp.folder}")
-    public void setPath(String dir) {
-        DownloadHelper.downloadFileTempDir = dir;
-    }
-
-    public static FileSystemResource getHitPathwaysCVS(String filename, AnalysisStoredResult asr, String resource) throws IOException {
+    public static void writeHitPathwaysCSV(AnalysisStoredResult asr, String resource, OutputStream os) throws IOException {
         long start = System.currentTimeMillis();
-        String uuid = UUID.randomUUID().toString();
-        File f = new File(DownloadHelper.downloadFileTempDir + "/" + filename + "-" + uuid + ".csv");
-        FileWriter fw = new FileWriter(f);
+        Writer writer = getWriter(os);
 
-        List<PathwayNodeSummary> pathways = filterPathwaysByResource(asr.getPathways(), resource);
+        //The result might be shared with other requests (cached), so it is sorted in a copy of the list
+        List<PathwayNodeSummary> pathways = new ArrayList<>(filterPathwaysByResource(asr.getPathways(), resource));
         pathways.sort(getComparator("ENTITIES_PVALUE", "ASC", resource));
-        fw.write(getAnalysisResultHeader(asr));
+        writer.write(getAnalysisResultHeader(asr));
         if (resource.toUpperCase().equals("TOTAL")) {
             for (PathwayNodeSummary summary : pathways) {
-                fw.write(getPathwayNodeSummaryTotalRow(asr.getSummary(), summary));
+                writer.write(getPathwayNodeSummaryTotalRow(asr.getSummary(), summary));
             }
         } else {
             Resource r = ResourceFactory.getResource(resource);
             if (r instanceof MainResource) {
                 MainResource mainResource = (MainResource) r;
                 for (PathwayNodeSummary summary : pathways) {
-                    fw.write(getPathwayNodeSummaryResourceRow(asr.getSummary(), summary, mainResource));
+                    writer.write(getPathwayNodeSummaryResourceRow(asr.getSummary(), summary, mainResource));
                 }
             }
         }
-        fw.flush();
-        fw.close();
+        writer.flush();
 
         ReportParameters reportParams = new ReportParameters(asr);
         reportParams.setMilliseconds(System.currentTimeMillis() - start);
         AnalysisReport.reportResultDownload(reportParams);
-
-        return new FileSystemResource(f);
     }
 
-    public static FileSystemResource getIdentifiersFoundMappingCVS(String filename, AnalysisStoredResult asr, String resource) throws IOException {
+    public static void writeIdentifiersFoundMappingCSV(AnalysisStoredResult asr, String resource, OutputStream os) throws IOException {
         long start = System.currentTimeMillis();
-        String uuid = UUID.randomUUID().toString();
-        File f = new File(DownloadHelper.downloadFileTempDir + "/" + filename + "-" + uuid + ".csv");
-        FileWriter fw = new FileWriter(f);
+        Writer writer = getWriter(os);
         StringBuilder sb = new StringBuilder();
 
         MapSet<String, MainIdentifier> projection = new MapSet<>();
         if (resource.toUpperCase().equals("TOTAL")) {
             sb.append("Submitted identifier").append(DELIMITER).append("Found identifier").append(DELIMITER).append("Resource\n");
-            fw.write(sb.toString());
+            writer.write(sb.toString());
 
             MapSet<Identifier, MainIdentifier> aux = asr.getFoundEntitiesMap();
             for (Identifier identifier : aux.keySet()) {
@@ -99,12 +83,12 @@ public class DownloadHelper {
                     line.append(DELIMITER).append(mainIdentifier.getValue().getId());
                     line.append(DELIMITER).append(mainIdentifier.getResource().getName());
                     line.append("\n");
-                    fw.write(line.toString());
+                    writer.write(line.toString());
                 }
             }
         } else {
             sb.append("Submitted identifier").append(DELIMITER).append("Found identifier\n");
-            fw.write(sb.toString());
+            writer.write(sb.toString());
             Resource r = ResourceFactory.getResource(resource);
             if (r instanceof MainResource) {
                 MainResource mainResource = (MainResource) r;
@@ -118,62 +102,49 @@ public class DownloadHelper {
                         StringBuilder line = new StringBuilder(identifier);
                         line.append(DELIMITER).append(mainIdentifier.getValue().getId());
                         line.append("\n");
-                        fw.write(line.toString());
+                        writer.write(line.toString());
                     }
                 }
             }
         }
-        fw.flush();
-        fw.close();
+        writer.flush();
 
         ReportParameters reportParams = new ReportParameters(asr);
         reportParams.setMilliseconds(System.currentTimeMillis() - start);
         AnalysisReport.reportMappingDownload(reportParams);
-
-        return new FileSystemResource(f);
-    }
-
-    public static FileSystemResource getExternalResultsGZIP(String filename, ExternalAnalysisResult er) throws IOException {
-        String uuid = UUID.randomUUID().toString();
-        File f = new File(DownloadHelper.downloadFileTempDir + "/" + filename + "-" + uuid + ".csv");
-        String json = mapper.writeValueAsString(er);
-        OutputStream os = new FileOutputStream(f);
-        GZIPOutputStream gzipOutputStream = new GZIPOutputStream(os);
-        gzipOutputStream.write(json.getBytes());
-        gzipOutputStream.flush();
-        gzipOutputStream.close();
-        return new FileSystemResource(f);
     }
 
-    public static FileSystemResource getNotFoundIdentifiers(String filename, AnalysisStoredResult asr) throws IOException {
+    public static void writeNotFoundIdentifiersCSV(AnalysisStoredResult asr, OutputStream os) throws IOException {
         long start = System.currentTimeMillis();
-        String uuid = UUID.randomUUID().toString();
-        File f = new File(DownloadHelper.downloadFileTempDir + "/" + filename + "-" + uuid + ".csv");
-        FileWriter fw = new FileWriter(f);
+        Writer writer = getWriter(os);
 
         StringBuilder sb = new StringBuilder("Not found");
         for (String col : asr.getExpressionSummary().getColumnNames()) {
             sb.append(DELIMITER).append(col);
         }
         sb.append("\n");
-        fw.write(sb.toString());
+        writer.write(sb.toString());
 
         for (AnalysisIdentifier analysisIdentifier : asr.getNotFound()) {
-            fw.write(analysisIdentifier.getId());
+            writer.write(analysisIdentifier.getId());
             for (Double val : analysisIdentifier.getExp()) {
-                fw.write(DELIMITER);
-                fw.write(val.toString());
+                writer.write(DELIMITER);
+                writer.write(val.toString());
             }
-            fw.write("\n");
+            writer.write("\n");
         }
-        fw.flush();
-        fw.close();
+        writer.flush();
 
         ReportParameters reportParams = new ReportParameters(asr);
         reportParams.setMilliseconds(System.currentTimeMillis() - start);
         AnalysisReport.reportNotFoundDownload(reportParams);
+    }
 
-        return new FileSystemResource(f);
+    /**
+     * The writer is not closed by the methods above, so closing the response stream is left to the container
+     */
+    private static Writer getWriter(OutputStream os) {
+        return new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), BUFFER_SIZE);
     }
 
     private static String getAnalysisResultHeader(AnalysisStoredResult asr) {
@@ -372,7 +343,7 @@ public class DownloadHelper {
         return line.append("\n").toString();
     }
 
-    private static Comparator<PathwayNodeSummary> getComparator(String sortBy, String order, String resource) {
+    static Comparator<PathwayNodeSummary> getComparator(String sortBy, String order, String resource) {
         AnalysisSortType sortType = AnalysisSortType.getSortType(sortBy);
         if (resource != null) {
             Resource r = ResourceFactory.getResource(resource);
@@ -392,7 +363,7 @@ public class DownloadHelper {
         }
     }
 
-    private static List<PathwayNodeSummary> filterPathwaysByResource(List<PathwayNodeSummary> pathways, String resource) {
+    static List<PathwayNodeSummary> filterPathwaysByResource(List<PathwayNodeSummary> pathways, String resource) {
         List<PathwayNodeSummary> rtn;
         if (resource.toUpperCase().equals("TOTAL")) {
             rtn = pathways;
@@ -0,0 +1,159 @@
+package org.reactome.server.analysis.service.helper;
+
+import org.reactome.server.analysis.core.model.AnalysisIdentifier;
+import org.reactome.server.analysis.core.model.UserData;
+import org.reactome.server.analysis.core.result.exception.DataFormatException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Reads expression data submitted as a binary matrix, so large datasets (i.e. RNA-seq with tens of thousands of
+ * rows) are loaded without tokenising text and parsing every cell as a number.
+ * <p>
+ * The layout is columnar and every number is little-endian:
+ * <pre>
+ *   magic        4 bytes    0x89 'R' 'X' 'M'
+ *   version      int32      1
+ *   rows         int32      number of identifiers
+ *   columns      int32      number of expression columns (0 for an overrepresentation analysis)
+ *   sample name  string     (as the first column of the header in the text format)
+ *   column names string[columns]
+ *   identifiers  string[rows]
+ *   values       float32[columns][rows], one column after the other
+ * </pre>
+ * where every string is an int32 with its length in bytes followed by its UTF-8 encoding. Nothing is expected after
+ * the values and they all have to be finite numbers. As in the text format, repeated identifiers are only taken once.
+ */
+public final class ExpressionMatrixReader {
+
+    static final byte[] MAGIC = {(byte) 0x89, 'R', 'X', 'M'};
+
+    private static final int VERSION = 1;
+
+    private static final int MAX_STRING_LENGTH = 64 * 1024;
+
+    // Values are decoded in blocks, so a matrix announcing more rows than it contains fails before allocating them
+    private static final int BLOCK_VALUES = 16 * 1024;
+
+    private ExpressionMatrixReader() {}
+
+    /**
+     * @return true if the content (or its first block) starts with the magic bytes of the binary matrix
+     */
+    static boolean isMatrix(byte[] content) {
+        if (content.length < MAGIC.length) return false;
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (content[i] != MAGIC[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param is the (decompressed) binary matrix
+     * @return the user data, where the input MD5 is the one of the binary content
+     * @throws DataFormatException if the content does not follow the layout
+     * @throws IOException         if the stream could not be read
+     */
+    public static UserData read(InputStream is) throws IOException {
+        MessageDigest md5 = getMD5();
+        Input in = new Input(new DigestInputStream(is, md5));
+        try {
+            if (!isMatrix(in.readBytes(MAGIC.length))) throw new DataFormatException("The content is not a binary expression matrix");
+            int version = in.readInt();
+            if (version != VERSION) throw new DataFormatException("Unsupported binary expression matrix version " + version);
+            int rows = in.readInt();
+            int columns = in.readInt();
+            if (rows <= 0 || columns < 0) throw new DataFormatException("Wrong binary expression matrix size: " + rows + " rows and " + columns + " columns");
+
+            String sampleName = in.readString();
+            List<String> columnNames = new ArrayList<>(Math.min(columns, BLOCK_VALUES));
+            for (int c = 0; c < columns; c++) columnNames.add(in.readString());
+
+            List<AnalysisIdentifier> identifiers = new ArrayList<>(Math.min(rows, BLOCK_VALUES));
+            for (int r = 0; r < rows; r++) {
+                String id = in.readString().trim();
+                if (id.isEmpty()) throw new DataFormatException("Row " + (r + 1) + " has an empty identifier");
+                identifiers.add(new AnalysisIdentifier(id));
+            }
+
+            for (int c = 0; c < columns; c++) {
+                for (int from = 0; from < rows; from += BLOCK_VALUES) {
+                    FloatBuffer values = in.readFloats(Math.min(BLOCK_VALUES, rows - from));
+                    for (int r = from; values.hasRemaining(); r++) {
+                        float value = values.get();
+                        if (!Float.isFinite(value)) {
+                            throw new DataFormatException("Row " + (r + 1) + ", column " + (c + 1) + " does not contain a number");
+                        }
+                        identifiers.get(r).add((double) value);
+                    }
+                }
+            }
+            if (in.read() != -1) throw new DataFormatException("Unexpected content after the binary expression matrix values");
+
+            String inputMD5 = String.format("%032x", new BigInteger(1, md5.digest()));
+            return new UserData(columnNames, new LinkedHashSet<>(identifiers), inputMD5, sampleName, new ArrayList<>());
+        } catch (EOFException e) {
+            throw new DataFormatException("The binary expression matrix is truncated");
+        }
+    }
+
+    private static MessageDigest getMD5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class Input {
+
+        private final InputStream is;
+        private final ByteBuffer scratch = ByteBuffer.allocate(BLOCK_VALUES * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+        Input(InputStream is) {
+            this.is = is;
+        }
+
+        int read() throws IOException {
+            return is.read();
+        }
+
+        byte[] readBytes(int length) throws IOException {
+            byte[] rtn = is.readNBytes(length);
+            if (rtn.length < length) throw new EOFException();
+            return rtn;
+        }
+
+        int readInt() throws IOException {
+            return fill(Integer.BYTES).getInt();
+        }
+
+        String readString() throws IOException {
+            int length = readInt();
+            if (length < 0 || length > MAX_STRING_LENGTH) throw new DataFormatException("Wrong string length in the binary expression matrix: " + length);
+            return new String(readBytes(length), StandardCharsets.UTF_8);
+        }
+
+        FloatBuffer readFloats(int count) throws IOException {
+            return fill(count * Float.BYTES).asFloatBuffer();
+        }
+
+        private ByteBuffer fill(int length) throws IOException {
+            scratch.clear();
+            if (is.readNBytes(scratch.array(), 0, length) < length) throw new EOFException();
+            scratch.limit(length);
+            return scratch;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package org.reactome.server.analysis.service.helper;
+
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.AnnotatedClass;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.reactome.server.analysis.core.result.exception.DataFormatException;
+import org.reactome.server.analysis.core.result.model.AnalysisResult;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Sparse field selection for the json responses: "fields=summary.token,pathways.stId,pathways.entities.pValue"
+ * keeps only those fields (and everything under them). The paths are the json ones, ignoring the arrays.
+ * <p>
+ * The selection is applied as a Jackson filter while serialising (see {@link ResultPropertyFilter}), so the getters
+ * of the fields not requested are not even called. Only the classes of the result model (and their subclasses) get
+ * the filter (see {@link #configure(ObjectMapper)}), which serialises everything unless a filter is provided for
+ * the request. The rest of the objects written by the same mapper are not affected.
+ */
+public final class FieldSelection {
+
+    public static final String FILTER_ID = "fieldSelection";
+
+    private static final Pattern PATH = Pattern.compile("[A-Za-z0-9_]+(\\.[A-Za-z0-9_]+)*");
+
+    // The package of the classes the selection applies to (AnalysisResult, AnalysisSummary, PathwaySummary...)
+    private static final String RESULT_MODEL = AnalysisResult.class.getPackage().getName();
+
+    // The requested paths and the paths leading to them
+    private final Set<String> paths;
+    private final Set<String> ancestors;
+
+    private FieldSelection(Set<String> paths) {
+        this.paths = paths;
+        this.ancestors = new HashSet<>();
+        for (String path : paths) {
+            for (int i = path.indexOf('.'); i > 0; i = path.indexOf('.', i + 1)) {
+                ancestors.add(path.substring(0, i));
+            }
+        }
+    }
+
+    /**
+     * Sets the filter in the result model classes and the default (serialise all) filter in the mapper
+     */
+    public static void configure(ObjectMapper mapper) {
+        mapper.setAnnotationIntrospector(new JacksonAnnotationIntrospector() {
+            @Override
+            public Object findFilterId(Annotated a) {
+                Object id = super.findFilterId(a);
+                if (id == null && a instanceof AnnotatedClass && isResultModel(a.getRawType())) return FILTER_ID;
+                return id;
+            }
+        });
+        mapper.setFilterProvider(new SimpleFilterProvider().setDefaultFilter(SimpleBeanPropertyFilter.serializeAll()));
+    }
+
+    private static boolean isResultModel(Class<?> clazz) {
+        for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+            if (c.getPackage() != null && c.getPackage().getName().equals(RESULT_MODEL)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the selection or null if no fields are specified
+     * @throws DataFormatException if any of the fields is not a valid path
+     */
+    public static FieldSelection parse(String fields) {
+        if (fields == null || fields.trim().isEmpty()) return null;
+        Set<String> paths = new HashSet<>();
+        //Empty fields (i.e. a trailing comma) are not valid paths either
+        for (String field : fields.split(",", -1)) {
+            String path = field.trim();
+            if (!PATH.matcher(path).matches()) throw new DataFormatException("Invalid field '" + path + "'");
+            paths.add(path);
+        }
+        return new FieldSelection(paths);
+    }
+
+    /**
+     * @return the selection for the objects found under the given path (i.e. the rows of an array)
+     */
+    public FieldSelection relativeTo(String path) {
+        if (includesAll(path)) return null;
+        Set<String> rtn = new HashSet<>();
+        String prefix = path + ".";
+        for (String p : paths) {
+            if (p.startsWith(prefix)) rtn.add(p.substring(prefix.length()));
+        }
+        return new FieldSelection(rtn);
+    }
+
+    /**
+     * @return true if the path, part of it or anything under it is selected
+     */
+    public boolean includes(String path) {
+        return ancestors.contains(path) || includesAll(path);
+    }
+
+    private boolean includesAll(String path) {
+        if (paths.contains(path)) return true;
+        for (int i = path.indexOf('.'); i > 0; i = path.indexOf('.', i + 1)) {
+            if (paths.contains(path.substring(0, i))) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param context the context of the object being written
+     * @return the path of the field in the object being written
+     */
+    static String getPath(JsonStreamContext context, String field) {
+        StringBuilder sb = new StringBuilder();
+        for (JsonStreamContext c = context.getParent(); c != null; c = c.getParent()) {
+            if (c.inObject() && c.getCurrentName() != null) sb.insert(0, '.').insert(0, c.getCurrentName());
+        }
+        return sb.append(field).toString();
+    }
+}
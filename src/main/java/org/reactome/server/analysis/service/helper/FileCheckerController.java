@@ -5,8 +5,13 @@ import org.reactome.server.utils.lru.LruFolderContentChecker;
 import org.reactome.server.utils.lru.LruFolderContentCheckerFileDeletedHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Scope;
 
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * @author Antonio Fabregat <fabregat@ebi.ac.uk>
  */
@@ -23,6 +28,10 @@ public class FileCheckerController implements LruFolderContentCheckerFileDeleted
     private Long time;
     private Long ttl;
 
+    private AnalysisResultCache analysisResultCache;
+    private AnalysisViewCache analysisViewCache;
+    private List<SideFileStore> sideFileStores = Collections.emptyList();
+
     public FileCheckerController() {
         Thread.currentThread().setName("AS-TempFilesChecker");
     }
@@ -52,6 +61,21 @@ public class FileCheckerController implements LruFolderContentCheckerFileDeleted
         this.initialize();
     }
 
+    @Autowired
+    public void setAnalysisResultCache(AnalysisResultCache analysisResultCache) {
+        this.analysisResultCache = analysisResultCache;
+    }
+
+    @Autowired
+    public void setAnalysisViewCache(AnalysisViewCache analysisViewCache) {
+        this.analysisViewCache = analysisViewCache;
+    }
+
+    @Autowired
+    public void setSideFileStores(List<SideFileStore> sideFileStores) {
+        this.sideFileStores = sideFileStores;
+    }
+
     public void initialize() {
         if (checker != null) {
             //We ensure only one thread will be created
@@ -81,6 +105,15 @@ public class FileCheckerController implements LruFolderContentCheckerFileDeleted
 
     @Override
     public void onLruFolderContentCheckerFileDeleted(String fileName) {
+        //The files kept next to the results are optional and they are deleted along with their result
+        for (SideFileStore store : sideFileStores) {
+            if (store.isSideFile(fileName)) return;
+        }
         Tokenizer.removeAssociatedToken(fileName);
+        if (analysisResultCache != null) analysisResultCache.invalidateFile(fileName);
+        if (analysisViewCache != null) analysisViewCache.invalidateFile(fileName);
+        File file = new File(fileName);
+        if (!file.isAbsolute() && pathDirectory != null) file = new File(pathDirectory, fileName);
+        for (SideFileStore store : sideFileStores) store.delete(file);
     }
 }
@@ -0,0 +1,120 @@
+package org.reactome.server.analysis.service.helper;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.reactome.server.analysis.core.data.AnalysisData;
+import org.reactome.server.analysis.core.result.model.MappedEntity;
+import org.reactome.server.analysis.service.model.CacheStatistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Remembers how every submitted identifier was mapped, so the popular lists (marker panels, cancer signatures...)
+ * submitted again with small variations only resolve the identifiers that were not seen before.
+ * <p>
+ * Identifiers that cannot be mapped are remembered too. The entries are keyed by the release of the analysis data,
+ * so they are not used once the data is reloaded with a new release, and they are all dropped when the reload is
+ * reported (see {@link AnalysisDataReloadedEvent}). The cache is bounded in number of identifiers.
+ */
+@Component
+public class IdentifierMappingCache {
+
+    private AnalysisData analysisData;
+
+    private final Cache<Key, List<MappedEntity>> cache;
+    private final long maxSize;
+
+    public IdentifierMappingCache(@Value("${analysis.mapping.cache.size:200000}") Long maxSize) {
+        this.maxSize = maxSize;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+    }
+
+    @Autowired
+    public void setAnalysisData(AnalysisData analysisData) {
+        this.analysisData = analysisData;
+    }
+
+    /**
+     * @param resolver maps the identifiers not found in the cache (it is not called if they are all cached)
+     * @return the mapped entities for the identifiers, the cached ones first
+     */
+    public List<MappedEntity> getMapping(Set<String> identifiers, boolean toHuman, boolean includeInteractors,
+                                         boolean importableOnly, Function<Set<String>, List<MappedEntity>> resolver) {
+        Integer release = analysisData.getDatabaseInfo().getVersion();
+        List<MappedEntity> rtn = new ArrayList<>();
+        Set<String> missing = new HashSet<>();
+        for (String identifier : identifiers) {
+            List<MappedEntity> cached = cache.getIfPresent(new Key(release, identifier, toHuman, includeInteractors, importableOnly));
+            if (cached != null) rtn.addAll(cached);
+            else missing.add(identifier);
+        }
+        if (missing.isEmpty()) return rtn;
+
+        Map<String, List<MappedEntity>> resolved = new HashMap<>();
+        for (MappedEntity entity : resolver.apply(missing)) {
+            resolved.computeIfAbsent(entity.getIdentifier(), i -> new ArrayList<>(1)).add(entity);
+            rtn.add(entity);
+        }
+        for (String identifier : missing) {
+            List<MappedEntity> entities = resolved.getOrDefault(identifier, Collections.emptyList());
+            cache.put(new Key(release, identifier, toHuman, includeInteractors, importableOnly), entities);
+        }
+        return rtn;
+    }
+
+    @EventListener
+    public void onAnalysisDataReloaded(AnalysisDataReloadedEvent event) {
+        //The mappings of the previous release are useless now
+        cache.invalidateAll();
+    }
+
+    public CacheStatistics getStatistics() {
+        CacheStats stats = cache.stats();
+        long size = cache.estimatedSize();
+        return new CacheStatistics(size, size, maxSize, stats.hitCount(), stats.missCount(),
+                stats.hitRate(), stats.evictionCount(), stats.evictionWeight());
+    }
+
+    private static class Key {
+
+        private final Integer release;
+        private final String identifier;
+        private final boolean toHuman;
+        private final boolean includeInteractors;
+        private final boolean importableOnly;
+
+        Key(Integer release, String identifier, boolean toHuman, boolean includeInteractors, boolean importableOnly) {
+            this.release = release;
+            this.identifier = identifier.trim();
+            this.toHuman = toHuman;
+            this.includeInteractors = includeInteractors;
+            this.importableOnly = importableOnly;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return toHuman == key.toHuman &&
+                    includeInteractors == key.includeInteractors &&
+                    importableOnly == key.importableOnly &&
+                    Objects.equals(release, key.release) &&
+                    identifier.equals(key.identifier);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(release, identifier, toHuman, includeInteractors, importableOnly);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package org.reactome.server.analysis.service.helper;
+
+import io.airlift.compress.zstd.ZstdInputStream;
+import org.apache.commons.io.input.CountingInputStream;
+import org.reactome.server.analysis.core.result.exception.RequestEntityTooLargeException;
+import org.reactome.server.analysis.core.result.exception.UnsupportedMediaTypeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Transparently decompresses the gzip, zip (first entry) or zstd data submitted for analysis, so it is inflated
+ * while being parsed instead of being expanded in memory or disk first.
+ * <p>
+ * The size limit applies to the decompressed content. On top of that, compressed data expanding more than the
+ * configured ratio is rejected to protect the service from decompression bombs.
+ */
+@Component
+public class InputDecompressor {
+
+    private static final Logger logger = LoggerFactory.getLogger("analysisLogger");
+
+    // The ratio guard only kicks in after this many decompressed bytes (tiny files compress extremely well)
+    private static final long RATIO_CHECK_THRESHOLD = 1024 * 1024;
+
+    private MimeTypeDetector mimeTypeDetector;
+
+    private long maxSize;
+    private int maxRatio;
+
+    /**
+     * @param is a stream supporting mark/reset
+     * @return a stream (supporting mark/reset) with the decompressed content, or the content itself when it
+     * is not compressed. In both cases reading more than the maximum size results in RequestEntityTooLargeException
+     * @throws IOException if the stream could not be read
+     */
+    public InputStream decompress(InputStream is) throws IOException {
+        String mimeType = mimeTypeDetector.detect(is);
+        CountingInputStream compressed = new CountingInputStream(is);
+        InputStream decompressed;
+        switch (mimeType) {
+            case MimeTypeDetector.GZIP:
+                decompressed = new GZIPInputStream(compressed);
+                break;
+            case MimeTypeDetector.ZIP:
+                ZipInputStream zis = new ZipInputStream(compressed);
+                if (zis.getNextEntry() == null) throw new UnsupportedMediaTypeException();
+                decompressed = zis;
+                break;
+            case MimeTypeDetector.ZSTD:
+                decompressed = new ZstdInputStream(compressed);
+                break;
+            default:
+                return new BufferedInputStream(new LimitedInputStream(is, null), MimeTypeDetector.SNIFF_BLOCK_SIZE);
+        }
+        return new BufferedInputStream(new LimitedInputStream(decompressed, compressed), MimeTypeDetector.SNIFF_BLOCK_SIZE);
+    }
+
+    @Autowired
+    public void setMimeTypeDetector(MimeTypeDetector mimeTypeDetector) {
+        this.mimeTypeDetector = mimeTypeDetector;
+    }
+
+    @Value("${analysis.input.max.size:209715200}")
+    public void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    @Value("${analysis.input.max.ratio:100}")
+    public void setMaxRatio(int maxRatio) {
+        this.maxRatio = maxRatio;
+    }
+
+    /**
+     * Counts the (decompressed) bytes read and fails as soon as the size limit or the compression ratio are exceeded
+     */
+    private class LimitedInputStream extends FilterInputStream {
+
+        private final CountingInputStream compressed;
+        private long count = 0;
+
+        LimitedInputStream(InputStream in, CountingInputStream compressed) {
+            super(in);
+            this.compressed = compressed;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) count(1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count(n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            if (skipped > 0) count(skipped);
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void count(long n) {
+            count += n;
+            if (count > maxSize) {
+                logger.warn("Input rejected: it exceeds " + maxSize + " bytes" + (compressed != null ? " once decompressed" : ""));
+                throw new RequestEntityTooLargeException();
+            }
+            if (compressed != null && count > RATIO_CHECK_THRESHOLD && count > compressed.getByteCount() * maxRatio) {
+                logger.warn("Input rejected: its compression ratio exceeds " + maxRatio);
+                throw new RequestEntityTooLargeException();
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package org.reactome.server.analysis.service.helper;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.reactome.server.analysis.core.result.exception.DataFormatException;
+
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.util.*;
+
+/**
+ * Parses the lists of pathway identifiers posted to the token filter methods straight from the request body.
+ * <p>
+ * Two formats are accepted: plain text, where the identifiers are separated by commas, new lines or spaces (a
+ * form-like "input=" prefix is skipped), and a json array of strings and/or numbers. Only stable identifiers (R-...)
+ * and database identifiers (numbers) are kept, without duplicates and in the same order they were submitted.
+ * <p>
+ * The returned list answers contains() with a hash lookup, so filtering a result by thousands of pathways does
+ * not turn into a quadratic search.
+ */
+public final class InputIdentifiersParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final int MAX_IDENTIFIER_LENGTH = 64;
+
+    private InputIdentifiersParser() {}
+
+    public static List<String> parse(Reader reader) {
+        IdentifierList rtn = new IdentifierList();
+        try (PushbackReader in = new PushbackReader(reader)) {
+            int c;
+            do {
+                c = in.read();
+            } while (c != -1 && Character.isWhitespace(c));
+            if (c == -1) return rtn;
+            in.unread(c);
+            if (c == '[') parseJson(in, rtn);
+            else parseText(in, rtn);
+        } catch (IOException e) {
+            throw new DataFormatException(e.getMessage());
+        }
+        return rtn;
+    }
+
+    private static void parseText(Reader in, IdentifierList rtn) throws IOException {
+        StringBuilder token = new StringBuilder(MAX_IDENTIFIER_LENGTH);
+        boolean assignment = false;
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == ',' || Character.isWhitespace(c)) {
+                rtn.addToken(token);
+                token.setLength(0);
+            } else if (c == '=') {
+                //As in "input=id1,id2": what is before the first '=' is not an identifier and after a second one is ignored
+                if (assignment) break;
+                assignment = true;
+                rtn.clear();
+                token.setLength(0);
+            } else if (token.length() <= MAX_IDENTIFIER_LENGTH) {
+                token.append((char) c);
+            }
+        }
+        rtn.addToken(token);
+    }
+
+    private static void parseJson(Reader in, IdentifierList rtn) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) throw new DataFormatException("A json array was expected");
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) throw new DataFormatException("Unexpected end of the json array");
+                if (token == JsonToken.VALUE_NUMBER_INT) {
+                    rtn.addToken(parser.getValueAsString());
+                } else if (token == JsonToken.VALUE_STRING) {
+                    rtn.addToken(parser.getText().trim());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    /**
+     * An insertion-ordered list of unique identifiers with constant time contains()
+     */
+    private static class IdentifierList extends AbstractList<String> implements RandomAccess {
+
+        private final List<String> list = new ArrayList<>();
+        private final Set<String> set = new HashSet<>();
+
+        void addToken(CharSequence token) {
+            if (token.length() == 0 || token.length() > MAX_IDENTIFIER_LENGTH) return;
+            String id = normalise(token);
+            if (id != null && set.add(id)) list.add(id);
+        }
+
+        @Override
+        public String get(int index) {
+            return list.get(index);
+        }
+
+        @Override
+        public int size() {
+            return list.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return set.contains(o);
+        }
+
+        @Override
+        public void clear() {
+            list.clear();
+            set.clear();
+        }
+
+        /**
+         * @return the stable identifier as it is, the database identifier as a plain number or null if the token
+         * is neither of them
+         */
+        private static String normalise(CharSequence token) {
+            if (token.length() > 2 && token.charAt(0) == 'R' && token.charAt(1) == '-') return token.toString();
+            int start = token.charAt(0) == '+' ? 1 : 0;
+            int length = token.length() - start;
+            if (length == 0 || length > 19) return null;
+            for (int i = start; i < token.length(); i++) {
+                char c = token.charAt(i);
+                if (c < '0' || c > '9') return null;
+            }
+            // Canonical numbers are kept as they are; the rest ("+1", "007" or overflows) go through Long
+            if (start == 0 && length < 19 && (token.charAt(0) != '0' || length == 1)) return token.toString();
+            try {
+                return Long.toString(Long.parseLong(token.toString()));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package org.reactome.server.analysis.service.helper;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.PropertyFilter;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.reactome.server.analysis.core.result.model.AnalysisResult;
+import org.reactome.server.analysis.core.result.model.PathwaySummary;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Writes big responses straight to the output stream using Jackson's generator, so neither the whole object
+ * graph nor the whole serialised text has to be held in memory before sending it to the client.
+ * <p>
+ * The ObjectMappers are the ones used by the message converters (see WebConfig), so the streamed responses are
+ * serialised in the same way as the rest. Besides json, the binary CBOR and Smile encodings of the same data
+ * model are available, so the clients pulling whole results can skip the text encoding of the numbers.
+ */
+@Component
+public class JsonStreamHelper {
+
+    // Number of pathways retrieved (and written) at once when streaming a result
+    public static final int CHUNK_SIZE = 500;
+
+    public static final String NDJSON = "application/x-ndjson";
+    public static final String CBOR = "application/cbor";
+    public static final String SMILE = "application/x-jackson-smile";
+
+    private static final String PATHWAYS = "pathways";
+
+    private final ObjectMapper mapper;
+    private final ObjectMapper cborMapper;
+    private final ObjectMapper smileMapper;
+
+    public JsonStreamHelper() {
+        this.mapper = create(new JsonFactory());
+        this.cborMapper = create(new CBORFactory());
+        this.smileMapper = create(new SmileFactory());
+    }
+
+    private static ObjectMapper create(JsonFactory factory) {
+        ObjectMapper rtn = new ObjectMapper(factory);
+        rtn.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        FieldSelection.configure(rtn);
+        return rtn;
+    }
+
+    public ObjectMapper getObjectMapper() {
+        return mapper;
+    }
+
+    /**
+     * @return the mapper for the given encoding (json unless it is CBOR or Smile)
+     */
+    public ObjectMapper getObjectMapper(MediaType format) {
+        if (format != null && format.isCompatibleWith(MediaType.valueOf(CBOR))) return cborMapper;
+        if (format != null && format.isCompatibleWith(MediaType.valueOf(SMILE))) return smileMapper;
+        return mapper;
+    }
+
+    /**
+     * Writes the object to the output stream as it is serialised
+     */
+    public void write(Object object, OutputStream os) throws IOException {
+        write(object, MediaType.APPLICATION_JSON, os);
+    }
+
+    /**
+     * Writes the object to the output stream, in the given encoding, as it is serialised
+     */
+    public void write(Object object, MediaType format, OutputStream os) throws IOException {
+        try (JsonGenerator gen = getObjectMapper(format).getFactory().createGenerator(os, JsonEncoding.UTF8)) {
+            gen.writeObject(object);
+        }
+    }
+
+    /**
+     * Writes a whole AnalysisResult retrieving its pathways in chunks. The first chunk provides the rest of
+     * the fields (summary, resources, etc.), which are serialised as usual, while its pathways field is replaced
+     * by the pathways of all the chunks, written one chunk after the other and flushing in between, so only one
+     * chunk of pathways is in memory at any time.
+     *
+     * @param pages          provides the AnalysisResult for a given page of CHUNK_SIZE pathways (starting at 1)
+     * @param selection      the fields to write or null to write them all
+     * @param includeDisease the value to report in the summary or null to report the one of the result
+     * @param format         the encoding (json, CBOR or Smile)
+     */
+    public void writeAnalysisResult(IntFunction<AnalysisResult> pages, FieldSelection selection, Boolean includeDisease, MediaType format, OutputStream os) throws IOException {
+        ObjectMapper objectMapper = getObjectMapper(format);
+        AnalysisResult chunk = pages.apply(1);
+        PropertyFilter filter = new PathwayChunksFilter(chunk, pages, selection, ResultPropertyFilter.getFilter(selection, includeDisease));
+        ObjectWriter writer = objectMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .with(new SimpleFilterProvider().addFilter(FieldSelection.FILTER_ID, filter));
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(os, JsonEncoding.UTF8)) {
+            writer.writeValue(gen, chunk);
+        }
+    }
+
+    /**
+     * @param accept    the Accept header of the request
+     * @param available the media types that can be sent, the first one is the default
+     * @return the available media type preferred by the client
+     */
+    public static MediaType getPreferred(String accept, String... available) {
+        MediaType rtn = MediaType.valueOf(available[0]);
+        if (accept == null || accept.isEmpty()) return rtn;
+        List<MediaType> mediaTypes;
+        try {
+            mediaTypes = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return rtn;
+        }
+        MediaType.sortBySpecificityAndQuality(mediaTypes);
+        for (MediaType mediaType : mediaTypes) {
+            for (String type : available) {
+                MediaType candidate = MediaType.valueOf(type);
+                if (mediaType.includes(candidate)) return candidate;
+            }
+        }
+        return rtn;
+    }
+
+    /**
+     * Writes the objects as newline delimited json (one object per line), retrieving them chunk by chunk and
+     * flushing after every chunk, so only one chunk is in memory at any time.
+     *
+     * @param chunks    provides the following chunk of objects every time it is called (an empty one when finished)
+     * @param selection the fields to write (relative to every object) or null to write them all
+     */
+    public void writeLines(Supplier<? extends List<?>> chunks, FieldSelection selection, OutputStream os) throws IOException {
+        ObjectWriter writer = getWriter(mapper, selection, null);
+        try (JsonGenerator gen = mapper.getFactory().createGenerator(os, JsonEncoding.UTF8)) {
+            gen.setRootValueSeparator(null);
+            List<?> chunk;
+            while (!(chunk = chunks.get()).isEmpty()) {
+                for (Object object : chunk) {
+                    writer.writeValue(gen, object);
+                    gen.writeRaw('\n');
+                }
+                gen.flush();
+            }
+        }
+    }
+
+    private static ObjectWriter getWriter(ObjectMapper mapper, FieldSelection selection, Boolean includeDisease) {
+        // Flushing is done chunk by chunk
+        ObjectWriter writer = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        FilterProvider filters = ResultPropertyFilter.getFilterProvider(selection, includeDisease);
+        return filters != null ? writer.with(filters) : writer;
+    }
+
+    /**
+     * Writes the pathways of every chunk in place of the pathways of the first one, leaving the rest of the fields
+     * to the filter of the request
+     */
+    private static class PathwayChunksFilter extends SimpleBeanPropertyFilter {
+
+        private final AnalysisResult first;
+        private final IntFunction<AnalysisResult> pages;
+        private final FieldSelection selection;
+        private final PropertyFilter delegate;
+
+        PathwayChunksFilter(AnalysisResult first, IntFunction<AnalysisResult> pages, FieldSelection selection, PropertyFilter delegate) {
+            this.first = first;
+            this.pages = pages;
+            this.selection = selection;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void serializeAsField(Object pojo, JsonGenerator gen, SerializerProvider provider, PropertyWriter writer) throws Exception {
+            if (pojo != first || !PATHWAYS.equals(writer.getName())) {
+                delegate.serializeAsField(pojo, gen, provider, writer);
+                return;
+            }
+            if (selection != null && !selection.includes(PATHWAYS)) return;
+            gen.writeArrayFieldStart(PATHWAYS);
+            int page = 1;
+            List<PathwaySummary> pathways = first.getPathways();
+            while (pathways != null && !pathways.isEmpty()) {
+                for (PathwaySummary pathway : pathways) {
+                    provider.defaultSerializeValue(pathway, gen);
+                }
+                gen.flush();
+                if (pathways.size() < CHUNK_SIZE) break;
+                pathways = pages.apply(++page).getPathways();
+            }
+            gen.writeEndArray();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.reactome.server.analysis.service.helper;
+
+import org.apache.tika.detect.DefaultDetector;
+import org.apache.tika.detect.Detector;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.mime.MimeTypes;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Detects the content type of the submitted data (files, URLs and imported results).
+ * <p>
+ * The formats accepted by the service (plain text, json, binary expression matrix, gzip, zip and zstd) are
+ * recognised by their magic bytes or by looking at the first block of the content. Tika is only used when that is
+ * not enough to tell, and its detector is built once and shared, since it is thread-safe and expensive to create.
+ * <p>
+ * Textual content (json included) is reported as "text/plain", as Tika does when there is no file name to rely on.
+ */
+@Component
+public class MimeTypeDetector {
+
+    // Leading bytes of the content inspected to detect its type (Tika's default look-ahead)
+    public static final int SNIFF_BLOCK_SIZE = 64 * 1024;
+
+    // The fast path only needs a few KB to decide whether the content is text
+    private static final int TEXT_BLOCK_SIZE = 8 * 1024;
+
+    static final String TEXT = "text/plain";
+    static final String GZIP = "application/gzip";
+    static final String ZIP = "application/zip";
+    static final String ZSTD = "application/zstd";
+    static final String EXPRESSION_MATRIX = "application/vnd.reactome.expression-matrix";
+
+    private final Detector detector = new DefaultDetector(MimeTypes.getDefaultMimeTypes());
+
+    /**
+     * Detects the content type of a stream looking only at its first block, so it can be consumed afterwards
+     *
+     * @param is a stream supporting mark/reset
+     * @throws IOException if the stream could not be read
+     */
+    public String detect(InputStream is) throws IOException {
+        is.mark(SNIFF_BLOCK_SIZE);
+        byte[] block = is.readNBytes(SNIFF_BLOCK_SIZE);
+        is.reset();
+        return detect(block);
+    }
+
+    /**
+     * @param content the whole content or, at least, its first block
+     * @throws IOException if Tika was needed and failed reading the content
+     */
+    public String detect(byte[] content) throws IOException {
+        String mimeType = detectFast(content);
+        return mimeType != null ? mimeType : detectWithTika(content);
+    }
+
+    /**
+     * @return the content type when the magic bytes or the first block are conclusive, null otherwise
+     */
+    static String detectFast(byte[] content) {
+        if (content.length >= 2 && (content[0] & 0xFF) == 0x1F && (content[1] & 0xFF) == 0x8B) return GZIP;
+        if (content.length >= 4 && content[0] == 'P' && content[1] == 'K' && isZipSignature(content[2], content[3])) return ZIP;
+        if (content.length >= 4 && (content[0] & 0xFF) == 0x28 && (content[1] & 0xFF) == 0xB5 && (content[2] & 0xFF) == 0x2F && (content[3] & 0xFF) == 0xFD) return ZSTD;
+        if (ExpressionMatrixReader.isMatrix(content)) return EXPRESSION_MATRIX;
+        return isText(content) ? TEXT : null;
+    }
+
+    private String detectWithTika(byte[] content) throws IOException {
+        byte[] block = content.length > SNIFF_BLOCK_SIZE ? Arrays.copyOf(content, SNIFF_BLOCK_SIZE) : content;
+        try (TikaInputStream tis = TikaInputStream.get(block)) {
+            return detector.detect(tis, new Metadata()).toString();
+        }
+    }
+
+    private static boolean isZipSignature(byte b2, byte b3) {
+        return (b2 == 3 && b3 == 4) || (b2 == 5 && b3 == 6) || (b2 == 7 && b3 == 8);
+    }
+
+    /**
+     * The first block is considered text when it is valid UTF-8 (a multi-byte character cut at the end of the
+     * block is fine) and has no control characters other than the usual whitespace ones
+     */
+    private static boolean isText(byte[] content) {
+        if (content.length == 0) return false;
+        int length = Math.min(content.length, TEXT_BLOCK_SIZE);
+        for (int i = 0; i < length; i++) {
+            int b = content[i] & 0xFF;
+            if (b < 0x20 && b != '\t' && b != '\n' && b != '\r' && b != '\f') return false;
+            if (b == 0x7F) return false;
+        }
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        ByteBuffer in = ByteBuffer.wrap(content, 0, length);
+        CharBuffer out = CharBuffer.allocate(length);
+        if (decoder.decode(in, out, length == content.length).isError()) return false;
+        // Leftovers can only be the start of a multi-byte character that continues after the block
+        return length == content.length ? !in.hasRemaining() : in.remaining() < 4;
+    }
+}
@@ -0,0 +1,127 @@
+package org.reactome.server.analysis.service.helper;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.reactome.server.analysis.core.result.exception.AnalysisServiceException;
+import org.reactome.server.analysis.core.result.exception.DataFormatException;
+import org.reactome.server.analysis.core.result.model.AnalysisError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Works out the per pathway details (found entities, interactors...) of several pathways of a result at once, so
+ * clients do not need a request per pathway.
+ * <p>
+ * The details are worked out in parallel on a bounded pool of workers and written to the response in the order
+ * of the request as soon as they are ready. Only a few of them are worked out ahead of the one being written,
+ * so a big batch is not held in memory at once. When the workers are busy, the request thread does the work.
+ * <p>
+ * The response has already started when the details of a pathway fail, so the failure is written as the error
+ * of that pathway instead of changing the response status (and truncating the object).
+ */
+@Component
+public class PathwayBatchHelper {
+
+    private static final Logger logger = LoggerFactory.getLogger("analysisLogger");
+
+    private final ThreadPoolExecutor executor;
+    private final int window;
+    private final int maxPathways;
+
+    private JsonStreamHelper jsonStreamHelper;
+
+    public PathwayBatchHelper(@Value("${analysis.pathways.batch.threads:0}") Integer threads,
+                              @Value("${analysis.pathways.batch.max:2000}") Integer maxPathways) {
+        int workers = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workers * 4),
+                r -> new Thread(r, "AS-PathwayBatch-" + count.incrementAndGet()),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.window = workers * 2;
+        this.maxPathways = maxPathways;
+    }
+
+    @Autowired
+    public void setJsonStreamHelper(JsonStreamHelper jsonStreamHelper) {
+        this.jsonStreamHelper = jsonStreamHelper;
+    }
+
+    /**
+     * Writes an object with the details of every pathway (keyed by the identifier as it was requested). The
+     * pathways without details (i.e. not present in the result) are left out and those whose details could not
+     * be worked out are written as an AnalysisError.
+     *
+     * @param pathways the identifiers of the pathways (duplicates are only written once)
+     * @param details  works out the details for a pathway or returns null if there are none
+     * @param format   the encoding (json, CBOR or Smile)
+     * @throws DataFormatException if no pathways are provided or there are too many of them
+     */
+    public <T> void write(List<String> pathways, Function<String, T> details, MediaType format, OutputStream os) throws IOException {
+        Set<String> identifiers = new LinkedHashSet<>(pathways);
+        if (identifiers.isEmpty()) throw new DataFormatException("No pathways provided");
+        if (identifiers.size() > maxPathways) {
+            throw new DataFormatException("A maximum of " + maxPathways + " pathways can be requested at once");
+        }
+
+        Iterator<String> pending = identifiers.iterator();
+        Deque<Map.Entry<String, Future<T>>> running = new ArrayDeque<>(window);
+        try (JsonGenerator gen = jsonStreamHelper.getObjectMapper(format).getFactory().createGenerator(os, JsonEncoding.UTF8)) {
+            gen.writeStartObject();
+            while (pending.hasNext() || !running.isEmpty()) {
+                while (pending.hasNext() && running.size() < window) {
+                    String pathway = pending.next();
+                    running.add(new AbstractMap.SimpleEntry<>(pathway, executor.submit(() -> details.apply(pathway))));
+                }
+                Map.Entry<String, Future<T>> next = running.poll();
+                Object value = get(next.getKey(), next.getValue());
+                if (value != null) {
+                    gen.writeFieldName(next.getKey());
+                    gen.writeObject(value);
+                }
+                //The response is flushed once the details being worked out ahead are not ready yet
+                if (running.isEmpty() || !running.peek().getValue().isDone()) gen.flush();
+            }
+            gen.writeEndObject();
+        } finally {
+            running.forEach(entry -> entry.getValue().cancel(true));
+        }
+    }
+
+    /**
+     * @return the details of the pathway, null if there are none or the error if they could not be worked out
+     */
+    private static Object get(String pathway, Future<?> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while retrieving the pathway details");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) throw (Error) cause;
+            if (cause instanceof AnalysisServiceException) return new AnalysisError((AnalysisServiceException) cause);
+            logger.error("Error retrieving the details of pathway '" + pathway + "'", cause);
+            return new AnalysisError(HttpStatus.INTERNAL_SERVER_ERROR, "The details of the pathway could not be retrieved");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
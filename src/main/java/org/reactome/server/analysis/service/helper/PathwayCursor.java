@@ -0,0 +1,79 @@
+package org.reactome.server.analysis.service.helper;
+
+import org.reactome.server.analysis.core.result.exception.DataFormatException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Continuation token for the cursor based retrieval of the hit pathways. It keeps the sorting criteria and the
+ * last pathway sent, so the following chunk starts right after it without counting pages from the beginning.
+ * <p>
+ * The value sent to the clients is opaque (url safe base64) and only meant to be sent back as it is.
+ */
+public final class PathwayCursor {
+
+    private static final String SEPARATOR = "\t";
+
+    private final String sortBy;
+    private final String order;
+    private final String resource;
+    private final String pathway;
+
+    public PathwayCursor(String sortBy, String order, String resource, String pathway) {
+        this.sortBy = sortBy;
+        this.order = order;
+        this.resource = resource;
+        this.pathway = pathway;
+    }
+
+    /**
+     * @param cursor the value sent by the client (an empty one starts from the first pathway)
+     * @throws DataFormatException if the value is not a cursor or it was created with different sorting criteria
+     */
+    public static PathwayCursor parse(String cursor, String sortBy, String order, String resource) {
+        if (cursor == null || cursor.isEmpty()) return new PathwayCursor(sortBy, order, resource, null);
+        String[] fields;
+        try {
+            fields = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(SEPARATOR, -1);
+        } catch (IllegalArgumentException e) {
+            throw new DataFormatException("Invalid cursor");
+        }
+        if (fields.length != 4 || fields[3].isEmpty()) throw new DataFormatException("Invalid cursor");
+        PathwayCursor rtn = new PathwayCursor(nullIfEmpty(fields[0]), nullIfEmpty(fields[1]), fields[2], fields[3]);
+        if (!rtn.matches(sortBy, order, resource)) {
+            throw new DataFormatException("The cursor was created for a different 'sortBy', 'order' or 'resource'");
+        }
+        return rtn;
+    }
+
+    public String getPathway() {
+        return pathway;
+    }
+
+    /**
+     * @return the cursor pointing to the given pathway with the same sorting criteria
+     */
+    public PathwayCursor next(String pathway) {
+        return new PathwayCursor(sortBy, order, resource, pathway);
+    }
+
+    @Override
+    public String toString() {
+        String value = String.join(SEPARATOR, Objects.toString(sortBy, ""), Objects.toString(order, ""), resource, pathway);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private boolean matches(String sortBy, String order, String resource) {
+        return equalsIgnoreCase(this.sortBy, sortBy) && equalsIgnoreCase(this.order, order) && equalsIgnoreCase(this.resource, resource);
+    }
+
+    private static boolean equalsIgnoreCase(String a, String b) {
+        return a == null ? b == null : a.equalsIgnoreCase(b);
+    }
+
+    private static String nullIfEmpty(String value) {
+        return value.isEmpty() ? null : value;
+    }
+}
@@ -0,0 +1,59 @@
+package org.reactome.server.analysis.service.helper;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.PropertyFilter;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.reactome.server.analysis.core.result.model.AnalysisSummary;
+
+/**
+ * The Jackson filter applied to the responses with results. It applies the field selection (see
+ * {@link FieldSelection}) and writes in the summary the includeDisease used to filter the pathways of the request.
+ * <p>
+ * The summary belongs to the stored result, which is cached and shared by all the requests reading the same token,
+ * so the value of the request is written in the response instead of being set on it.
+ */
+public final class ResultPropertyFilter extends SimpleBeanPropertyFilter {
+
+    public static final String INCLUDE_DISEASE = "includeDisease";
+
+    private final FieldSelection selection;
+    private final Boolean includeDisease;
+
+    private ResultPropertyFilter(FieldSelection selection, Boolean includeDisease) {
+        this.selection = selection;
+        this.includeDisease = includeDisease;
+    }
+
+    /**
+     * @param selection      the fields to write or null to write them all
+     * @param includeDisease the value to report in the summary or null to report the one of the result
+     * @return the filters for the response or null if the result does not need to be filtered
+     */
+    public static FilterProvider getFilterProvider(FieldSelection selection, Boolean includeDisease) {
+        if (selection == null && includeDisease == null) return null;
+        return new SimpleFilterProvider().addFilter(FieldSelection.FILTER_ID, getFilter(selection, includeDisease));
+    }
+
+    /**
+     * @return the filter for the response (it writes every field when there is nothing to filter)
+     */
+    static PropertyFilter getFilter(FieldSelection selection, Boolean includeDisease) {
+        if (selection == null && includeDisease == null) return SimpleBeanPropertyFilter.serializeAll();
+        return new ResultPropertyFilter(selection, includeDisease);
+    }
+
+    @Override
+    public void serializeAsField(Object pojo, JsonGenerator gen, SerializerProvider provider, PropertyWriter writer) throws Exception {
+        if (selection != null && !selection.includes(FieldSelection.getPath(gen.getOutputContext(), writer.getName()))) {
+            if (!gen.canOmitFields()) writer.serializeAsOmittedField(pojo, gen, provider);
+        } else if (includeDisease != null && pojo instanceof AnalysisSummary && INCLUDE_DISEASE.equals(writer.getName())) {
+            gen.writeBooleanField(INCLUDE_DISEASE, includeDisease);
+        } else {
+            writer.serializeAsField(pojo, gen, provider);
+        }
+    }
+}
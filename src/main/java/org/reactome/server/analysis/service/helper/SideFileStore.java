@@ -0,0 +1,159 @@
+package org.reactome.server.analysis.service.helper;
+
+import org.reactome.server.analysis.core.data.AnalysisData;
+import org.reactome.server.analysis.core.result.AnalysisStoredResult;
+import org.reactome.server.analysis.core.result.model.ResourceSummary;
+import org.reactome.server.analysis.core.result.utils.TokenUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.annotation.PreDestroy;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base of the optional files kept next to every stored result (result file name + extension) with data worked out
+ * when the result is saved, so some requests are served without loading or sorting the result.
+ * <p>
+ * The files are worked out off the analysis thread by a single worker and, since they are optional, they are
+ * skipped when too many are pending. They are written to a temporary file that is then moved into place, so a
+ * partially written one is never read. Every file starts with its magic number and the release of the analysis
+ * data, since the files of a different release cannot be used.
+ * <p>
+ * The files live in the results folder, which is under LRU check (see FileCheckerController). They are deleted
+ * along with their result and the LRU check deleting one of them on its own does not affect the result.
+ */
+public abstract class SideFileStore {
+
+    private static final Logger logger = LoggerFactory.getLogger("analysisLogger");
+
+    // Bytes taken by the magic number and the release at the beginning of every file
+    static final int HEADER_BYTES = 2 * Integer.BYTES;
+
+    private final int magic;
+    private final String extension;
+    private final ThreadPoolExecutor executor;
+
+    private TokenUtils tokenUtils;
+    private AnalysisData analysisData;
+
+    @FunctionalInterface
+    interface Content {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    SideFileStore(int magic, String extension, String threadName) {
+        this.magic = magic;
+        this.extension = extension;
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(100),
+                r -> new Thread(r, threadName),
+                (r, e) -> logger.warn("Too many " + extension + " files pending. Skipping one since they are optional"));
+    }
+
+    /**
+     * Runs the task on the worker or skips it when too many are pending
+     */
+    void submit(Runnable task) {
+        executor.execute(task);
+    }
+
+    /**
+     * @throws FileNotFoundException if there is no result for the token
+     */
+    String getResultFileName(String token) throws FileNotFoundException {
+        return tokenUtils.getFileName(token);
+    }
+
+    /**
+     * @throws FileNotFoundException if there is no result for the token
+     */
+    Path getFile(String token) throws FileNotFoundException {
+        return Paths.get(getResultFileName(token) + extension);
+    }
+
+    /**
+     * @return true if the file (name or path) is one of the files of this store or a temporary copy of it
+     */
+    boolean isSideFile(String fileName) {
+        String name = Paths.get(fileName).getFileName().toString();
+        return name.endsWith(extension) || (name.endsWith(".tmp") && name.contains(extension));
+    }
+
+    /**
+     * Deletes the file of the given result (called when the result is deleted)
+     */
+    void delete(File resultFile) {
+        try {
+            Files.deleteIfExists(Paths.get(resultFile.getPath() + extension));
+        } catch (IOException e) {
+            logger.warn("Unable to delete the " + extension + " file of " + resultFile.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the header and the content to a temporary file that then replaces the given one
+     */
+    void write(Path file, Content content) throws IOException {
+        Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(magic);
+                out.writeInt(getRelease());
+                content.write(out);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * @return true if the header belongs to a file of this store worked out with the current release
+     */
+    boolean readHeader(DataInput in) throws IOException {
+        return in.readInt() == magic && in.readInt() == getRelease();
+    }
+
+    private int getRelease() {
+        Integer version = analysisData.getDatabaseInfo().getVersion();
+        return version != null ? version : 0;
+    }
+
+    /**
+     * @return TOTAL and the resources (upper case) found in the result
+     */
+    static Set<String> getResources(AnalysisStoredResult result) {
+        Set<String> rtn = new LinkedHashSet<>();
+        rtn.add("TOTAL");
+        List<ResourceSummary> resources = result.getResourceSummary();
+        if (resources != null) {
+            for (ResourceSummary resource : resources) rtn.add(resource.getResource().toUpperCase());
+        }
+        return rtn;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Autowired
+    public void setTokenUtils(TokenUtils tokenUtils) {
+        this.tokenUtils = tokenUtils;
+    }
+
+    @Autowired
+    public void setAnalysisData(AnalysisData analysisData) {
+        this.analysisData = analysisData;
+    }
+}
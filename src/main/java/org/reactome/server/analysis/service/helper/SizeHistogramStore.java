@@ -0,0 +1,164 @@
+package org.reactome.server.analysis.service.helper;
+
+import org.reactome.server.analysis.core.model.PathwayNodeData;
+import org.reactome.server.analysis.core.model.resource.MainResource;
+import org.reactome.server.analysis.core.model.resource.Resource;
+import org.reactome.server.analysis.core.model.resource.ResourceFactory;
+import org.reactome.server.analysis.core.result.AnalysisStoredResult;
+import org.reactome.server.analysis.core.result.PathwayNodeSummary;
+import org.reactome.server.analysis.core.result.model.Bin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Persists, next to every stored result, the histogram of the size (entities) of its hit pathways with bins of
+ * size 1, for every resource, species and whether the pathways are disease ones or not. The histograms binned by
+ * a bigger size (/token/{token}/pathways/binned) are then worked out merging bins, without loading the result.
+ * <p>
+ * The histogram file (result file name + ".hst") contains the release of the analysis data, whether the result
+ * includes disease pathways by default and, for each resource, species and disease flag, the pathway sizes with
+ * the number of pathways of that size. Bins are identified by their index (size / binSize).
+ * <p>
+ * Histograms are optional: when missing, unreadable or from a different release, the result is binned as usual.
+ */
+@Component
+public class SizeHistogramStore extends SideFileStore {
+
+    private static final Logger logger = LoggerFactory.getLogger("analysisLogger");
+
+    private static final int MAGIC = 0x52584831; // "RXH1"
+
+    private static final String TOTAL = "TOTAL";
+
+    public SizeHistogramStore() {
+        super(MAGIC, ".hst", "AS-SizeHistogram");
+    }
+
+    /**
+     * Works out and stores the histograms of a just saved result. Failures are logged since they are optional
+     */
+    public void save(AnalysisStoredResult result) {
+        String token = result.getSummary().getToken();
+        boolean includeDisease = result.getSummary().isIncludeDisease();
+        List<PathwayNodeSummary> pathways = new ArrayList<>(result.getPathways());
+        Set<String> resources = getResources(result);
+        submit(() -> save(token, includeDisease, pathways, resources));
+    }
+
+    private void save(String token, boolean includeDisease, List<PathwayNodeSummary> pathways, Set<String> resources) {
+        try {
+            Map<Key, SortedMap<Integer, Integer>> histograms = new LinkedHashMap<>();
+            for (String resource : resources) {
+                MainResource mr = getMainResource(resource);
+                if (mr == null && !resource.equals(TOTAL)) continue;
+                for (PathwayNodeSummary pathway : pathways) {
+                    PathwayNodeData data = pathway.getData();
+                    //The same criteria as in DownloadHelper.filterPathwaysByResource
+                    if (mr != null && data.getReactionsFound(mr) <= 0) continue;
+                    int size = mr == null ? data.getEntitiesCount() : data.getEntitiesCount(mr);
+                    Key key = new Key(resource, pathway.getSpecies().getSpeciesID(), pathway.isInDisease());
+                    histograms.computeIfAbsent(key, k -> new TreeMap<>()).merge(size, 1, Integer::sum);
+                }
+            }
+            write(getFile(token), includeDisease, histograms);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Unable to store the size histogram for " + token + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param species        the species (dbId) of the pathways to take into account (all of them if empty or null)
+     * @param includeDisease whether to take into account the disease pathways (the result's default if null)
+     * @return the number of pathways per bin (sorted by bin) or null if there is no suitable histogram
+     */
+    public List<Bin> getBinnedPathwaySize(String token, Integer binSize, String resource, Collection<Long> species, Boolean includeDisease) {
+        try {
+            String fileName = getResultFileName(token);
+            Path file = getFile(token);
+            //The result might have been deleted, which has to be reported as usual
+            if (!Files.exists(file) || !Files.exists(Paths.get(fileName))) return null;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                if (!readHeader(in)) return null;
+                boolean defaultDisease = in.readBoolean();
+                boolean disease = includeDisease != null ? includeDisease : defaultDisease;
+
+                SortedMap<Integer, Integer> bins = new TreeMap<>();
+                int entries = in.readInt();
+                for (int i = 0; i < entries; i++) {
+                    Key key = new Key(in.readUTF(), in.readLong(), in.readBoolean());
+                    boolean selected = key.resource.equalsIgnoreCase(resource)
+                            && (species == null || species.isEmpty() || species.contains(key.species))
+                            && (disease || !key.disease);
+                    int sizes = in.readInt();
+                    for (int j = 0; j < sizes; j++) {
+                        int size = in.readInt();
+                        int count = in.readInt();
+                        if (selected) bins.merge(size / binSize, count, Integer::sum);
+                    }
+                }
+                List<Bin> rtn = new ArrayList<>(bins.size());
+                bins.forEach((bin, count) -> rtn.add(new Bin(bin, count)));
+                return rtn;
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Unable to use the size histogram for " + token + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void write(Path file, boolean includeDisease, Map<Key, SortedMap<Integer, Integer>> histograms) throws IOException {
+        write(file, out -> {
+            out.writeBoolean(includeDisease);
+            out.writeInt(histograms.size());
+            for (Map.Entry<Key, SortedMap<Integer, Integer>> entry : histograms.entrySet()) {
+                Key key = entry.getKey();
+                out.writeUTF(key.resource);
+                out.writeLong(key.species);
+                out.writeBoolean(key.disease);
+                out.writeInt(entry.getValue().size());
+                for (Map.Entry<Integer, Integer> bin : entry.getValue().entrySet()) {
+                    out.writeInt(bin.getKey());
+                    out.writeInt(bin.getValue());
+                }
+            }
+        });
+    }
+
+    private static MainResource getMainResource(String resource) {
+        Resource r = ResourceFactory.getResource(resource);
+        return r instanceof MainResource ? (MainResource) r : null;
+    }
+
+    private static class Key {
+
+        private final String resource;
+        private final long species;
+        private final boolean disease;
+
+        Key(String resource, long species, boolean disease) {
+            this.resource = resource;
+            this.species = species;
+            this.disease = disease;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return species == key.species && disease == key.disease && resource.equals(key.resource);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(resource, species, disease);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package org.reactome.server.analysis.service.helper;
+
+import org.reactome.server.analysis.core.result.AnalysisSortType;
+import org.reactome.server.analysis.core.result.AnalysisStoredResult;
+import org.reactome.server.analysis.core.result.PathwayNodeSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Persists, next to every stored result, the order of its pathways for each resource and sorting criteria, so
+ * the views of a result read from disk (i.e. after a restart) are arranged without sorting the pathways.
+ * <p>
+ * The index file (result file name + ".idx") contains the release of the analysis data, the pathways (dbId) in
+ * the order they were stored, the offset of every permutation and the permutations themselves (ascending order,
+ * as indexes of the stored pathways). The descending order is derived from the ascending one, keeping the tied
+ * pathways as a stable sort does.
+ * <p>
+ * Indexes are optional: when missing, unreadable, from a different release or not covering the pathways of a
+ * view, the view is sorted as usual.
+ */
+@Component
+public class SortIndexStore extends SideFileStore {
+
+    private static final Logger logger = LoggerFactory.getLogger("analysisLogger");
+
+    private static final int MAGIC = 0x52584931; // "RXI1"
+
+    public SortIndexStore() {
+        super(MAGIC, ".idx", "AS-SortIndex");
+    }
+
+    /**
+     * Works out and stores the index of a just saved result. Failures are logged since the index is optional
+     */
+    public void save(AnalysisStoredResult result) {
+        String token = result.getSummary().getToken();
+        List<PathwayNodeSummary> pathways = new ArrayList<>(result.getPathways());
+        Set<String> resources = getResources(result);
+        submit(() -> save(token, pathways, resources));
+    }
+
+    private void save(String token, List<PathwayNodeSummary> pathways, Set<String> resources) {
+        try {
+            Path file = getFile(token);
+            Map<Long, Integer> dictionary = getDictionary(pathways);
+            if (dictionary == null) return;
+
+            List<String> keys = new ArrayList<>();
+            List<int[]> permutations = new ArrayList<>();
+            for (String resource : resources) {
+                for (AnalysisSortType sortType : AnalysisSortType.values()) {
+                    List<PathwayNodeSummary> sorted = new ArrayList<>(pathways);
+                    sorted.sort(DownloadHelper.getComparator(sortType.name(), "ASC", resource));
+                    int[] permutation = new int[sorted.size()];
+                    for (int i = 0; i < permutation.length; i++) permutation[i] = dictionary.get(sorted.get(i).getPathwayId());
+                    keys.add(getKey(resource, sortType));
+                    permutations.add(permutation);
+                }
+            }
+            write(file, pathways, keys, permutations);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Unable to store the sort index for " + token + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param pathways the pathways of a view of the result (a subset of the stored ones, in any order)
+     * @return the pathways sorted as DownloadHelper.getComparator would do or null if there is no suitable index
+     */
+    List<PathwayNodeSummary> sort(String token, List<PathwayNodeSummary> pathways, String sortBy, String order, String resource) {
+        if (resource == null) return null;
+        AnalysisSortType sortType = AnalysisSortType.getSortType(sortBy);
+        try {
+            Path file = getFile(token);
+            if (!Files.exists(file)) return null;
+            Index index = read(file, getKey(resource, sortType));
+            if (index == null) return null;
+
+            int[] rank = new int[index.pathways.length];
+            for (int i = 0; i < index.permutation.length; i++) rank[index.permutation[i]] = i;
+            Map<Long, Integer> dictionary = new HashMap<>(index.pathways.length * 2);
+            for (int i = 0; i < index.pathways.length; i++) dictionary.put(index.pathways[i], i);
+
+            PathwayNodeSummary[] slots = new PathwayNodeSummary[index.pathways.length];
+            for (PathwayNodeSummary pathway : pathways) {
+                Integer position = dictionary.get(pathway.getPathwayId());
+                if (position == null || slots[rank[position]] != null) return null;
+                slots[rank[position]] = pathway;
+            }
+            List<PathwayNodeSummary> rtn = new ArrayList<>(pathways.size());
+            for (PathwayNodeSummary slot : slots) {
+                if (slot != null) rtn.add(slot);
+            }
+            if (order != null && order.toUpperCase().equals("DESC")) {
+                rtn = reverse(rtn, DownloadHelper.getComparator(sortType.name(), "ASC", resource));
+            }
+            return rtn;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Unable to use the sort index for " + token + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Reverses the ascending list keeping the tied pathways in the same relative order (as a stable sort does)
+     */
+    private static List<PathwayNodeSummary> reverse(List<PathwayNodeSummary> ascending, Comparator<PathwayNodeSummary> comparator) {
+        List<PathwayNodeSummary> rtn = new ArrayList<>(ascending.size());
+        int end = ascending.size();
+        while (end > 0) {
+            int start = end - 1;
+            while (start > 0 && comparator.compare(ascending.get(start - 1), ascending.get(start)) == 0) start--;
+            rtn.addAll(ascending.subList(start, end));
+            end = start;
+        }
+        return rtn;
+    }
+
+    private void write(Path file, List<PathwayNodeSummary> pathways, List<String> keys, List<int[]> permutations) throws IOException {
+        int n = pathways.size();
+        boolean wide = n > 0xFFFF;
+
+        //The permutations go after the header, whose size is known beforehand (the keys are ascii)
+        long offset = HEADER_BYTES + Integer.BYTES + 1 + (long) n * Long.BYTES + Integer.BYTES;
+        for (String key : keys) offset += Short.BYTES + key.length() + Long.BYTES;
+        long start = offset;
+        long length = (long) n * (wide ? Integer.BYTES : Short.BYTES);
+
+        write(file, out -> {
+            out.writeInt(n);
+            out.writeBoolean(wide);
+            for (PathwayNodeSummary pathway : pathways) out.writeLong(pathway.getPathwayId());
+            out.writeInt(keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                out.writeUTF(keys.get(i));
+                out.writeLong(start + i * length);
+            }
+            for (int[] permutation : permutations) {
+                for (int position : permutation) {
+                    if (wide) out.writeInt(position);
+                    else out.writeShort(position);
+                }
+            }
+        });
+    }
+
+    private Index read(Path file, String key) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r")) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(raf.getFD())));
+            if (!readHeader(in)) return null;
+            int n = in.readInt();
+            boolean wide = in.readBoolean();
+            long[] pathways = new long[n];
+            for (int i = 0; i < n; i++) pathways[i] = in.readLong();
+            long offset = -1;
+            int entries = in.readInt();
+            for (int i = 0; i < entries; i++) {
+                String k = in.readUTF();
+                long o = in.readLong();
+                if (k.equals(key)) offset = o;
+            }
+            if (offset < 0) return null;
+
+            raf.seek(offset);
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(raf.getFD())));
+            int[] permutation = new int[n];
+            for (int i = 0; i < n; i++) permutation[i] = wide ? in.readInt() : in.readUnsignedShort();
+            return new Index(pathways, permutation);
+        }
+    }
+
+    private static Map<Long, Integer> getDictionary(List<PathwayNodeSummary> pathways) {
+        Map<Long, Integer> rtn = new HashMap<>(pathways.size() * 2);
+        int i = 0;
+        for (PathwayNodeSummary pathway : pathways) {
+            //Pathways are expected to be unique in a result, otherwise the index would be ambiguous
+            if (rtn.put(pathway.getPathwayId(), i++) != null) return null;
+        }
+        return rtn;
+    }
+
+    private static String getKey(String resource, AnalysisSortType sortType) {
+        return resource.toUpperCase() + "|" + sortType.name();
+    }
+
+    private static class Index {
+
+        private final long[] pathways;
+        private final int[] permutation;
+
+        Index(long[] pathways, int[] permutation) {
+            this.pathways = pathways;
+            this.permutation = permutation;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.reactome.server.analysis.service.helper;
+
+import org.reactome.server.analysis.core.model.PathwayNodeData;
+import org.reactome.server.analysis.core.model.resource.MainResource;
+import org.reactome.server.analysis.core.model.resource.Resource;
+import org.reactome.server.analysis.core.model.resource.ResourceFactory;
+import org.reactome.server.analysis.core.result.AnalysisStoredResult;
+import org.reactome.server.analysis.core.result.PathwayNodeSummary;
+import org.reactome.server.analysis.service.model.PathwayComparison;
+import org.reactome.server.analysis.service.model.TokenComparison;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Compares two results on the server, so clients do not need to download both of them to find out how the
+ * pathways changed from one to the other (i.e. treated vs control or the same sample in two releases).
+ * <p>
+ * Both results are filtered with the same options and their hit pathways are joined by identifier in a single
+ * pass over each of them. The pValue threshold is applied to the joined pathways, keeping those significant in
+ * either result with their statistics in both. The joined pathways are sorted as in the first result (or the
+ * second one for those only hit there) and only the requested page is worked out.
+ */
+@Component
+public class TokenComparisonHelper {
+
+    public TokenComparison compare(AnalysisStoredResult first, AnalysisStoredResult second, AnalysisFilter filter,
+                                   String sortBy, String order, Integer pageSize, Integer page) {
+        String resource = filter.getResource();
+        //The pValue threshold is applied to the joined pathways, so the statistics in both results are kept
+        AnalysisFilter all = filter.withPValue(1d);
+        Map<String, PathwayNodeSummary[]> joined = new LinkedHashMap<>();
+        for (PathwayNodeSummary pathway : DownloadHelper.filterPathwaysByResource(all.apply(first).getPathways(), resource)) {
+            joined.put(pathway.getStId(), new PathwayNodeSummary[]{pathway, null});
+        }
+        for (PathwayNodeSummary pathway : DownloadHelper.filterPathwaysByResource(all.apply(second).getPathways(), resource)) {
+            joined.computeIfAbsent(pathway.getStId(), k -> new PathwayNodeSummary[2])[1] = pathway;
+        }
+
+        MainResource mr = getMainResource(resource);
+        Double pValue = filter.getPValue();
+        if (pValue != null && pValue < 1) {
+            joined.values().removeIf(pair -> !isSignificant(pair[0], mr, pValue) && !isSignificant(pair[1], mr, pValue));
+        }
+
+        List<PathwayNodeSummary[]> pathways = new ArrayList<>(joined.values());
+        Comparator<PathwayNodeSummary> comparator = DownloadHelper.getComparator(sortBy, order, resource);
+        pathways.sort((a, b) -> comparator.compare(a[0] != null ? a[0] : a[1], b[0] != null ? b[0] : b[1]));
+
+        int from = 0, to = pathways.size();
+        if (pageSize != null && pageSize > 0) {
+            from = Math.min(to, (Math.max(page != null ? page : 1, 1) - 1) * pageSize);
+            to = Math.min(to, from + pageSize);
+        }
+        List<PathwayComparison> rtn = new ArrayList<>(to - from);
+        for (PathwayNodeSummary[] pair : pathways.subList(from, to)) {
+            PathwayNodeSummary pathway = pair[0] != null ? pair[0] : pair[1];
+            rtn.add(new PathwayComparison(pathway.getStId(), pathway.getPathwayId(), pathway.getName(),
+                    getStatistics(pair[0], mr), getStatistics(pair[1], mr)));
+        }
+        return new TokenComparison(first.getSummary().getToken(), second.getSummary().getToken(), pathways.size(), rtn);
+    }
+
+    private static PathwayComparison.Statistics getStatistics(PathwayNodeSummary pathway, MainResource mr) {
+        if (pathway == null) return null;
+        PathwayNodeData data = pathway.getData();
+        if (mr == null) {
+            return new PathwayComparison.Statistics(data.getEntitiesFound(), data.getEntitiesPValue(), data.getEntitiesFDR());
+        }
+        return new PathwayComparison.Statistics(data.getEntitiesFound(mr), data.getEntitiesPValue(mr), data.getEntitiesFDR(mr));
+    }
+
+    private static boolean isSignificant(PathwayNodeSummary pathway, MainResource mr, Double pValue) {
+        if (pathway == null) return false;
+        Double value = mr == null ? pathway.getData().getEntitiesPValue() : pathway.getData().getEntitiesPValue(mr);
+        return value != null && value <= pValue;
+    }
+
+    private static MainResource getMainResource(String resource) {
+        Resource r = resource != null ? ResourceFactory.getResource(resource) : null;
+        return r instanceof MainResource ? (MainResource) r : null;
+    }
+}
@@ -0,0 +1,232 @@
+package org.reactome.server.analysis.service.helper;
+
+import org.reactome.server.analysis.core.result.exception.RequestEntityTooLargeException;
+import org.reactome.server.analysis.core.result.exception.ResourceNotFoundException;
+import org.reactome.server.analysis.service.model.UploadSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Keeps the chunked uploads, so large inputs do not have to go through a single multipart request and a dropped
+ * connection only means sending again what did not arrive.
+ * <p>
+ * Every chunk is streamed straight to the upload file at its offset. A chunk can start anywhere up to the bytes
+ * received so far (re-sending data is harmless) and whatever arrived before a connection dropped is kept. Uploads
+ * are discarded once committed or after some time without receiving data.
+ * <p>
+ * Only the files named as the uploads (upload-*.part) are deleted when starting, but the folder must be exclusive
+ * to one instance of the service: the uploads in progress of another instance sharing it would be deleted as the
+ * leftovers of a previous run.
+ */
+@Component
+public class UploadManager {
+
+    private static final Logger logger = LoggerFactory.getLogger("analysisLogger");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String UPLOAD_PREFIX = "upload-";
+    private static final String UPLOAD_SUFFIX = ".part";
+
+    private final Path folder;
+    private final long maxSize;
+    private final long expiry;
+
+    private final Map<String, Upload> uploads = new ConcurrentHashMap<>();
+
+    public UploadManager(@Value("${analysis.upload.folder:${java.io.tmpdir}/reactome-analysis-uploads}") String folder,
+                         @Value("${analysis.input.max.size:209715200}") Long maxSize,
+                         @Value("${analysis.upload.expiry.minutes:60}") Integer expiry) {
+        this.folder = Paths.get(folder);
+        this.maxSize = maxSize;
+        this.expiry = TimeUnit.MINUTES.toMillis(expiry);
+        try {
+            Files.createDirectories(this.folder);
+            //Uploads are only kept in memory, so the files left by a previous run cannot be resumed
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(this.folder, UPLOAD_PREFIX + "*" + UPLOAD_SUFFIX)) {
+                files.forEach(UploadManager::delete);
+            }
+        } catch (IOException e) {
+            logger.error("Unable to prepare the uploads folder " + folder, e);
+        }
+    }
+
+    private class Upload {
+
+        private final String id;
+        private final String fileName;
+        private final Path file;
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile long size = 0L;
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        Upload(String id, String fileName, Path file) {
+            this.id = id;
+            this.fileName = fileName;
+            this.file = file;
+        }
+
+        UploadSession getSession() {
+            return new UploadSession(id, fileName, size, maxSize, lastAccess + expiry);
+        }
+    }
+
+    public UploadSession create(String fileName) {
+        String id = UUID.randomUUID().toString();
+        try {
+            Path file = Files.createFile(folder.resolve(UPLOAD_PREFIX + id + UPLOAD_SUFFIX));
+            Upload upload = new Upload(id, fileName, file);
+            uploads.put(id, upload);
+            return upload.getSession();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create the upload file", e);
+        }
+    }
+
+    /**
+     * @throws ResourceNotFoundException if there is no such upload (it might have expired)
+     */
+    public UploadSession getSession(String id) {
+        return getUpload(id).getSession();
+    }
+
+    /**
+     * Writes the chunk at the given offset, keeping what was received even if the chunk is not completely read
+     *
+     * @return false (and nothing is written) when the offset leaves a gap after the bytes received so far
+     * @throws RequestEntityTooLargeException if the upload exceeds the maximum size
+     */
+    public boolean write(String id, long offset, InputStream chunk) throws IOException {
+        Upload upload = lock(id);
+        try {
+            if (offset < 0 || offset > upload.size) return false;
+            upload.lastAccess = System.currentTimeMillis();
+            try (FileChannel channel = FileChannel.open(upload.file, StandardOpenOption.WRITE)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                long position = offset;
+                try {
+                    int n;
+                    while ((n = chunk.read(buffer)) != -1) {
+                        if (position + n > maxSize) throw new RequestEntityTooLargeException();
+                        ByteBuffer bb = ByteBuffer.wrap(buffer, 0, n);
+                        while (bb.hasRemaining()) position += channel.write(bb, position);
+                    }
+                } finally {
+                    upload.size = Math.max(upload.size, position);
+                    upload.lastAccess = System.currentTimeMillis();
+                }
+            }
+            return true;
+        } finally {
+            upload.lock.unlock();
+        }
+    }
+
+    /**
+     * Passes the uploaded content to the reader and, if it succeeds, discards the upload
+     *
+     * @return whatever the reader returns
+     */
+    public <T> T commit(String id, Function<InputStream, T> reader) {
+        Upload upload = lock(id);
+        try {
+            T rtn;
+            try (InputStream is = new BufferedInputStream(Files.newInputStream(upload.file), MimeTypeDetector.SNIFF_BLOCK_SIZE)) {
+                rtn = reader.apply(is);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to read the upload " + id, e);
+            }
+            remove(upload);
+            return rtn;
+        } finally {
+            upload.lock.unlock();
+        }
+    }
+
+    /**
+     * @throws ResourceNotFoundException if there is no such upload (it might have expired)
+     */
+    public void cancel(String id) {
+        Upload upload = lock(id);
+        try {
+            remove(upload);
+        } finally {
+            upload.lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelay = 60_000L)
+    public void discardExpired() {
+        long limit = System.currentTimeMillis() - expiry;
+        for (Upload upload : uploads.values()) {
+            //An upload in use (receiving a chunk or being committed) is not expired
+            if (upload.lastAccess < limit && upload.lock.tryLock()) {
+                try {
+                    logger.info("Upload " + upload.id + " expired");
+                    remove(upload);
+                } finally {
+                    upload.lock.unlock();
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        uploads.values().forEach(this::remove);
+    }
+
+    private Upload getUpload(String id) {
+        Upload upload = id != null ? uploads.get(id) : null;
+        if (upload == null) throw new ResourceNotFoundException();
+        return upload;
+    }
+
+    /**
+     * @return the upload, locked by the current thread, as long as it was not discarded while waiting for the lock
+     */
+    private Upload lock(String id) {
+        Upload upload = getUpload(id);
+        upload.lock.lock();
+        if (uploads.get(id) != upload) {
+            upload.lock.unlock();
+            throw new ResourceNotFoundException();
+        }
+        return upload;
+    }
+
+    private void remove(Upload upload) {
+        uploads.remove(upload.id, upload);
+        delete(upload.file);
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Unable to delete " + path, e);
+        }
+    }
+}
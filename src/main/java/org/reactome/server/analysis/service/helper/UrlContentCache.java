@@ -0,0 +1,209 @@
+package org.reactome.server.analysis.service.helper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache of the content retrieved from urls, so repeated submissions of the same public dataset can be
+ * revalidated with the origin (ETag / Last-Modified) rather than downloaded again.
+ * <p>
+ * Besides the content, each entry remembers the digests (MD5) the consumers worked out from it (i.e. the input
+ * MD5 of the analysis). When the origin confirms the content did not change, the consumers can go straight to
+ * the token associated with that digest without parsing the content at all.
+ * <p>
+ * Every entry is made of two files named after the url hash: the content (.data) and its metadata (.meta). The
+ * total size of the content is bounded, evicting the least recently used entries first.
+ */
+@Component
+public class UrlContentCache {
+
+    private static final Logger logger = LoggerFactory.getLogger("analysisLogger");
+
+    private static final String DATA = ".data";
+    private static final String META = ".meta";
+
+    private static final String URL = "url";
+    private static final String ETAG = "etag";
+    private static final String LAST_MODIFIED = "last-modified";
+    private static final String DIGEST_PREFIX = "digest.";
+
+    private final Path folder;
+    private final long maxSize;
+
+    public UrlContentCache(@Value("${analysis.url.cache.folder:${java.io.tmpdir}/reactome-analysis-url-cache}") String folder,
+                           @Value("${analysis.url.cache.max.bytes:1073741824}") Long maxSize) {
+        this.folder = Paths.get(folder);
+        this.maxSize = maxSize;
+        try {
+            Files.createDirectories(this.folder);
+        } catch (IOException e) {
+            logger.error("Unable to create the url cache folder " + folder, e);
+        }
+    }
+
+    /**
+     * A cached url content along with the validators provided by the origin and the known digests
+     */
+    public static class Entry {
+
+        private final String url;
+        private final Path data;
+        private final Properties meta;
+
+        private Entry(String url, Path data, Properties meta) {
+            this.url = url;
+            this.data = data;
+            this.meta = meta;
+        }
+
+        public String getETag() {
+            return meta.getProperty(ETAG);
+        }
+
+        public String getLastModified() {
+            return meta.getProperty(LAST_MODIFIED);
+        }
+
+        public String getDigest(String kind) {
+            return meta.getProperty(DIGEST_PREFIX + kind);
+        }
+
+        public InputStream getInputStream() throws IOException {
+            return new BufferedInputStream(Files.newInputStream(data));
+        }
+    }
+
+    /**
+     * @return the entry cached for the url or null if there is none
+     */
+    public Entry get(String url) {
+        String key = key(url);
+        Path data = folder.resolve(key + DATA);
+        Path meta = folder.resolve(key + META);
+        if (!Files.exists(data) || !Files.exists(meta)) return null;
+        try (Reader reader = Files.newBufferedReader(meta, StandardCharsets.UTF_8)) {
+            Properties properties = new Properties();
+            properties.load(reader);
+            // Hash collisions are unlikely but not impossible
+            if (!url.equals(properties.getProperty(URL))) return null;
+            Files.setLastModifiedTime(data, FileTime.fromMillis(System.currentTimeMillis()));
+            return new Entry(url, data, properties);
+        } catch (IOException e) {
+            logger.warn("Unable to read the url cache entry for " + url, e);
+            return null;
+        }
+    }
+
+    /**
+     * @return true when the origin provided enough information for the content to be revalidated later on
+     */
+    public boolean isCacheable(String eTag, String lastModified) {
+        return eTag != null || lastModified != null;
+    }
+
+    /**
+     * @return a new temporary file where the content can be written while it is being read from the origin
+     */
+    public Path newTempFile() throws IOException {
+        return Files.createTempFile(folder, "download-", ".tmp");
+    }
+
+    /**
+     * Stores the downloaded content (moving the temporary file in place) together with its metadata
+     */
+    public void put(String url, Path tmp, String eTag, String lastModified, Map<String, String> digests) {
+        String key = key(url);
+        try {
+            Files.move(tmp, folder.resolve(key + DATA), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Properties meta = new Properties();
+            meta.setProperty(URL, url);
+            if (eTag != null) meta.setProperty(ETAG, eTag);
+            if (lastModified != null) meta.setProperty(LAST_MODIFIED, lastModified);
+            digests.forEach((kind, digest) -> meta.setProperty(DIGEST_PREFIX + kind, digest));
+            writeMeta(key, meta);
+        } catch (IOException e) {
+            logger.warn("Unable to cache the content of " + url, e);
+            delete(key);
+        }
+        evict();
+    }
+
+    /**
+     * Adds the digests worked out from an already cached content
+     */
+    public void addDigests(Entry entry, Map<String, String> digests) {
+        if (digests.isEmpty()) return;
+        digests.forEach((kind, digest) -> entry.meta.setProperty(DIGEST_PREFIX + kind, digest));
+        try {
+            writeMeta(key(entry.url), entry.meta);
+        } catch (IOException e) {
+            logger.warn("Unable to update the url cache entry for " + entry.url, e);
+        }
+    }
+
+    private void writeMeta(String key, Properties meta) throws IOException {
+        Path tmp = Files.createTempFile(folder, key, ".tmp");
+        try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            meta.store(writer, null);
+        }
+        Files.move(tmp, folder.resolve(key + META), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private synchronized void evict() {
+        List<Path> entries = new ArrayList<>();
+        try (Stream<Path> files = Files.list(folder)) {
+            files.filter(f -> f.getFileName().toString().endsWith(DATA)).forEach(entries::add);
+        } catch (IOException e) {
+            logger.warn("Unable to list the url cache folder", e);
+            return;
+        }
+        long total = entries.stream().mapToLong(UrlContentCache::size).sum();
+        if (total <= maxSize) return;
+        entries.sort(Comparator.comparingLong(UrlContentCache::lastModified));
+        for (Path data : entries) {
+            if (total <= maxSize) break;
+            total -= size(data);
+            String name = data.getFileName().toString();
+            delete(name.substring(0, name.length() - DATA.length()));
+        }
+    }
+
+    private void delete(String key) {
+        try {
+            Files.deleteIfExists(folder.resolve(key + META));
+            Files.deleteIfExists(folder.resolve(key + DATA));
+        } catch (IOException e) {
+            logger.warn("Unable to delete the url cache entry " + key, e);
+        }
+    }
+
+    private static long size(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    private static String key(String url) {
+        return DigestUtils.md5DigestAsHex(url.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,325 @@
+package org.reactome.server.analysis.service.helper;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.io.input.TeeInputStream;
+import org.reactome.server.analysis.core.result.exception.RequestEntityTooLargeException;
+import org.reactome.server.analysis.core.result.exception.UnprocessableEntityException;
+import org.reactome.server.analysis.core.result.exception.UnsupportedMediaTypeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509ExtendedTrustManager;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Retrieves the data submitted by URL (analysis, mapping and import) on a dedicated bounded pool of threads,
+ * so slow or unresponsive origins do not pin the servlet threads.
+ * <p>
+ * A single HttpClient is shared, so connections are pooled and reused. The number of concurrent downloads per
+ * host is limited, the connection and the whole download have strict timeouts and the size is enforced while
+ * the content is being read (Content-Length cannot be trusted).
+ * <p>
+ * Contents providing ETag or Last-Modified are kept in the UrlContentCache and revalidated with the origin
+ * (conditional GET) the next time the same url is submitted.
+ */
+@Component
+public class UrlFetcher {
+
+    private static final Logger logger = LoggerFactory.getLogger("analysisLogger");
+
+    /**
+     * Reads the downloaded content. It runs on the fetcher thread and the stream is closed once it returns.
+     */
+    @FunctionalInterface
+    public interface ContentReader<T> {
+        T read(UrlContent content) throws IOException;
+    }
+
+    /**
+     * The content retrieved from the url, which might come from the UrlContentCache when the origin confirms
+     * it has not been modified. In that case the digests worked out in previous reads are available, so the
+     * reader can skip parsing it. Digests set by the reader are remembered for the next time.
+     */
+    public static class UrlContent {
+
+        private final InputStream inputStream;
+        private final UrlContentCache.Entry cached;
+        private final Map<String, String> digests = new HashMap<>();
+
+        private UrlContent(InputStream inputStream, UrlContentCache.Entry cached) {
+            this.inputStream = inputStream;
+            this.cached = cached;
+        }
+
+        public InputStream getInputStream() {
+            return inputStream;
+        }
+
+        public boolean isNotModified() {
+            return cached != null;
+        }
+
+        /**
+         * @return the digest of the given kind worked out last time this (not modified) content was read
+         */
+        public String getDigest(String kind) {
+            return cached != null ? cached.getDigest(kind) : null;
+        }
+
+        public void setDigest(String kind, String digest) {
+            if (digest != null) digests.put(kind, digest);
+        }
+    }
+
+    private final HttpClient client;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService watchdog;
+    // The semaphore of a host is only kept while a download from it holds a reference, so idle hosts go away
+    private final Cache<String, Semaphore> hosts = Caffeine.newBuilder().weakValues().build();
+
+    private UrlContentCache urlContentCache;
+
+    private final int maxPerHost;
+    private final Duration timeout;
+    private final long maxSize;
+
+    public UrlFetcher(@Value("${analysis.url.threads:16}") Integer threads,
+                      @Value("${analysis.url.max.per.host:4}") Integer maxPerHost,
+                      @Value("${analysis.url.connect.timeout:10}") Integer connectTimeout,
+                      @Value("${analysis.url.timeout:120}") Integer timeout,
+                      @Value("${analysis.url.max.size:52428800}") Long maxSize) {
+        this.maxPerHost = maxPerHost;
+        this.timeout = Duration.ofSeconds(timeout);
+        this.maxSize = maxSize;
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 4),
+                r -> new Thread(r, "AS-UrlFetcher-" + count.incrementAndGet()));
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "AS-UrlFetcher-Watchdog"));
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(connectTimeout))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .sslContext(trustAllContext())
+                .build();
+    }
+
+    /**
+     * Downloads the content of the url and passes it to the reader, off the request thread
+     *
+     * @return a future completed with whatever the reader returns or exceptionally with UnprocessableEntityException
+     * when the url cannot be retrieved or RequestEntityTooLargeException when it is too big
+     * @throws RejectedExecutionException when there are too many downloads in progress (from the host or overall).
+     *                                    The limits are checked before submitting, so no fetcher thread waits for them
+     */
+    public <T> CompletableFuture<T> fetch(String url, ContentReader<T> reader) {
+        if (url == null || url.isEmpty()) throw new UnsupportedMediaTypeException();
+        URI uri;
+        try {
+            uri = URI.create(url.trim());
+        } catch (IllegalArgumentException e) {
+            throw new UnprocessableEntityException();
+        }
+        if (uri.getHost() == null || !("http".equalsIgnoreCase(uri.getScheme()) || "https".equalsIgnoreCase(uri.getScheme()))) {
+            throw new UnprocessableEntityException();
+        }
+        Semaphore permits = hosts.get(uri.getHost().toLowerCase(), h -> new Semaphore(maxPerHost));
+        if (!permits.tryAcquire()) {
+            logger.warn("Too many concurrent downloads from " + uri.getHost());
+            throw new RejectedExecutionException("Too many concurrent downloads from " + uri.getHost() + ". Please try again later");
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> download(uri, reader, permits), executor);
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            logger.warn("Too many downloads in progress. Rejecting " + uri);
+            throw new RejectedExecutionException("Too many downloads in progress. Please try again later");
+        }
+    }
+
+    /**
+     * The permit of the host is acquired before submitting the download and released here once it finishes
+     */
+    private <T> T download(URI uri, ContentReader<T> reader, Semaphore permits) {
+        ScheduledFuture<?> deadline = null;
+        Path tmp = null;
+        OutputStream copy = null;
+        try {
+            String url = uri.toString();
+            UrlContentCache.Entry cached = urlContentCache.get(url);
+            HttpRequest.Builder builder = HttpRequest.newBuilder(uri).timeout(timeout).GET();
+            if (cached != null && cached.getETag() != null) builder.header("If-None-Match", cached.getETag());
+            if (cached != null && cached.getLastModified() != null) builder.header("If-Modified-Since", cached.getLastModified());
+            HttpResponse<InputStream> response = client.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+            try (InputStream body = response.body()) {
+                if (response.statusCode() == 304 && cached != null) {
+                    try (InputStream is = cached.getInputStream()) {
+                        UrlContent content = new UrlContent(is, cached);
+                        T rtn = reader.read(content);
+                        urlContentCache.addDigests(cached, content.digests);
+                        return rtn;
+                    }
+                }
+                if (response.statusCode() / 100 != 2) throw new UnprocessableEntityException();
+                if (response.headers().firstValueAsLong("Content-Length").orElse(-1L) > maxSize) {
+                    throw new RequestEntityTooLargeException();
+                }
+                //Closing the body aborts the download when the origin is too slow sending it
+                deadline = watchdog.schedule(() -> close(body), timeout.toMillis(), TimeUnit.MILLISECONDS);
+
+                String eTag = response.headers().firstValue("ETag").orElse(null);
+                String lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+                InputStream is = new SizeLimitedInputStream(body);
+                if (urlContentCache.isCacheable(eTag, lastModified)) {
+                    //The content is copied to the cache while it is being read
+                    tmp = urlContentCache.newTempFile();
+                    copy = Files.newOutputStream(tmp);
+                    is = new TeeInputStream(is, copy, true);
+                }
+                //The reader closes the stream it is given, but the rest of the content still has to reach the cache
+                UrlContent content = new UrlContent(tmp != null ? CloseShieldInputStream.wrap(is) : is, null);
+                T rtn = reader.read(content);
+                if (tmp != null) {
+                    try (InputStream tee = is) {
+                        tee.transferTo(OutputStream.nullOutputStream());
+                    }
+                    urlContentCache.put(url, tmp, eTag, lastModified, content.digests);
+                    tmp = null;
+                }
+                return rtn;
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to retrieve " + uri + ": " + e.getMessage());
+            throw new UnprocessableEntityException();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnprocessableEntityException();
+        } finally {
+            if (deadline != null) deadline.cancel(false);
+            if (tmp != null) {
+                IOUtils.closeQuietly(copy);
+                delete(tmp);
+            }
+            permits.release();
+        }
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Unable to delete " + path, e);
+        }
+    }
+
+    private static void close(InputStream is) {
+        try {
+            is.close();
+        } catch (IOException e) {
+            /*Nothing here*/
+        }
+    }
+
+    // The data is retrieved from any origin, so (as it has always been) any certificate is accepted
+    private static SSLContext trustAllContext() {
+        TrustManager[] trustAllCerts = new TrustManager[]{
+                new X509ExtendedTrustManager() {
+                    public X509Certificate[] getAcceptedIssuers() {
+                        return new X509Certificate[0];
+                    }
+
+                    public void checkServerTrusted(X509Certificate[] certs, String authType) {}
+
+                    public void checkClientTrusted(X509Certificate[] certs, String authType) {}
+
+                    public void checkServerTrusted(X509Certificate[] certs, String authType, Socket socket) {}
+
+                    public void checkClientTrusted(X509Certificate[] certs, String authType, Socket socket) {}
+
+                    public void checkServerTrusted(X509Certificate[] certs, String authType, SSLEngine engine) {}
+
+                    public void checkClientTrusted(X509Certificate[] certs, String authType, SSLEngine engine) {}
+                }
+        };
+        try {
+            SSLContext sc = SSLContext.getInstance("TLS");
+            sc.init(null, trustAllCerts, new SecureRandom());
+            return sc;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to initialise the SSL context for the url fetcher", e);
+        }
+    }
+
+    @Autowired
+    public void setUrlContentCache(UrlContentCache urlContentCache) {
+        this.urlContentCache = urlContentCache;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchdog.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    private class SizeLimitedInputStream extends FilterInputStream {
+
+        private long count = 0;
+
+        SizeLimitedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) count(1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count(n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            if (skipped > 0) count(skipped);
+            return skipped;
+        }
+
+        private void count(long n) {
+            count += n;
+            if (count > maxSize) throw new RequestEntityTooLargeException();
+        }
+    }
+}
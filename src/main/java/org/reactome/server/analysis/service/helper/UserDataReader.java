@@ -0,0 +1,232 @@
+package org.reactome.server.analysis.service.helper;
+
+import org.reactome.server.analysis.core.model.AnalysisIdentifier;
+import org.reactome.server.analysis.core.model.UserData;
+import org.reactome.server.analysis.core.result.exception.DataFormatException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the identifiers (and expression values) of a submitted text file in one pass over the stream, so large
+ * uploads are parsed as they are read, neither the whole file nor any of its lines is held in memory and the input
+ * MD5 is computed on the way.
+ * <p>
+ * The optional header is the first line when it starts with '#'. Its first column is the sample name and the rest
+ * are the expression column names. The header columns are split by tabs, commas or semicolons, while the values of
+ * the rest of the lines are also split by spaces. Without a header (or with a single column one) the first line
+ * tells whether it is an expression analysis (an identifier followed by numbers) or an overrepresentation one,
+ * where every value is an identifier. As usual, repeated identifiers are only taken once.
+ */
+public final class UserDataReader {
+
+    static final String MISSING_HEADER = "Missing header. Using a default one.";
+
+    private static final Pattern HEADER_SEPARATOR = Pattern.compile("[\\t,;]+");
+
+    private static final int MAX_HEADER_LENGTH = 64 * 1024;
+    private static final int MAX_VALUE_LENGTH = 1024;
+
+    private UserDataReader() {}
+
+    /**
+     * @param is the (decompressed) text content
+     * @return the user data, where the input MD5 is the one of the content
+     * @throws DataFormatException if the content is not a list of identifiers or an expression matrix
+     * @throws IOException         if the stream could not be read
+     */
+    public static UserData read(InputStream is) throws IOException {
+        MessageDigest md5 = getMD5();
+        Input in = new Input(new InputStreamReader(new DigestInputStream(is, md5), StandardCharsets.UTF_8));
+        List<String> warnings = new ArrayList<>();
+        Set<AnalysisIdentifier> identifiers = new LinkedHashSet<>();
+
+        in.skipBlankLines();
+        String sampleName = null;
+        List<String> columnNames = new ArrayList<>();
+        boolean header = in.peek() == '#';
+        if (header) {
+            List<String> columns = splitHeader(in.readLine(MAX_HEADER_LENGTH).substring(1));
+            if (!columns.isEmpty()) sampleName = columns.get(0);
+            if (columns.size() > 1) columnNames.addAll(columns.subList(1, columns.size()));
+        } else {
+            warnings.add(MISSING_HEADER);
+        }
+
+        boolean more = true;
+        if (columnNames.isEmpty()) {
+            //The first line tells the type of analysis and it is taken (as a whole) before continuing with the rest
+            in.skipBlankLines();
+            List<String> first = new ArrayList<>();
+            for (String value; (value = in.next()) != null; ) first.add(value);
+            if (first.size() > 1 && first.subList(1, first.size()).stream().allMatch(UserDataReader::isNumber)) {
+                for (int i = 1; i < first.size(); i++) columnNames.add("col" + i);
+                AnalysisIdentifier identifier = new AnalysisIdentifier(first.get(0));
+                for (String value : first.subList(1, first.size())) identifier.add(Double.valueOf(value));
+                identifiers.add(identifier);
+            } else {
+                for (String value : first) identifiers.add(new AnalysisIdentifier(value));
+            }
+            more = in.nextLine();
+        }
+
+        for (; more; more = in.nextLine()) {
+            String id = in.next();
+            if (id == null) continue;
+            if (columnNames.isEmpty()) {
+                for (String value = id; value != null; value = in.next()) identifiers.add(new AnalysisIdentifier(value));
+            } else {
+                AnalysisIdentifier identifier = new AnalysisIdentifier(id);
+                for (int i = 0; i < columnNames.size(); i++) {
+                    String value = in.next();
+                    if (value == null) throw wrongColumns(in.line, columnNames.size());
+                    identifier.add(parseNumber(value, in.line));
+                }
+                if (in.next() != null) throw wrongColumns(in.line, columnNames.size());
+                identifiers.add(identifier);
+            }
+        }
+        if (identifiers.isEmpty()) throw new DataFormatException("There are no identifiers in the submitted data");
+
+        String inputMD5 = String.format("%032x", new BigInteger(1, md5.digest()));
+        return new UserData(columnNames, identifiers, inputMD5, sampleName, warnings);
+    }
+
+    private static List<String> splitHeader(String header) {
+        List<String> rtn = new ArrayList<>();
+        for (String column : HEADER_SEPARATOR.split(header)) {
+            if (!column.trim().isEmpty()) rtn.add(column.trim());
+        }
+        return rtn;
+    }
+
+    private static boolean isNumber(String value) {
+        try {
+            return Double.isFinite(Double.parseDouble(value));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static Double parseNumber(String value, int line) {
+        if (!isNumber(value)) throw new DataFormatException("Line " + line + ": '" + value + "' is not a number");
+        return Double.valueOf(value);
+    }
+
+    private static DataFormatException wrongColumns(int line, int columns) {
+        return new DataFormatException("Line " + line + " does not contain an identifier followed by " + columns + " expression value(s)");
+    }
+
+    private static MessageDigest getMD5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads the content value by value through a fixed size buffer. Values are bounded to MAX_VALUE_LENGTH.
+     */
+    private static class Input {
+
+        private final Reader reader;
+        private final char[] buffer = new char[8 * 1024];
+        private final StringBuilder value = new StringBuilder();
+        private int pos = 0;
+        private int limit = 0;
+        private int line = 1;
+
+        Input(Reader reader) {
+            this.reader = reader;
+        }
+
+        int peek() throws IOException {
+            if (pos == limit) {
+                limit = reader.read(buffer, 0, buffer.length);
+                pos = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[pos];
+        }
+
+        /**
+         * @return the next value of the current line or null when the line is over
+         */
+        String next() throws IOException {
+            int c;
+            while ((c = peek()) != -1 && c != '\n' && isSeparator(c)) pos++;
+            if (c == -1 || c == '\n') return null;
+            value.setLength(0);
+            while ((c = peek()) != -1 && c != '\n' && !isSeparator(c)) {
+                if (value.length() == MAX_VALUE_LENGTH) {
+                    throw new DataFormatException("Line " + line + " contains a value longer than " + MAX_VALUE_LENGTH + " characters");
+                }
+                value.append((char) c);
+                pos++;
+            }
+            return value.toString();
+        }
+
+        /**
+         * @return the rest of the current line, moving to the following one
+         */
+        String readLine(int maxLength) throws IOException {
+            StringBuilder rtn = new StringBuilder();
+            int c;
+            while ((c = peek()) != -1 && c != '\n') {
+                if (rtn.length() == maxLength) {
+                    throw new DataFormatException("Line " + line + " is longer than " + maxLength + " characters");
+                }
+                rtn.append((char) c);
+                pos++;
+            }
+            if (c == '\n') {
+                pos++;
+                line++;
+            }
+            return rtn.toString();
+        }
+
+        /**
+         * Skips the rest of the current line
+         *
+         * @return false if there are no more lines
+         */
+        boolean nextLine() throws IOException {
+            int c;
+            while ((c = peek()) != -1) {
+                pos++;
+                if (c == '\n') {
+                    line++;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void skipBlankLines() throws IOException {
+            int c;
+            while ((c = peek()) != -1 && (c == '\n' || isSeparator(c))) {
+                pos++;
+                if (c == '\n') line++;
+            }
+        }
+
+        private static boolean isSeparator(int c) {
+            return Character.isWhitespace(c) || c == ',' || c == ';';
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.reactome.server.analysis.service.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.swagger.v3.oas.annotations.media.Schema;
+import org.reactome.server.analysis.core.result.AnalysisStoredResult;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Keeps track of an analysis submitted to the {@link org.reactome.server.analysis.service.helper.AnalysisJobManager}.
+ * The token is known before the analysis starts (it is derived from the input MD5), so clients can poll
+ * /token/{token}/status and retrieve the result once the job is done.
+ */
+@Schema(description = "Status of an analysis job")
+public class AnalysisJob {
+
+    public enum Status {QUEUED, RUNNING, DONE, FAILED}
+
+    private final String token;
+    private volatile Status status;
+    private final Long submitted;
+    private volatile Long started;
+    private volatile Long finished;
+    private volatile String error;
+
+    @JsonIgnore
+    private CompletableFuture<AnalysisStoredResult> future;
+
+    public AnalysisJob(String token) {
+        this.token = token;
+        this.status = Status.QUEUED;
+        this.submitted = System.currentTimeMillis();
+    }
+
+    /**
+     * @param token an already existing token (the result has been stored in a previous analysis)
+     * @return a job in DONE status with no timings associated
+     */
+    public static AnalysisJob done(String token) {
+        AnalysisJob job = new AnalysisJob(token);
+        job.status = Status.DONE;
+        return job;
+    }
+
+    public void setRunning() {
+        this.started = System.currentTimeMillis();
+        this.status = Status.RUNNING;
+    }
+
+    public void setDone() {
+        this.finished = System.currentTimeMillis();
+        this.status = Status.DONE;
+    }
+
+    public void setFailed(String error) {
+        this.finished = System.currentTimeMillis();
+        this.error = error;
+        this.status = Status.FAILED;
+    }
+
+    @Schema(description = "The token associated to the analysis result")
+    public String getToken() {
+        return token;
+    }
+
+    @Schema(description = "QUEUED, RUNNING, DONE or FAILED")
+    public Status getStatus() {
+        return status;
+    }
+
+    @Schema(description = "Submission time (milliseconds since epoch)")
+    public Long getSubmitted() {
+        return submitted;
+    }
+
+    @Schema(description = "Time the analysis started running (milliseconds since epoch)")
+    public Long getStarted() {
+        return started;
+    }
+
+    @Schema(description = "Time the analysis finished (milliseconds since epoch)")
+    public Long getFinished() {
+        return finished;
+    }
+
+    @Schema(description = "Milliseconds the job spent waiting in the queue")
+    public Long getQueueTime() {
+        if (started != null) return started - submitted;
+        return status == Status.QUEUED ? System.currentTimeMillis() - submitted : null;
+    }
+
+    @Schema(description = "Milliseconds the analysis has been (or was) running")
+    public Long getRunTime() {
+        if (started == null) return null;
+        return (finished != null ? finished : System.currentTimeMillis()) - started;
+    }
+
+    @Schema(description = "The error message when the analysis failed")
+    public String getError() {
+        return error;
+    }
+
+    @JsonIgnore
+    public boolean isFinished() {
+        return status == Status.DONE || status == Status.FAILED;
+    }
+
+    public CompletableFuture<AnalysisStoredResult> getFuture() {
+        return future;
+    }
+
+    public void setFuture(CompletableFuture<AnalysisStoredResult> future) {
+        this.future = future;
+    }
+}
@@ -0,0 +1,62 @@
+package org.reactome.server.analysis.service.model;
+
+/**
+ * Snapshot of the analysis workers load and counters since the service started
+ */
+public class AnalysisJobStatistics {
+
+    private final int workers;
+    private final int running;
+    private final int queued;
+    private final int queueCapacity;
+    private final long submitted;
+    private final long coalesced;
+    private final long rejected;
+
+    public AnalysisJobStatistics(int workers, int running, int queued, int queueCapacity, long submitted, long coalesced, long rejected) {
+        this.workers = workers;
+        this.running = running;
+        this.queued = queued;
+        this.queueCapacity = queueCapacity;
+        this.submitted = submitted;
+        this.coalesced = coalesced;
+        this.rejected = rejected;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public int getRunning() {
+        return running;
+    }
+
+    public int getQueued() {
+        return queued;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * @return number of analysis actually run
+     */
+    public long getSubmitted() {
+        return submitted;
+    }
+
+    /**
+     * @return number of submissions that waited for an identical analysis already in progress
+     */
+    public long getCoalesced() {
+        return coalesced;
+    }
+
+    /**
+     * @return number of submissions rejected because the queue was full
+     */
+    public long getRejected() {
+        return rejected;
+    }
+}
@@ -0,0 +1,39 @@
+package org.reactome.server.analysis.service.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * One of the samples submitted to the batch analysis
+ */
+@Schema(description = "A named sample to be analysed")
+public class AnalysisSample {
+
+    private String name;
+    private String data;
+
+    public AnalysisSample() {
+    }
+
+    public AnalysisSample(String name, String data) {
+        this.name = name;
+        this.data = data;
+    }
+
+    @Schema(description = "The name of the sample (used to identify it in the response)", example = "sample1")
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @Schema(description = "Identifiers to analyse followed by their expression (when applies), in the same format as the single analysis")
+    public String getData() {
+        return data;
+    }
+
+    public void setData(String data) {
+        this.data = data;
+    }
+}
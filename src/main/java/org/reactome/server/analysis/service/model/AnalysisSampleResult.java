@@ -0,0 +1,64 @@
+package org.reactome.server.analysis.service.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import org.reactome.server.analysis.core.result.AnalysisStoredResult;
+import org.reactome.server.analysis.core.result.model.AnalysisError;
+import org.reactome.server.analysis.core.result.model.AnalysisSummary;
+
+/**
+ * The outcome of the analysis of one of the samples submitted to the batch analysis. Either the
+ * summary (containing the token) or the error is provided
+ */
+@Schema(description = "Result of the analysis of one sample")
+public class AnalysisSampleResult {
+
+    private final String name;
+    private AnalysisSummary summary;
+    private Integer pathwaysFound;
+    private Integer identifiersNotFound;
+    private AnalysisError error;
+
+    public AnalysisSampleResult(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @param summary the summary of this sample, since the result might have been stored for another sample
+     *                with the same data (and a different name)
+     * @param result  the stored result of the analysis
+     */
+    public void setResult(AnalysisSummary summary, AnalysisStoredResult result) {
+        this.summary = summary;
+        this.pathwaysFound = result.getPathways().size();
+        this.identifiersNotFound = result.getNotFound().size();
+    }
+
+    public void setError(AnalysisError error) {
+        this.error = error;
+    }
+
+    @Schema(description = "The name of the sample")
+    public String getName() {
+        return name;
+    }
+
+    @Schema(description = "The summary of the analysis, including the token to retrieve the result")
+    public AnalysisSummary getSummary() {
+        return summary;
+    }
+
+    @Schema(description = "Number of pathways hit by the sample")
+    public Integer getPathwaysFound() {
+        return pathwaysFound;
+    }
+
+    @Schema(description = "Number of identifiers in the sample not found in Reactome")
+    public Integer getIdentifiersNotFound() {
+        return identifiersNotFound;
+    }
+
+    @Schema(description = "The reason why the sample could not be analysed")
+    public AnalysisError getError() {
+        return error;
+    }
+}
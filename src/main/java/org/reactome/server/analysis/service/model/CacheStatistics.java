@@ -0,0 +1,59 @@
+package org.reactome.server.analysis.service.model;
+
+/**
+ * Snapshot of the figures of one of the in-memory caches
+ */
+public class CacheStatistics {
+
+    private final long entries;
+    private final long weightedSize;
+    private final long maximumWeight;
+    private final long hits;
+    private final long misses;
+    private final double hitRate;
+    private final long evictions;
+    private final long evictionWeight;
+
+    public CacheStatistics(long entries, long weightedSize, long maximumWeight, long hits, long misses, double hitRate, long evictions, long evictionWeight) {
+        this.entries = entries;
+        this.weightedSize = weightedSize;
+        this.maximumWeight = maximumWeight;
+        this.hits = hits;
+        this.misses = misses;
+        this.hitRate = hitRate;
+        this.evictions = evictions;
+        this.evictionWeight = evictionWeight;
+    }
+
+    public long getEntries() {
+        return entries;
+    }
+
+    public long getWeightedSize() {
+        return weightedSize;
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public double getHitRate() {
+        return hitRate;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getEvictionWeight() {
+        return evictionWeight;
+    }
+}
@@ -0,0 +1,100 @@
+package org.reactome.server.analysis.service.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * A pathway hit in at least one of the two compared results, with its statistics in each of them and the
+ * difference (second minus first) when it is hit in both.
+ */
+@Schema(description = "Statistics of a pathway in two results and their difference")
+public class PathwayComparison {
+
+    private final String stId;
+    private final Long dbId;
+    private final String name;
+    private final Statistics first;
+    private final Statistics second;
+
+    public PathwayComparison(String stId, Long dbId, String name, Statistics first, Statistics second) {
+        this.stId = stId;
+        this.dbId = dbId;
+        this.name = name;
+        this.first = first;
+        this.second = second;
+    }
+
+    @Schema(description = "Stable identifier of the pathway")
+    public String getStId() {
+        return stId;
+    }
+
+    @Schema(description = "Database identifier of the pathway")
+    public Long getDbId() {
+        return dbId;
+    }
+
+    @Schema(description = "Name of the pathway")
+    public String getName() {
+        return name;
+    }
+
+    @Schema(description = "Statistics in the first result (absent when the pathway is not hit in it)")
+    public Statistics getFirst() {
+        return first;
+    }
+
+    @Schema(description = "Statistics in the second result (absent when the pathway is not hit in it)")
+    public Statistics getSecond() {
+        return second;
+    }
+
+    @Schema(description = "Found entities in the second result minus found entities in the first one")
+    public Integer getEntitiesFoundDelta() {
+        if (first == null || second == null || first.entitiesFound == null || second.entitiesFound == null) return null;
+        return second.entitiesFound - first.entitiesFound;
+    }
+
+    @Schema(description = "Entities pValue in the second result minus entities pValue in the first one")
+    @JsonProperty("pValueDelta")
+    public Double getPValueDelta() {
+        if (first == null || second == null || first.pValue == null || second.pValue == null) return null;
+        return second.pValue - first.pValue;
+    }
+
+    @Schema(description = "Entities FDR in the second result minus entities FDR in the first one")
+    public Double getFdrDelta() {
+        if (first == null || second == null || first.fdr == null || second.fdr == null) return null;
+        return second.fdr - first.fdr;
+    }
+
+    @Schema(description = "Statistics of a pathway in one of the compared results")
+    public static class Statistics {
+
+        private final Integer entitiesFound;
+        private final Double pValue;
+        private final Double fdr;
+
+        public Statistics(Integer entitiesFound, Double pValue, Double fdr) {
+            this.entitiesFound = entitiesFound;
+            this.pValue = pValue;
+            this.fdr = fdr;
+        }
+
+        @Schema(description = "Number of entities found")
+        public Integer getEntitiesFound() {
+            return entitiesFound;
+        }
+
+        @Schema(description = "Entities pValue")
+        @JsonProperty("pValue")
+        public Double getPValue() {
+            return pValue;
+        }
+
+        @Schema(description = "Entities FDR")
+        public Double getFdr() {
+            return fdr;
+        }
+    }
+}
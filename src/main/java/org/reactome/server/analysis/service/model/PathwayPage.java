@@ -0,0 +1,39 @@
+package org.reactome.server.analysis.service.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import org.reactome.server.analysis.core.result.model.PathwaySummary;
+
+import java.util.List;
+
+/**
+ * A chunk of the hit pathways of a result retrieved with a cursor. The cursor points to the last pathway of the
+ * chunk, so the following chunk is located straight away no matter how deep it is.
+ */
+@Schema(description = "Chunk of hit pathways and the cursor to retrieve the following one")
+public class PathwayPage {
+
+    private final Integer pathwaysFound;
+    private final List<PathwaySummary> pathways;
+    private final String cursor;
+
+    public PathwayPage(Integer pathwaysFound, List<PathwaySummary> pathways, String cursor) {
+        this.pathwaysFound = pathwaysFound;
+        this.pathways = pathways;
+        this.cursor = cursor;
+    }
+
+    @Schema(description = "Number of pathways in the filtered result")
+    public Integer getPathwaysFound() {
+        return pathwaysFound;
+    }
+
+    @Schema(description = "The pathways in this chunk")
+    public List<PathwaySummary> getPathways() {
+        return pathways;
+    }
+
+    @Schema(description = "Opaque value to send as 'cursor' to get the following chunk (absent when there are no more pathways)")
+    public String getCursor() {
+        return cursor;
+    }
+}
@@ -0,0 +1,44 @@
+package org.reactome.server.analysis.service.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+/**
+ * A page of the comparison of two results, joining their (filtered) hit pathways by identifier.
+ */
+@Schema(description = "Page of the pathways hit in either of two results with their statistics in both")
+public class TokenComparison {
+
+    private final String first;
+    private final String second;
+    private final Integer pathwaysFound;
+    private final List<PathwayComparison> pathways;
+
+    public TokenComparison(String first, String second, Integer pathwaysFound, List<PathwayComparison> pathways) {
+        this.first = first;
+        this.second = second;
+        this.pathwaysFound = pathwaysFound;
+        this.pathways = pathways;
+    }
+
+    @Schema(description = "Token of the first result")
+    public String getFirst() {
+        return first;
+    }
+
+    @Schema(description = "Token of the second result")
+    public String getSecond() {
+        return second;
+    }
+
+    @Schema(description = "Number of pathways hit in either of the filtered results")
+    public Integer getPathwaysFound() {
+        return pathwaysFound;
+    }
+
+    @Schema(description = "The pathways in this page")
+    public List<PathwayComparison> getPathways() {
+        return pathways;
+    }
+}
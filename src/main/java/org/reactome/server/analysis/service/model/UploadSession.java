@@ -0,0 +1,50 @@
+package org.reactome.server.analysis.service.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Snapshot of a chunked upload kept by the {@link org.reactome.server.analysis.service.helper.UploadManager}.
+ * The size is the number of bytes received so far, so it is also the offset of the next chunk to be sent.
+ */
+@Schema(description = "Status of a chunked upload")
+public class UploadSession {
+
+    private final String id;
+    private final String fileName;
+    private final long size;
+    private final long maxSize;
+    private final long expires;
+
+    public UploadSession(String id, String fileName, long size, long maxSize, long expires) {
+        this.id = id;
+        this.fileName = fileName;
+        this.size = size;
+        this.maxSize = maxSize;
+        this.expires = expires;
+    }
+
+    @Schema(description = "The upload identifier")
+    public String getId() {
+        return id;
+    }
+
+    @Schema(description = "The name of the uploaded file")
+    public String getFileName() {
+        return fileName;
+    }
+
+    @Schema(description = "Bytes received so far (offset of the next chunk)")
+    public long getSize() {
+        return size;
+    }
+
+    @Schema(description = "Maximum size of the upload in bytes")
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    @Schema(description = "Time (milliseconds since epoch) when the upload is discarded unless it gets more data")
+    public long getExpires() {
+        return expires;
+    }
+}
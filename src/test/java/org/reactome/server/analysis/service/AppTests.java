@@ -15,6 +15,7 @@ import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilde
 import java.util.HashMap;
 import java.util.Map;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
@@ -168,29 +169,23 @@ public class AppTests {
 
     protected MvcResult mockMvcPostResult(String url, String content, Map<String, Object> params) throws Exception {
 
-        if (params != null && !params.isEmpty()) {
-
-            MockHttpServletRequestBuilder requestBuilder = post(url)
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .content(content);
+        MockHttpServletRequestBuilder requestBuilder = post(url)
+                .contentType(MediaType.TEXT_PLAIN)
+                .content(content);
 
+        if (params != null && !params.isEmpty()) {
             for (Map.Entry<String, Object> entry : params.entrySet())
                 requestBuilder.param(entry.getKey(), entry.getValue().toString());
+        }
 
-            return this.mockMvc.perform(requestBuilder)
-                    .andExpect(status().isOk())
-                    .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE + ";charset=UTF-8"))
-
-                    .andReturn();
-        } else {
-            return this.mockMvc.perform(
-                    post(url)
-                            .contentType(MediaType.TEXT_PLAIN)
-                            .content(content))
-                    .andExpect(status().isOk())
-                    .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE + ";charset=UTF-8"))
-                    .andReturn();
+        MvcResult result = this.mockMvc.perform(requestBuilder).andReturn();
+        // Methods retrieving the data from a url complete the response asynchronously
+        if (result.getRequest().isAsyncStarted()) {
+            result = this.mockMvc.perform(asyncDispatch(result)).andReturn();
         }
+        status().isOk().match(result);
+        content().contentType(MediaType.APPLICATION_JSON_VALUE + ";charset=UTF-8").match(result);
+        return result;
     }
 
 
@@ -1,11 +1,19 @@
 package org.reactome.server.analysis.service.controller;
 
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.reactome.server.analysis.service.AppTests;
 import org.springframework.http.MediaType;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
 
 public class DownloadControllerTest extends AppTests {
 
@@ -20,12 +28,38 @@ public class DownloadControllerTest extends AppTests {
         mockMvcGetResult(url, "text/csv;charset=UTF-8", null);
     }
 
+    @Test
+    public void downloadResultCSVRows() throws Exception {
+        String url = String.format("/download/%s/pathways/TOTAL/result.csv", AppTests.token);
+        String csv = mockMvcGetResult(url, "text/csv;charset=UTF-8", null).getResponse().getContentAsString();
+        String json = mockMvcGetResult(String.format("/download/%s/result.json", AppTests.token), MediaType.APPLICATION_JSON_VALUE + ";charset=UTF-8", null)
+                .getResponse().getContentAsString();
+        //The header followed by a row per hit pathway, all of them written straight to the response
+        String[] lines = csv.split("\n");
+        assertTrue(lines[0].startsWith("Pathway identifier"));
+        assertEquals(new ObjectMapper().readTree(json).get("pathways").size() + 1, lines.length);
+    }
+
     @Test
     public void downloadResultJSON() throws Exception {
         String url = String.format("/download/%s/result.json", AppTests.token);
         mockMvcGetResult(url, MediaType.APPLICATION_JSON_VALUE + ";charset=UTF-8", null);
     }
 
+    @Test
+    public void downloadResultCBOR() throws Exception {
+        String url = String.format("/download/%s/result.json", AppTests.token);
+        byte[] json = getMockMvc().perform(get(url)).andExpect(status().isOk()).andReturn().getResponse().getContentAsByteArray();
+        byte[] cbor = getMockMvc().perform(get(url).accept("application/cbor"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        JsonNode expected = new ObjectMapper().readTree(json);
+        JsonNode result = new ObjectMapper(new CBORFactory()).readTree(cbor);
+        assertEquals(expected.get("summary").get("token").asText(), result.get("summary").get("token").asText());
+        assertEquals(expected.get("pathways").size(), result.get("pathways").size());
+        assertTrue(cbor.length < json.length);
+    }
+
     @Test
     public void downloadResultGZIP() throws Exception {
         String url = String.format("/download/%s/result.json.gz", AppTests.token);
@@ -1,5 +1,8 @@
 package org.reactome.server.analysis.service.controller;
 
+import com.jayway.jsonpath.JsonPath;
+import com.sun.net.httpserver.HttpServer;
+import io.airlift.compress.zstd.ZstdOutputStream;
 import org.junit.jupiter.api.Test;
 import org.reactome.server.analysis.service.AppTests;
 import org.springframework.http.MediaType;
@@ -7,12 +10,23 @@ import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.request.MockMultipartHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.io.ByteArrayOutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 
@@ -80,6 +94,102 @@ public class IdentifiersControllerTest extends AppTests {
                 .andReturn();
     }
 
+    @Test
+    public void getPostTextFields() throws Exception {
+        String content = "P02452 P08123 P02461 P12110 P49674 P35222 P09668 Q9NQC7";
+
+        this.getMockMvc().perform(post("/identifiers/").param("fields", "summary.token,pathways.stId,pathways.entities")
+                .contentType(MediaType.TEXT_PLAIN)
+                .content(content))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.summary.token").exists())
+                .andExpect(jsonPath("$.summary.type").doesNotExist())
+                .andExpect(jsonPath("$.pathwaysFound").doesNotExist())
+                .andExpect(jsonPath("$.pathways[0].stId").exists())
+                .andExpect(jsonPath("$.pathways[0].entities.pValue").exists())
+                .andExpect(jsonPath("$.pathways[0].name").doesNotExist())
+                .andExpect(jsonPath("$.pathways[0].species").doesNotExist());
+    }
+
+    @Test
+    public void getPostTextInvalidFields() throws Exception {
+        this.getMockMvc().perform(post("/identifiers/").param("fields", "summary.token,")
+                .contentType(MediaType.TEXT_PLAIN)
+                .content("P02452 P08123"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void getPostTextAsync() throws Exception {
+        String content = "P02452 P08123 P02461 P12110 P49674 P35222 P09668 Q9NQC7";
+
+        this.getMockMvc().perform(post("/identifiers/async").param("interactors", "false")
+                .contentType(MediaType.TEXT_PLAIN)
+                .content(content))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.token").exists())
+                .andExpect(jsonPath("$.status").exists())
+                .andReturn();
+    }
+
+    @Test
+    public void getPostFileAsync() throws Exception {
+        this.getMockMvc().perform(MockMvcRequestBuilders.multipart("/identifiers/form/async/projection")
+                .file(overrepresentationFile)
+                .param("interactors", "false"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.token").exists())
+                .andReturn();
+    }
+
+    @Test
+    public void getPostBatch() throws Exception {
+        String content = "[" +
+                "{\"name\": \"collagen\", \"data\": \"P02452 P08123 P02461 P12110\"}," +
+                "{\"name\": \"gbm\", \"data\": \"P01023\\nQ99758\\nO15439\\nO43184\"}," +
+                "{\"name\": \"empty\", \"data\": \"\"}" +
+                "]";
+
+        this.getMockMvc().perform(post("/identifiers/batch/projection").param("interactors", "false")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(content))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].name").value("collagen"))
+                .andExpect(jsonPath("$[0].summary.token").exists())
+                .andExpect(jsonPath("$[2].error").exists())
+                .andReturn();
+    }
+
+    @Test
+    public void getPostBatchSameData() throws Exception {
+        String content = "[" +
+                "{\"name\": \"first\", \"data\": \"P02452 P08123 P02461 P12110\"}," +
+                "{\"name\": \"second\", \"data\": \"P02452 P08123 P02461 P12110\"}" +
+                "]";
+
+        String json = this.getMockMvc().perform(post("/identifiers/batch/projection").param("interactors", "false")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(content))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].summary.fileName").value("first"))
+                .andExpect(jsonPath("$[1].summary.fileName").value("second"))
+                .andReturn().getResponse().getContentAsString();
+        assertEquals(JsonPath.<String>read(json, "$[0].summary.token"), JsonPath.<String>read(json, "$[1].summary.token"));
+    }
+
+    @Test
+    public void getPostFileBatch() throws Exception {
+        this.getMockMvc().perform(MockMvcRequestBuilders.multipart("/identifiers/form/batch")
+                .file(overrepresentationFile)
+                .file(expressionFile)
+                .param("interactors", "false"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].summary.token").exists())
+                .andReturn();
+    }
+
     @Test
     public void getPostFileToHuman() throws Exception {
 
@@ -132,15 +242,144 @@ public class IdentifiersControllerTest extends AppTests {
                 .andReturn();
     }
 
+    @Test
+    public void getPostGzipFile() throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (GZIPOutputStream gos = new GZIPOutputStream(bos)) {
+            gos.write(expressionFileContent.getBytes());
+        }
+        MockMultipartFile file = new MockMultipartFile("file", "expression.txt.gz", "multipart/form-data", bos.toByteArray());
+        this.getMockMvc().perform(MockMvcRequestBuilders.multipart("/identifiers/form/").file(file)
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .param("interactors", "false")
+                .param("pageSize", "20")
+                .param("page", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.expression.columnNames.length()").value(3))
+                .andReturn();
+    }
+
+    @Test
+    public void getPostZstdFile() throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ZstdOutputStream zos = new ZstdOutputStream(bos)) {
+            zos.write(overrepresentationFileContent.getBytes());
+        }
+        MockMultipartFile file = new MockMultipartFile("file", "identifiers.txt.zst", "multipart/form-data", bos.toByteArray());
+        this.getMockMvc().perform(MockMvcRequestBuilders.multipart("/identifiers/form/projection").file(file)
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .param("pageSize", "20")
+                .param("page", "1"))
+                .andExpect(status().isOk())
+                .andReturn();
+    }
+
+    @Test
+    public void getPostExpressionMatrixFile() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "expression.rxm", "multipart/form-data", getExpressionMatrix());
+        this.getMockMvc().perform(MockMvcRequestBuilders.multipart("/identifiers/form/projection").file(file)
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .param("pageSize", "20")
+                .param("page", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.expression.columnNames.length()").value(3))
+                .andReturn();
+    }
+
+    @Test
+    public void getPostTruncatedExpressionMatrixFile() throws Exception {
+        byte[] matrix = getExpressionMatrix();
+        MockMultipartFile file = new MockMultipartFile("file", "expression.rxm", "multipart/form-data", Arrays.copyOf(matrix, matrix.length - 2));
+        this.getMockMvc().perform(MockMvcRequestBuilders.multipart("/identifiers/form/").file(file)
+                .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isBadRequest())
+                .andReturn();
+    }
+
+    /**
+     * @return the expressionFileContent in the binary expression matrix layout (see ExpressionMatrixReader)
+     */
+    private byte[] getExpressionMatrix() {
+        String[] lines = expressionFileContent.split("\n");
+        String[] header = lines[0].substring(1).split("\t");
+        int rows = lines.length - 1, columns = header.length - 1;
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(new byte[]{(byte) 0x89, 'R', 'X', 'M'}).putInt(1).putInt(rows).putInt(columns);
+        for (String name : header) putString(buffer, name);
+        for (int r = 1; r <= rows; r++) putString(buffer, lines[r].split("\t")[0].trim());
+        for (int c = 1; c <= columns; c++) {
+            for (int r = 1; r <= rows; r++) buffer.putFloat(Float.parseFloat(lines[r].split("\t")[c].trim()));
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length).put(bytes);
+    }
+
+    @Test
+    public void getPostCompressionBomb() throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (GZIPOutputStream gos = new GZIPOutputStream(bos)) {
+            byte[] line = "P01023\n".getBytes();
+            for (int i = 0; i < 3_000_000; i++) gos.write(line);
+        }
+        MockMultipartFile file = new MockMultipartFile("file", "bomb.txt.gz", "multipart/form-data", bos.toByteArray());
+        this.getMockMvc().perform(MockMvcRequestBuilders.multipart("/identifiers/form/").file(file)
+                .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isPayloadTooLarge())
+                .andReturn();
+    }
+
     @Test
     public void getPostURLToHuman() throws Exception {
         String uniProtACFileUrl = "https://raw.githubusercontent.com/Chuqiaoo/reactome-analysis-service-testing-files/master/uniprotACs.txt";
         mockMvcPostResult("/identifiers/url", uniProtACFileUrl, params);
     }
 
+    @Test
+    public void getPostURLNotProcessable() throws Exception {
+        this.getMockMvc().perform(post("/identifiers/url")
+                .contentType(MediaType.TEXT_PLAIN)
+                .content("ftp://example.org/identifiers.txt"))
+                .andExpect(status().isUnprocessableEntity())
+                .andReturn();
+    }
+
     @Test
     public void getPostURL() throws Exception {
         String cosmicFileUrl = "https://raw.githubusercontent.com/Chuqiaoo/reactome-analysis-service-testing-files/master/COSMIC.txt";
         mockMvcPostResult("/identifiers/url/projection", cosmicFileUrl, params);
     }
+
+    @Test
+    public void getPostURLWithValidators() throws Exception {
+        // The content is kept in the url cache while it is analysed and revalidated (304) when submitted again
+        byte[] body = overrepresentationFileContent.getBytes(StandardCharsets.UTF_8);
+        AtomicInteger notModified = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/identifiers.txt", exchange -> {
+            exchange.getResponseHeaders().add("ETag", "\"gbm-1\"");
+            exchange.getResponseHeaders().add("Last-Modified", "Mon, 05 Oct 2026 10:00:00 GMT");
+            if ("\"gbm-1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            }
+            exchange.close();
+        });
+        server.start();
+        try {
+            String url = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/identifiers.txt";
+            String first = mockMvcPostResult("/identifiers/url", url, params).getResponse().getContentAsString();
+            String second = mockMvcPostResult("/identifiers/url", url, params).getResponse().getContentAsString();
+            assertEquals(1, notModified.get());
+            assertEquals(JsonPath.<String>read(first, "$.summary.token"), JsonPath.<String>read(second, "$.summary.token"));
+        } finally {
+            server.stop(0);
+        }
+    }
 }
\ No newline at end of file
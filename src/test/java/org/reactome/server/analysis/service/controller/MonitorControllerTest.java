@@ -0,0 +1,51 @@
+package org.reactome.server.analysis.service.controller;
+
+import org.junit.jupiter.api.Test;
+import org.reactome.server.analysis.service.AppTests;
+import org.springframework.http.MediaType;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+
+public class MonitorControllerTest extends AppTests {
+
+    @Test
+    public void getJobStatistics() throws Exception {
+        mockMvcGetResult("/monitor/jobs", MediaType.APPLICATION_JSON_VALUE + ";charset=UTF-8", null);
+    }
+
+    @Test
+    public void getCoalescedCounter() throws Exception {
+        this.getMockMvc().perform(get("/monitor/jobs"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.coalesced").isNumber())
+                .andExpect(jsonPath("$.submitted").isNumber())
+                .andReturn();
+    }
+
+    @Test
+    public void getCacheStatistics() throws Exception {
+        this.getMockMvc().perform(get("/monitor/cache"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hits").isNumber())
+                .andExpect(jsonPath("$.evictions").isNumber())
+                .andReturn();
+    }
+
+    @Test
+    public void getMappingCacheStatistics() throws Exception {
+        this.getMockMvc().perform(post("/mapping/").contentType(MediaType.TEXT_PLAIN).content("PTEN\nBRCA2"))
+                .andExpect(status().isOk());
+        this.getMockMvc().perform(post("/mapping/").contentType(MediaType.TEXT_PLAIN).content("PTEN\nBRCA2\nTP53"))
+                .andExpect(status().isOk());
+        this.getMockMvc().perform(get("/monitor/mappings"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.entries").isNumber())
+                .andExpect(jsonPath("$.hits").value(greaterThanOrEqualTo(2)))
+                .andReturn();
+    }
+}
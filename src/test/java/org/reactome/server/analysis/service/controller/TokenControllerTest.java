@@ -1,17 +1,55 @@
 package org.reactome.server.analysis.service.controller;
 
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.reactome.server.analysis.core.result.AnalysisStoredResult;
 import org.reactome.server.analysis.service.AppTests;
+import org.reactome.server.analysis.service.helper.AnalysisHelper;
+import org.reactome.server.analysis.service.helper.AnalysisResultCache;
+import org.reactome.server.analysis.service.helper.SizeHistogramStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 
 public class TokenControllerTest extends AppTests {
 
+    @Autowired
+    private SizeHistogramStore sizeHistogramStore;
+
+    @Autowired
+    private AnalysisResultCache analysisResultCache;
+
+    @Autowired
+    private AnalysisHelper analysisHelper;
+
     @BeforeEach
     public void prepare() {
         generateToken("P02452 P08123 P02461 P12110 P49674 P35222 P09668 Q9NQC7");
@@ -32,6 +70,31 @@ public class TokenControllerTest extends AppTests {
         mockMvcGetResult(url, MediaType.APPLICATION_JSON_VALUE + ";charset=UTF-8", params);
     }
 
+    @Test
+    public void getTokenIncludeDiseaseOfTheRequest() throws Exception {
+        //The request reports its own includeDisease without changing the one of the (shared) stored result
+        String url = String.format("/token/%s/", AppTests.token);
+        getMockMvc().perform(get(url).param("pageSize", "1").param("includeDisease", "false"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.summary.includeDisease").value(false));
+        getMockMvc().perform(get(url).param("pageSize", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.summary.includeDisease").value(true));
+    }
+
+    @Test
+    public void getTokenWithoutPaging() throws Exception {
+        String url = String.format("/token/%s/", AppTests.token);
+        Map<String, Object> params = new HashMap<>();
+        params.put("sortBy", "ENTITIES_PVALUE");
+        params.put("order", "ASC");
+        params.put("pValue", 1);
+        String content = mockMvcGetResult(url, MediaType.APPLICATION_JSON_VALUE + ";charset=UTF-8", params).getResponse().getContentAsString();
+        JsonNode result = new ObjectMapper().readTree(content);
+        assertEquals(AppTests.token, result.get("summary").get("token").asText());
+        assertEquals(result.get("pathwaysFound").asInt(), result.get("pathways").size());
+    }
+
     @Test
     public void getTokenFilterPathways() throws Exception {
 
@@ -67,6 +130,21 @@ public class TokenControllerTest extends AppTests {
         mockMvcGetResult(url, MediaType.APPLICATION_JSON_VALUE + ";charset=UTF-8", params);
     }
 
+    @Test
+    public void getPageOfPathwayFromCachedView() throws Exception {
+        String url = String.format("/token/%s/page/%s", AppTests.token, AppTests.stId);
+        Map<String, Object> params = new HashMap<>();
+        params.put("pageSize", 1);
+        params.put("sortBy", "ENTITIES_PVALUE");
+        params.put("order", "ASC");
+        params.put("resource", "TOTAL");
+        // The second request is served from the view created by the first one
+        String first = mockMvcGetResult(url, MediaType.APPLICATION_JSON_VALUE + ";charset=UTF-8", params).getResponse().getContentAsString();
+        String second = mockMvcGetResult(url, MediaType.APPLICATION_JSON_VALUE + ";charset=UTF-8", params).getResponse().getContentAsString();
+        assertEquals(first, second);
+        assertTrue(Integer.parseInt(first) > 0);
+    }
+
     @Test
     public void getTokenHitEntitiesPathway() throws Exception {
         String url = String.format("/token/%s/found/all/%s", AppTests.token, AppTests.stId);
@@ -80,12 +158,64 @@ public class TokenControllerTest extends AppTests {
         mockMvcPostResult(url, input);
     }
 
+    @Test
+    public void getTokenHitEntitiesPathwaysJson() throws Exception {
+        String url = String.format("/token/%s/found/all", AppTests.token);
+        String input = String.format("[\"%s\", \"%s\"]", AppTests.stId, AppTests.stId);
+        getMockMvc().perform(post(url).contentType(MediaType.APPLICATION_JSON).content(input))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].pathway").value(AppTests.stId));
+    }
+
     @Test
     public void getTokenIdentifiersPathway() throws Exception {
         String url = String.format("/token/%s/found/entities/%s", AppTests.token, AppTests.stId);
         mockMvcGetResult(url, MediaType.APPLICATION_JSON_VALUE + ";charset=UTF-8", "page", "1");
     }
 
+    @Test
+    public void getTokenIdentifiersPathways() throws Exception {
+        String url = String.format("/token/%s/found/entities", AppTests.token);
+        String input = String.format("[\"%s\", \"%s\", \"R-HSA-0000000\"]", AppTests.stId, AppTests.stId);
+        getMockMvc().perform(post(url).contentType(MediaType.APPLICATION_JSON).content(input))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$['" + AppTests.stId + "']").exists());
+    }
+
+    @Test
+    public void getTokenInteractorsPathways() throws Exception {
+        String url = String.format("/token/%s/found/interactors", AppTests.token);
+        String[] pathways = {AppTests.stId, "3000178", "R-HSA-0000000"};
+        String json = getMockMvc().perform(post(url).contentType(MediaType.TEXT_PLAIN).content(String.join(",", pathways)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        // Every pathway has the same details as when it is requested on its own (and is left out when there are none)
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode batch = mapper.readTree(json);
+        int found = 0;
+        for (String pathway : pathways) {
+            MockHttpServletResponse single = getMockMvc().perform(get(String.format("/token/%s/found/interactors/%s", AppTests.token, pathway)))
+                    .andReturn().getResponse();
+            if (single.getStatus() == 404) {
+                assertFalse(batch.has(pathway), pathway);
+            } else {
+                assertEquals(mapper.readTree(single.getContentAsString()), batch.get(pathway), pathway);
+                found++;
+            }
+        }
+        assertEquals(found, batch.size());
+    }
+
+    @Test
+    public void getTokenIdentifiersPathwaysEmpty() throws Exception {
+        String url = String.format("/token/%s/found/entities", AppTests.token);
+        getMockMvc().perform(post(url).contentType(MediaType.APPLICATION_JSON).content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
     /* API ignored*/
     @Test
     public void getTokenSummaryPathway() throws Exception {
@@ -145,4 +275,242 @@ public class TokenControllerTest extends AppTests {
         params.put("includeDisease", true);
         mockMvcGetResult(url, MediaType.APPLICATION_JSON_VALUE + ";charset=UTF-8", params);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getStatus() throws Exception {
+        String url = String.format("/token/%s/status", AppTests.token);
+        mockMvcGetResult(url, MediaType.APPLICATION_JSON_VALUE + ";charset=UTF-8", null);
+    }
+
+    @Test
+    public void getStatusNotFound() throws Exception {
+        mockMvcGetResultNotFound("/token/MjAyMDAxMDEwMDAwMDBfMA==/status");
+    }
+
+    @Test
+    public void getTokenNotModified() throws Exception {
+        String url = String.format("/token/%s/", AppTests.token);
+        String etag = getMockMvc().perform(get(url).param("pageSize", "20").param("page", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("immutable")))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+
+        getMockMvc().perform(get(url).param("pageSize", "20").param("page", "1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        //A different query of the same result is a different representation
+        getMockMvc().perform(get(url).param("pageSize", "20").param("page", "2").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void getTokenCursor() throws Exception {
+        String url = String.format("/token/%s/", AppTests.token);
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode all = mapper.readTree(getMockMvc().perform(get(url).param("sortBy", "ENTITIES_PVALUE"))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+
+        List<String> pathways = new ArrayList<>();
+        String cursor = "";
+        do {
+            JsonNode chunk = mapper.readTree(getMockMvc().perform(get(url).param("cursor", cursor).param("pageSize", "2").param("sortBy", "ENTITIES_PVALUE"))
+                    .andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+            assertEquals(all.get("pathwaysFound").asInt(), chunk.get("pathwaysFound").asInt());
+            assertTrue(chunk.get("pathways").size() <= 2);
+            chunk.get("pathways").forEach(p -> pathways.add(p.get("stId").asText()));
+            cursor = chunk.has("cursor") ? chunk.get("cursor").asText() : null;
+        } while (cursor != null);
+
+        List<String> expected = new ArrayList<>();
+        all.get("pathways").forEach(p -> expected.add(p.get("stId").asText()));
+        assertEquals(expected, pathways);
+    }
+
+    @Test
+    public void getTokenCursorInvalid() throws Exception {
+        String url = String.format("/token/%s/", AppTests.token);
+        getMockMvc().perform(get(url).param("cursor", "not a cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void getTokenNdjson() throws Exception {
+        String url = String.format("/token/%s/", AppTests.token);
+        JsonNode all = new ObjectMapper().readTree(getMockMvc().perform(get(url))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+
+        String content = getMockMvc().perform(get(url).accept("application/x-ndjson"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, containsString("application/x-ndjson")))
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = content.split("\n");
+        assertEquals(all.get("pathwaysFound").asInt(), lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals(all.get("pathways").get(i).get("stId").asText(), new ObjectMapper().readTree(lines[i]).get("stId").asText());
+        }
+    }
+
+    @Test
+    public void getTokenFields() throws Exception {
+        String url = String.format("/token/%s/", AppTests.token);
+        getMockMvc().perform(get(url).param("pageSize", "5").param("page", "1").param("fields", "pathways.stId,pathways.entities.pValue"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.summary").doesNotExist())
+                .andExpect(jsonPath("$.pathways[0].stId").exists())
+                .andExpect(jsonPath("$.pathways[0].entities.pValue").exists())
+                .andExpect(jsonPath("$.pathways[0].entities.fdr").doesNotExist())
+                .andExpect(jsonPath("$.pathways[0].name").doesNotExist());
+
+        //The whole result is streamed, but the same selection is applied
+        getMockMvc().perform(get(url).param("fields", "summary.token,pathways.stId"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.summary.token").value(AppTests.token))
+                .andExpect(jsonPath("$.summary.type").doesNotExist())
+                .andExpect(jsonPath("$.pathways[0].stId").exists())
+                .andExpect(jsonPath("$.pathways[0].name").doesNotExist());
+    }
+
+    @Test
+    public void getTokenBinaryEncodings() throws Exception {
+        String url = String.format("/token/%s/", AppTests.token);
+        Map<String, ObjectMapper> mappers = new HashMap<>();
+        mappers.put("application/cbor", new ObjectMapper(new CBORFactory()));
+        mappers.put("application/x-jackson-smile", new ObjectMapper(new SmileFactory()));
+        for (Map.Entry<String, ObjectMapper> entry : mappers.entrySet()) {
+            //Both the paged (message converter) and the whole (streamed) results
+            for (String pageSize : new String[]{"20", null}) {
+                MockHttpServletRequestBuilder request = get(url).accept(entry.getKey());
+                if (pageSize != null) request.param("pageSize", pageSize);
+                MockHttpServletResponse response = getMockMvc().perform(request)
+                        .andExpect(status().isOk())
+                        .andExpect(header().string(HttpHeaders.CONTENT_TYPE, containsString(entry.getKey())))
+                        .andReturn().getResponse();
+                JsonNode result = entry.getValue().readTree(response.getContentAsByteArray());
+                assertEquals(AppTests.token, result.get("summary").get("token").asText());
+                assertTrue(result.get("pathways").size() > 0);
+            }
+        }
+    }
+
+    @Test
+    public void getPathwaysBinnedBySizeFromHistogram() throws Exception {
+        //The histogram is stored off the analysis thread
+        for (int i = 0; i < 100 && sizeHistogramStore.getBinnedPathwaySize(AppTests.token, 100, "TOTAL", null, null) == null; i++) {
+            Thread.sleep(100);
+        }
+        assertNotNull(sizeHistogramStore.getBinnedPathwaySize(AppTests.token, 100, "TOTAL", null, null), "The histogram was not stored");
+
+        //pValue 1 is served from the stored histogram, which has to give the same bins as binning the result
+        AnalysisStoredResult asr = analysisResultCache.getFromToken(AppTests.token);
+        String url = String.format("/token/%s/pathways/binned", AppTests.token);
+        ObjectMapper mapper = new ObjectMapper();
+        for (String resource : new String[]{"TOTAL", "UNIPROT"}) {
+            for (String species : new String[]{null, "48887"}) {
+                for (Boolean includeDisease : new Boolean[]{null, true, false}) {
+                    for (int binSize : new int[]{100, 200, 500}) {
+                        MockHttpServletRequestBuilder request = get(url).param("resource", resource)
+                                .param("binSize", Integer.toString(binSize)).param("pValue", "1");
+                        if (species != null) request.param("species", species);
+                        if (includeDisease != null) request.param("includeDisease", includeDisease.toString());
+                        JsonNode histogram = mapper.readTree(getMockMvc().perform(request)
+                                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+
+                        boolean disease = includeDisease != null ? includeDisease : asr.getSummary().isIncludeDisease();
+                        JsonNode binned = mapper.valueToTree(asr.getBinnedPathwaySize(binSize, resource,
+                                analysisHelper.getSpeciesList(species), 1d, disease));
+                        if (species == null) assertFalse(histogram.isEmpty(), "No bins for " + resource);
+                        assertEquals(binned, histogram, String.join(" ", resource, species, String.valueOf(includeDisease), Integer.toString(binSize)));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void getTokenConcurrentReaders() throws Exception {
+        String url = String.format("/token/%s/", AppTests.token);
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode before = mapper.readTree(getMockMvc().perform(get(url).param("pageSize", "1"))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+
+        //The pathways found for every filter when the result is read by one request at a time
+        String[] filters = {"true", "false"};
+        Map<String, Integer> expected = new HashMap<>();
+        for (String includeDisease : filters) {
+            JsonNode result = mapper.readTree(getMockMvc().perform(get(url).param("pageSize", "1").param("includeDisease", includeDisease))
+                    .andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+            expected.put(includeDisease, result.get("pathwaysFound").asInt());
+        }
+        //The CSV download sorts the pathways and the species filter works on all of them
+        String csvUrl = String.format("/download/%s/pathways/TOTAL/result.csv", AppTests.token);
+        String csv = getMockMvc().perform(get(csvUrl)).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        String speciesUrl = String.format("/token/%s/filter/species/48887", AppTests.token);
+        JsonNode species = mapper.readTree(getMockMvc().perform(get(speciesUrl))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+
+        //Many requests with different filters reading the same result at once (paged and whole results, CSV
+        //downloads and species filters)
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> requests = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String includeDisease = filters[(i / 4) % filters.length];
+                String pageSize = i % 3 == 0 ? null : "5";
+                if (i % 4 == 1) {
+                    requests.add(executor.submit(() -> {
+                        assertEquals(csv, getMockMvc().perform(get(csvUrl))
+                                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+                        return null;
+                    }));
+                    continue;
+                }
+                if (i % 4 == 3) {
+                    requests.add(executor.submit(() -> {
+                        assertEquals(species, mapper.readTree(getMockMvc().perform(get(speciesUrl))
+                                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString()));
+                        return null;
+                    }));
+                    continue;
+                }
+                requests.add(executor.submit(() -> {
+                    MockHttpServletRequestBuilder request = get(url).param("includeDisease", includeDisease);
+                    if (pageSize != null) request.param("pageSize", pageSize);
+                    JsonNode result = mapper.readTree(getMockMvc().perform(request)
+                            .andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+                    assertEquals(Boolean.parseBoolean(includeDisease), result.get("summary").get("includeDisease").asBoolean());
+                    assertEquals(expected.get(includeDisease).intValue(), result.get("pathwaysFound").asInt());
+                    return null;
+                }));
+            }
+            for (Future<?> request : requests) request.get(1, TimeUnit.MINUTES);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        //The stored result is not modified by the requests
+        JsonNode after = mapper.readTree(getMockMvc().perform(get(url).param("pageSize", "1"))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+        assertEquals(before.get("summary"), after.get("summary"));
+        assertEquals(before.get("pathwaysFound"), after.get("pathwaysFound"));
+        assertEquals(before.get("pathways"), after.get("pathways"));
+    }
+
+    @Test
+    public void compareTokens() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode result = mapper.readTree(getMockMvc().perform(get(String.format("/token/%s/", AppTests.token)).param("pageSize", "1"))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+        //A result compared with itself has every pathway in both sides with no differences
+        String url = String.format("/token/%s/compare/%s", AppTests.token, AppTests.token);
+        JsonNode comparison = mapper.readTree(getMockMvc().perform(get(url).param("pageSize", "5").param("sortBy", "ENTITIES_PVALUE"))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+        assertEquals(result.get("pathwaysFound").asInt(), comparison.get("pathwaysFound").asInt());
+        assertTrue(comparison.get("pathways").size() > 0 && comparison.get("pathways").size() <= 5);
+        for (JsonNode pathway : comparison.get("pathways")) {
+            assertEquals(pathway.get("first"), pathway.get("second"));
+            assertEquals(0, pathway.get("entitiesFoundDelta").asInt());
+            assertEquals(0d, pathway.get("pValueDelta").asDouble());
+        }
+    }
+}
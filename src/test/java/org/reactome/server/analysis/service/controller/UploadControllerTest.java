@@ -0,0 +1,75 @@
+package org.reactome.server.analysis.service.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.reactome.server.analysis.service.AppTests;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class UploadControllerTest extends AppTests {
+
+    private final byte[] content = ("#GBM Uniprot\n" +
+            "P01023\n" +
+            "Q99758\n" +
+            "O15439\n" +
+            "O43184\n" +
+            "Q13444\n" +
+            "P82987").getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void chunkedUpload() throws Exception {
+        String id = create();
+        int half = content.length / 2;
+        putChunk(id, 0, Arrays.copyOfRange(content, 0, half))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size").value(half));
+        // A gap after the received data is rejected and the current size returned
+        putChunk(id, half + 10, Arrays.copyOfRange(content, half + 10, content.length))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.size").value(half));
+        // Sending data again (as when retrying a chunk) is harmless
+        putChunk(id, half - 2, Arrays.copyOfRange(content, half - 2, content.length))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size").value(content.length));
+
+        this.getMockMvc().perform(post("/upload/" + id + "/commit/projection")
+                .param("pageSize", "20")
+                .param("page", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.summary.fileName").value("gbm.txt"))
+                .andExpect(jsonPath("$.summary.token").exists());
+
+        // Once committed the upload is discarded
+        this.getMockMvc().perform(get("/upload/" + id)).andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void cancelUpload() throws Exception {
+        String id = create();
+        this.getMockMvc().perform(delete("/upload/" + id)).andExpect(status().isNoContent());
+        putChunk(id, 0, content).andExpect(status().isNotFound());
+    }
+
+    private String create() throws Exception {
+        MvcResult result = this.getMockMvc().perform(post("/upload").param("fileName", "gbm.txt"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.size").value(0))
+                .andReturn();
+        return new ObjectMapper().readTree(result.getResponse().getContentAsString()).get("id").asText();
+    }
+
+    private ResultActions putChunk(String id, long offset, byte[] chunk) throws Exception {
+        return this.getMockMvc().perform(put("/upload/" + id)
+                .param("offset", String.valueOf(offset))
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .content(chunk));
+    }
+}
@@ -0,0 +1,77 @@
+package org.reactome.server.analysis.service.helper;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.reactome.server.analysis.service.model.AnalysisJob;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class AnalysisJobManagerTest {
+
+    private static final int CALLERS = 8;
+
+    private final AnalysisJobManager manager = new AnalysisJobManager(2, 10, 60L);
+
+    @AfterEach
+    public void shutdown() {
+        manager.shutdown();
+    }
+
+    @Test
+    public void identicalSubmissionsAreCoalesced() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Callable<AnalysisJob> submission = () -> manager.submit("md5#true#false#OVERREPRESENTATION#true#", "token", () -> {
+            runs.incrementAndGet();
+            release.await();
+            return null;
+        });
+
+        ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<AnalysisJob>> submitted = new ArrayList<>();
+            CyclicBarrier start = new CyclicBarrier(CALLERS);
+            for (int i = 0; i < CALLERS; i++) {
+                submitted.add(callers.submit(() -> {
+                    start.await();
+                    return submission.call();
+                }));
+            }
+            List<AnalysisJob> jobs = new ArrayList<>();
+            for (Future<AnalysisJob> future : submitted) jobs.add(future.get(10, TimeUnit.SECONDS));
+            release.countDown();
+            for (AnalysisJob job : jobs) {
+                assertSame(jobs.get(0), job);
+                manager.await(job);
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+
+        assertEquals(1, runs.get());
+        assertEquals(1, manager.getStatistics().getSubmitted());
+        assertEquals(CALLERS - 1, manager.getStatistics().getCoalesced());
+    }
+
+    @Test
+    public void differentSubmissionsAreNotCoalesced() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AnalysisJob first = manager.submit("md5#true#false#OVERREPRESENTATION#true#", "token", () -> {
+            release.await();
+            return null;
+        });
+        AnalysisJob second = manager.submit("md5#true#false#OVERREPRESENTATION#false#", "token", () -> null);
+        release.countDown();
+        manager.await(first);
+        manager.await(second);
+        assertNotSame(first, second);
+        assertEquals(0, manager.getStatistics().getCoalesced());
+    }
+}
@@ -0,0 +1,49 @@
+package org.reactome.server.analysis.service.helper;
+
+import org.junit.jupiter.api.Test;
+import org.reactome.server.analysis.core.result.exception.DataFormatException;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InputIdentifiersParserTest {
+
+    @Test
+    public void parseText() {
+        List<String> ids = InputIdentifiersParser.parse(new StringReader("R-HSA-1640170, 109581\nR-HSA-8948216,\r\n  0069278 ,foo,,"));
+        assertEquals(Arrays.asList("R-HSA-1640170", "109581", "R-HSA-8948216", "69278"), ids);
+    }
+
+    @Test
+    public void parseFormLikeInput() {
+        List<String> ids = InputIdentifiersParser.parse(new StringReader("input=R-HSA-1640170,R-HSA-109581"));
+        assertEquals(Arrays.asList("R-HSA-1640170", "R-HSA-109581"), ids);
+    }
+
+    @Test
+    public void parseJson() {
+        List<String> ids = InputIdentifiersParser.parse(new StringReader(" [\"R-HSA-1640170\", 109581, \"007\", 1.5, {\"a\": 1}, \"R-HSA-1640170\"]"));
+        assertEquals(Arrays.asList("R-HSA-1640170", "109581", "7"), ids);
+    }
+
+    @Test
+    public void parseInvalidJson() {
+        assertThrows(DataFormatException.class, () -> InputIdentifiersParser.parse(new StringReader("[\"R-HSA-1640170\", ")));
+    }
+
+    @Test
+    public void parseEmpty() {
+        assertTrue(InputIdentifiersParser.parse(new StringReader(" \n")).isEmpty());
+    }
+
+    @Test
+    public void discardsDuplicatesAndOverflows() {
+        List<String> ids = InputIdentifiersParser.parse(new StringReader("1,1,+1,99999999999999999999"));
+        assertEquals(List.of("1"), ids);
+        assertTrue(ids.contains("1"));
+        assertFalse(ids.contains("+1"));
+    }
+}
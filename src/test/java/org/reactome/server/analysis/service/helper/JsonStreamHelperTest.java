@@ -0,0 +1,70 @@
+package org.reactome.server.analysis.service.helper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JsonStreamHelperTest {
+
+    private final JsonStreamHelper helper = new JsonStreamHelper();
+
+    @Test
+    public void binaryEncodingsAreSmaller() throws Exception {
+        Map<String, Object> result = getResult(2000);
+        ObjectMapper json = helper.getObjectMapper(MediaType.APPLICATION_JSON);
+        byte[] plain = json.writeValueAsBytes(result);
+        for (String format : new String[]{JsonStreamHelper.CBOR, JsonStreamHelper.SMILE}) {
+            ObjectMapper mapper = helper.getObjectMapper(MediaType.valueOf(format));
+            byte[] binary = mapper.writeValueAsBytes(result);
+            // The numbers (most of a result) take a fixed number of bytes instead of their decimal representation
+            assertTrue(binary.length < plain.length * 0.7, format + " takes " + binary.length + " bytes vs " + plain.length);
+            assertEquals(json.readTree(plain), mapper.readTree(binary), format);
+        }
+    }
+
+    /**
+     * @return an object shaped as an analysis result (summary and hit pathways with their statistics)
+     */
+    private static Map<String, Object> getResult(int pathways) {
+        Random random = new Random(42);
+        List<Object> rows = new ArrayList<>();
+        for (int i = 0; i < pathways; i++) {
+            Map<String, Object> pathway = new LinkedHashMap<>();
+            pathway.put("stId", "R-HSA-" + (100000 + random.nextInt(9000000)));
+            pathway.put("dbId", 100000L + random.nextInt(9000000));
+            pathway.put("name", "Pathway " + i);
+            pathway.put("species", Map.of("dbId", 48887L, "taxId", "9606", "name", "Homo sapiens"));
+            pathway.put("llp", random.nextBoolean());
+            pathway.put("inDisease", random.nextBoolean());
+            pathway.put("entities", getStatistics(random));
+            pathway.put("reactions", getStatistics(random));
+            rows.add(pathway);
+        }
+        Map<String, Object> rtn = new LinkedHashMap<>();
+        rtn.put("summary", Map.of("token", "MjAyNjEwMTgxNjQ", "type", "EXPRESSION", "projection", true));
+        rtn.put("pathwaysFound", pathways);
+        rtn.put("pathways", rows);
+        return rtn;
+    }
+
+    private static Map<String, Object> getStatistics(Random random) {
+        Map<String, Object> rtn = new LinkedHashMap<>();
+        rtn.put("resource", "TOTAL");
+        rtn.put("total", random.nextInt(500));
+        rtn.put("found", random.nextInt(50));
+        rtn.put("ratio", random.nextDouble());
+        rtn.put("pValue", random.nextDouble() * 1e-3);
+        rtn.put("fdr", random.nextDouble());
+        rtn.put("exp", List.of(random.nextDouble(), random.nextDouble(), random.nextDouble()));
+        return rtn;
+    }
+}
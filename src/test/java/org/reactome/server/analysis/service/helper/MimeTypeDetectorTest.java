@@ -0,0 +1,84 @@
+package org.reactome.server.analysis.service.helper;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class MimeTypeDetectorTest {
+
+    private final MimeTypeDetector detector = new MimeTypeDetector();
+
+    @Test
+    public void detectText() throws Exception {
+        byte[] content = "#id\tsample1\nPTEN\t1.3\nBRCA2\t0.2\n".getBytes(StandardCharsets.UTF_8);
+        assertEquals(MimeTypeDetector.TEXT, MimeTypeDetector.detectFast(content));
+        assertEquals(MimeTypeDetector.TEXT, detector.detect(content));
+    }
+
+    @Test
+    public void detectJson() throws Exception {
+        byte[] content = "{\"summary\":{\"token\":\"MjAx\",\"type\":\"OVERREPRESENTATION\"}}".getBytes(StandardCharsets.UTF_8);
+        assertEquals(MimeTypeDetector.TEXT, MimeTypeDetector.detectFast(content));
+    }
+
+    @Test
+    public void detectTextWithCharacterCutAtBlockEnd() {
+        // 'é' takes two bytes in UTF-8, so the 8KB text block ends in the middle of one of them
+        StringBuilder sb = new StringBuilder("x");
+        while (sb.length() < 10_000) sb.append("é");
+        assertEquals(MimeTypeDetector.TEXT, MimeTypeDetector.detectFast(sb.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void detectGzip() throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (GZIPOutputStream gos = new GZIPOutputStream(bos)) {
+            gos.write("PTEN".getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals(MimeTypeDetector.GZIP, MimeTypeDetector.detectFast(bos.toByteArray()));
+    }
+
+    @Test
+    public void detectZip() throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(bos)) {
+            zos.putNextEntry(new ZipEntry("result.json"));
+            zos.write("{}".getBytes(StandardCharsets.UTF_8));
+            zos.closeEntry();
+        }
+        assertEquals(MimeTypeDetector.ZIP, MimeTypeDetector.detectFast(bos.toByteArray()));
+    }
+
+    @Test
+    public void detectExpressionMatrix() throws Exception {
+        byte[] matrix = {(byte) 0x89, 'R', 'X', 'M', 1, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0};
+        assertEquals(MimeTypeDetector.EXPRESSION_MATRIX, MimeTypeDetector.detectFast(matrix));
+        assertEquals(MimeTypeDetector.EXPRESSION_MATRIX, detector.detect(matrix));
+    }
+
+    @Test
+    public void binaryFallsBackToTika() throws Exception {
+        byte[] png = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0, 0, 0x0D, 'I', 'H', 'D', 'R'};
+        assertNull(MimeTypeDetector.detectFast(png));
+        assertEquals("image/png", detector.detect(png));
+    }
+
+    @Test
+    public void detectLeavesStreamUnread() throws Exception {
+        byte[] content = "PTEN\nBRCA2\n".getBytes(StandardCharsets.UTF_8);
+        InputStream is = new BufferedInputStream(new ByteArrayInputStream(content), MimeTypeDetector.SNIFF_BLOCK_SIZE);
+        assertEquals(MimeTypeDetector.TEXT, detector.detect(is));
+        assertArrayEquals(content, is.readAllBytes());
+    }
+}
@@ -0,0 +1,116 @@
+package org.reactome.server.analysis.service.helper;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactome.server.analysis.core.result.AnalysisSortType;
+import org.reactome.server.analysis.core.result.AnalysisStoredResult;
+import org.reactome.server.analysis.core.result.PathwayNodeSummary;
+import org.reactome.server.analysis.service.AppTests;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The pathways arranged by the stored index must be in the same order as sorting them with
+ * DownloadHelper.getComparator (a stable sort, so the tied pathways keep their stored order)
+ */
+public class SortIndexStoreTest extends AppTests {
+
+    private static final String[] RESOURCES = {"TOTAL", "UNIPROT"};
+    private static final String[] ORDERS = {"ASC", "DESC"};
+
+    @Autowired
+    private SortIndexStore sortIndexStore;
+
+    @Autowired
+    private AnalysisResultCache analysisResultCache;
+
+    private AnalysisStoredResult asr;
+
+    @BeforeEach
+    public void prepare() throws InterruptedException {
+        generateToken("P02452 P08123 P02461 P12110 P49674 P35222 P09668 Q9NQC7");
+        asr = analysisResultCache.getFromToken(AppTests.token);
+        // The index is stored off the analysis thread
+        for (int i = 0; i < 100 && sort(asr.getPathways(), "NAME", "ASC", "TOTAL") == null; i++) Thread.sleep(100);
+        assertNotNull(sort(asr.getPathways(), "NAME", "ASC", "TOTAL"), "The sort index was not stored");
+    }
+
+    @Test
+    public void sortAllPathways() {
+        assertSortedAsComparator(asr.getPathways());
+    }
+
+    @Test
+    public void sortWithTies() {
+        // Few identifiers are found in every pathway, so many of them are tied by the found entities
+        List<PathwayNodeSummary> pathways = asr.getPathways();
+        List<PathwayNodeSummary> sorted = new ArrayList<>(pathways);
+        sorted.sort(DownloadHelper.getComparator("FOUND_ENTITIES", "ASC", "TOTAL"));
+        boolean ties = false;
+        for (int i = 1; i < sorted.size() && !ties; i++) {
+            ties = DownloadHelper.getComparator("FOUND_ENTITIES", "ASC", "TOTAL").compare(sorted.get(i - 1), sorted.get(i)) == 0;
+        }
+        assertTrue(ties, "The result has no tied pathways");
+
+        for (String order : ORDERS) {
+            assertEquals(getIds(sortWithComparator(pathways, "FOUND_ENTITIES", order, "TOTAL")),
+                    getIds(sort(pathways, "FOUND_ENTITIES", order, "TOTAL")), "FOUND_ENTITIES " + order);
+        }
+    }
+
+    @Test
+    public void sortFilteredSubsets() {
+        List<PathwayNodeSummary> everyOther = new ArrayList<>();
+        for (int i = 0; i < asr.getPathways().size(); i += 2) everyOther.add(asr.getPathways().get(i));
+        assertSortedAsComparator(everyOther);
+
+        List<PathwayNodeSummary> filtered = asr.filterPathways("TOTAL", 0.5, false, null, null, false).getPathways();
+        assertFalse(filtered.isEmpty());
+        assertSortedAsComparator(filtered);
+    }
+
+    @Test
+    public void sortNotIndexedPathways() {
+        // A pathway twice cannot be placed by the index, so the view has to be sorted as usual
+        List<PathwayNodeSummary> pathways = new ArrayList<>(asr.getPathways());
+        pathways.add(pathways.get(0));
+        assertNull(sort(pathways, "NAME", "ASC", "TOTAL"));
+        assertNull(sortIndexStore.sort("not-a-token", asr.getPathways(), "NAME", "ASC", "TOTAL"));
+    }
+
+    private void assertSortedAsComparator(List<PathwayNodeSummary> pathways) {
+        for (String resource : RESOURCES) {
+            for (AnalysisSortType sortType : AnalysisSortType.values()) {
+                for (String order : ORDERS) {
+                    assertEquals(getIds(sortWithComparator(pathways, sortType.name(), order, resource)),
+                            getIds(sort(pathways, sortType.name(), order, resource)),
+                            String.join(" ", resource, sortType.name(), order));
+                }
+            }
+        }
+    }
+
+    private List<PathwayNodeSummary> sort(List<PathwayNodeSummary> pathways, String sortBy, String order, String resource) {
+        return sortIndexStore.sort(AppTests.token, pathways, sortBy, order, resource);
+    }
+
+    private static List<PathwayNodeSummary> sortWithComparator(List<PathwayNodeSummary> pathways, String sortBy, String order, String resource) {
+        List<PathwayNodeSummary> rtn = new ArrayList<>(pathways);
+        rtn.sort(DownloadHelper.getComparator(sortBy, order, resource));
+        return rtn;
+    }
+
+    private static List<String> getIds(List<PathwayNodeSummary> pathways) {
+        assertNotNull(pathways);
+        return pathways.stream().map(PathwayNodeSummary::getStId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,73 @@
+package org.reactome.server.analysis.service.helper;
+
+import org.junit.jupiter.api.Test;
+import org.reactome.server.analysis.core.model.AnalysisIdentifier;
+import org.reactome.server.analysis.core.model.UserData;
+import org.reactome.server.analysis.core.result.exception.DataFormatException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserDataReaderTest {
+
+    @Test
+    public void readOverrepresentation() throws IOException {
+        UserData userData = UserDataReader.read(stream("#GBM Uniprot\nP01023\r\nQ99758, O15439\n\nP01023\n"));
+        assertEquals("GBM Uniprot", userData.getSampleName());
+        assertTrue(userData.getExpressionColumnNames().isEmpty());
+        assertEquals(Arrays.asList("P01023", "Q99758", "O15439"), getIds(userData));
+    }
+
+    @Test
+    public void readExpression() throws IOException {
+        UserData userData = UserDataReader.read(stream("#Gene symbol\t#Somatic\tTotal\nTP53   \t  8\t 18\nAPC\t6\t17.5"));
+        assertEquals("Gene symbol", userData.getSampleName());
+        assertEquals(Arrays.asList("#Somatic", "Total"), userData.getExpressionColumnNames());
+        List<AnalysisIdentifier> identifiers = new ArrayList<>(userData.getIdentifiers());
+        assertEquals(Arrays.asList(6d, 17.5), identifiers.get(1).getExp());
+    }
+
+    @Test
+    public void readWithoutHeader() throws IOException {
+        UserData userData = UserDataReader.read(stream("TP53 8 18\nAPC 6 17"));
+        assertNull(userData.getSampleName());
+        assertEquals(Arrays.asList("col1", "col2"), userData.getExpressionColumnNames());
+        assertEquals(Arrays.asList("TP53", "APC"), getIds(userData));
+
+        userData = UserDataReader.read(stream("P02452 P08123 P02461"));
+        assertTrue(userData.getExpressionColumnNames().isEmpty());
+        assertEquals(Arrays.asList("P02452", "P08123", "P02461"), getIds(userData));
+    }
+
+    @Test
+    public void inputMD5IsTheOneOfTheContent() throws IOException {
+        String content = "#sample\nP01023\nQ99758";
+        assertEquals(UserDataReader.read(stream(content)).getInputMD5(), UserDataReader.read(stream(content)).getInputMD5());
+        assertNotEquals(UserDataReader.read(stream(content)).getInputMD5(), UserDataReader.read(stream(content + "\n")).getInputMD5());
+    }
+
+    @Test
+    public void readWrongContent() {
+        assertThrows(DataFormatException.class, () -> UserDataReader.read(stream("#sample\tvalue\nTP53\t8\nAPC")));
+        assertThrows(DataFormatException.class, () -> UserDataReader.read(stream("#sample\tvalue\nTP53\tfoo")));
+        assertThrows(DataFormatException.class, () -> UserDataReader.read(stream(" \n\n")));
+        assertThrows(DataFormatException.class, () -> UserDataReader.read(stream("P" + "0".repeat(2000))));
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> getIds(UserData userData) {
+        List<String> rtn = new ArrayList<>();
+        for (AnalysisIdentifier identifier : userData.getIdentifiers()) rtn.add(identifier.getId());
+        return rtn;
+    }
+}